@@ -0,0 +1,84 @@
+/* ChipsBatchReader.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.chips.message;
+ 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+ 
+import com.chrislaforetsoftware.util.MessageFileReader;
+ 
+/** Reads the messages of an end-of-cycle CHIPS file one at a time, as
+ * an Iterator or through stream().  Messages are separated by blank lines.
+ * A stream is read in fixed size chunks and a message longer than
+ * MAXIMUM_MESSAGE_LENGTH is skipped, so memory use does not depend on
+ * the size of the file.  A malformed message only affects its own result:
+ * reading picks up again at the next blank line.
+ * <pre>
+ * try (ChipsBatchReader reader = new ChipsBatchReader(input))
+ *     {
+ *     reader.stream().map(MessageParseResults::getMessage).forEach(reconciler);
+ *     }
+ * </pre>
+ */
+ 
+public class ChipsBatchReader extends MessageFileReader
+    {
+    static public final int MAXIMUM_MESSAGE_LENGTH = 256 * 1024;
+     
+    /** Opens a CHIPS file and reads it through memory-mapped windows.
+     * 
+     * @param File the CHIPS file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public ChipsBatchReader(Path File) throws IOException
+        {
+        super(File,new ChipsFramer());
+        }
+     
+     
+    /** Reads a CHIPS file from a channel through memory-mapped windows.
+     * 
+     * @param Channel the channel to read from its current position.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public ChipsBatchReader(FileChannel Channel) throws IOException
+        {
+        super(Channel,new ChipsFramer(),DEFAULT_WINDOW_SIZE);
+        }
+     
+     
+    /** Reads a CHIPS file from a stream.
+     * 
+     * @param Stream the stream to read.
+     */
+    public ChipsBatchReader(InputStream Stream)
+        {
+        super(Stream,new ChipsFramer());
+        }
+    }
@@ -26,11 +26,16 @@
  
 package com.chrislaforetsoftware.chips.message;
  
-import java.util.HashMap;
 import java.util.List;
  
+import com.chrislaforetsoftware.util.Amount;
 import com.chrislaforetsoftware.util.CodeLookup;
+import com.chrislaforetsoftware.util.CodeTable;
+import com.chrislaforetsoftware.util.CurrencyCodes;
+import com.chrislaforetsoftware.util.ErrorList;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.FieldIndex;
+import com.chrislaforetsoftware.util.ParseError;
  
 /** Contains a CHIPS message.  CHIPS is the CLEARING HOUSE PAYMENTS COMPANY L.L.C.
  * 
@@ -69,6 +74,9 @@ public class ChipsMessage
         new CodeLookup("5","Non-Bank Identifier"),
         new CodeLookup("9","Non-Bank Identifier")
         };
+     
+    // the list above compiled for lookup; it may be replaced with a full list
+    private static volatile CodeTable _idCodes = new CodeTable(_idCode);
  
     // lookup for additional payment data (APD) from field 820
     @SuppressWarnings("unused")
@@ -85,9 +93,12 @@ public class ChipsMessage
         new CodeLookup("09","PROP (Proprietary code)")
         };
  
+    // CHIPS tags are three digits
+    static private final int TAG_WIDTH = 3;
+     
     // additional fields
     private List<Field> _fields;
-    private HashMap<String,Field> _fieldMap = new HashMap<String,Field>();
+    private FieldIndex _index = new FieldIndex(TAG_WIDTH);
  
     /** Attempts to create a FedWireMessage object from a collection
      * of fields.
@@ -95,35 +106,47 @@ public class ChipsMessage
      * @param Fields the fields contained in the message.
      */
     public ChipsMessage(List<Field> Fields,List<String> Errors)
+        {
+        index(Fields,Errors);
+        }
+     
+     
+    /** Points the message at a new list of fields, so that ChipsParser
+     * can reuse one message object, and checks them as the constructor
+     * does.
+     * 
+     * @param Fields the fields contained in the message.
+     * @param Errors the list to add any errors to.
+     */
+    void index(List<Field> Fields,List<String> Errors)
         {
         _fields = Fields;
+        _amount = null;
+        _psn = null;
+        _sendParticipantReference = null;
          
-        for (Field field : Fields)
-            {
-            if (_fieldMap.containsKey(field.getTag()))
-                Errors.add("Duplicate field: " + field.getTag() + " exists more than once.");
-            else
-                _fieldMap.put(field.getTag(),field);
-            }
+        _index.index(Fields);
+        for (int duplicate = 0; duplicate < _index.getDuplicateCount(); duplicate++)
+            ErrorList.add(Errors,ParseError.DUPLICATE_FIELD,_index.getDuplicate(duplicate));
  
         // mandatory fields
-        Field match = _fieldMap.get("260");
+        Field match = getField(260);
         if (match != null)
             _amount = match.getValue();
         else
-            Errors.add("Missing mandatory field: Field 260.");
+            ErrorList.addTag(Errors,ParseError.MISSING_FIELD,260,TAG_WIDTH);
  
-        match = _fieldMap.get("270");
+        match = getField(270);
         if (match != null)
             _psn = match.getValue();
         else
-            Errors.add("Missing mandatory field: Field 270.");
+            ErrorList.addTag(Errors,ParseError.MISSING_FIELD,270,TAG_WIDTH);
  
-        match = _fieldMap.get("320");
+        match = getField(320);
         if (match != null)
             _sendParticipantReference = match.getValue();
         else
-            Errors.add("Missing mandatory field: Field 320.");
+            ErrorList.addTag(Errors,ParseError.MISSING_FIELD,320,TAG_WIDTH);
         }
  
      
@@ -135,6 +158,24 @@ public class ChipsMessage
         {
         return _amount == null ? "" : _amount;
         }
+     
+     
+    /** Decodes field 260, digits of cents, into an amount without
+     * copying the field.
+     * 
+     * @param Into the amount to fill in; it is cleared if the field is missing or malformed.
+     * @return true if the amount was decoded.
+     */
+    public boolean getAmount(Amount Into)
+        {
+        Field field = getField(260);
+        if (field == null)
+            {
+            Into.clear();
+            return false;
+            }
+        return Into.decodeImplied(field,2,CurrencyCodes.USD);
+        }
  
      
     /** Retrieves field 270, the payment sequence number (PSN) field..
@@ -163,7 +204,7 @@ public class ChipsMessage
      */
     public String getHeader()
         {
-        return getFieldValue("031");
+        return getFieldValue(31);
         }
  
      
@@ -175,7 +216,7 @@ public class ChipsMessage
      */
     public String getIdentificationTag()
         {
-        return getFieldValue("201");
+        return getFieldValue(201);
         }
  
      
@@ -187,7 +228,7 @@ public class ChipsMessage
      */
     public String getDispositionTag()
         {
-        return getFieldValue("211");
+        return getFieldValue(211);
         }   
  
      
@@ -198,7 +239,7 @@ public class ChipsMessage
      */
     public String getDeliveryTag()
         {
-        return getFieldValue("221");
+        return getFieldValue(221);
         }   
  
      
@@ -210,7 +251,7 @@ public class ChipsMessage
      */
     public String getChargesInformation()
         {
-        return getFieldValue("301");
+        return getFieldValue(301);
         }
  
      
@@ -221,7 +262,7 @@ public class ChipsMessage
      */
     public String getRelatedBankReference()
         {
-        return getFieldValue("321");
+        return getFieldValue(321);
         }   
  
      
@@ -232,13 +273,13 @@ public class ChipsMessage
      */
     public String getIntermediaryBank()
         {
-        String value = getFieldValue("400");
+        String value = getFieldValue(400);
         if (value.length() > 0)
             return value;
-        value = getFieldValue("401");
+        value = getFieldValue(401);
         if (value.length() > 0)
             return value;
-        return getFieldValue("402");
+        return getFieldValue(402);
         }
      
      
@@ -282,13 +323,13 @@ public class ChipsMessage
      */
     public String getBeneficiaryBank()
         {
-        String value = getFieldValue("410");
+        String value = getFieldValue(410);
         if (value.length() > 0)
             return value;
-        value = getFieldValue("411");
+        value = getFieldValue(411);
         if (value.length() > 0)
             return value;
-        return getFieldValue("412");
+        return getFieldValue(412);
         }
      
      
@@ -313,13 +354,13 @@ public class ChipsMessage
      */
     public String getBeneficiary()
         {
-        String value = getFieldValue("420");
+        String value = getFieldValue(420);
         if (value.length() > 0)
             return value;
-        value = getFieldValue("421");
+        value = getFieldValue(421);
         if (value.length() > 0)
             return value;
-        return getFieldValue("422");
+        return getFieldValue(422);
         }   
      
      
@@ -344,13 +385,13 @@ public class ChipsMessage
      */
     public String getOriginator()
         {
-        String value = getFieldValue("500");
+        String value = getFieldValue(500);
         if (value.length() > 0)
             return value;
-        value = getFieldValue("501");
+        value = getFieldValue(501);
         if (value.length() > 0)
             return value;
-        return getFieldValue("502");
+        return getFieldValue(502);
         }   
      
      
@@ -375,13 +416,13 @@ public class ChipsMessage
      */
     public String getOriginatorBank()
         {
-        String value = getFieldValue("510");
+        String value = getFieldValue(510);
         if (value.length() > 0)
             return value;
-        value = getFieldValue("511");
+        value = getFieldValue(511);
         if (value.length() > 0)
             return value;
-        return getFieldValue("512");
+        return getFieldValue(512);
         }
      
      
@@ -406,13 +447,13 @@ public class ChipsMessage
      */
     public String getInstructingBank()
         {
-        String value = getFieldValue("520");
+        String value = getFieldValue(520);
         if (value.length() > 0)
             return value;
-        value = getFieldValue("521");
+        value = getFieldValue(521);
         if (value.length() > 0)
             return value;
-        return getFieldValue("522");
+        return getFieldValue(522);
         }   
      
      
@@ -437,7 +478,7 @@ public class ChipsMessage
      */
     public boolean doesFieldExist(String FieldTag)
         {
-        return _fieldMap.containsKey(FieldTag);
+        return _index.get(FieldTag) != null;
         }
      
      
@@ -449,9 +490,32 @@ public class ChipsMessage
      */
     public String getFieldValue(String FieldTag)
         {
-        if (_fieldMap.containsKey(FieldTag))
-            return _fieldMap.get(FieldTag).getValue();
-        return "";
+        Field field = _index.get(FieldTag);
+        return field == null ? "" : field.getValue();
+        }
+     
+     
+    /** Retrieves the field with the three digit tag passed in.
+     * 
+     * @param TagCode the tag (e.g. 260) to find.
+     * @return the field or null if it does not exist.
+     */
+    public Field getField(int TagCode)
+        {
+        return _index.get(TagCode);
+        }
+     
+     
+    /** Attempts to return the value attached to a three digit tag
+     * if it is found in the list of fields.
+     * 
+     * @param TagCode the tag (e.g. 260) to find.
+     * @return the value if found or an empty string if field does not exist.
+     */
+    public String getFieldValue(int TagCode)
+        {
+        Field field = getField(TagCode);
+        return field == null ? "" : field.getValue();
         }
      
      
@@ -484,11 +548,28 @@ public class ChipsMessage
      */
     public static String lookupIDCode(String Code)
         {
-        for (CodeLookup lookup : _idCode)
-            {
-            if (lookup.getCode().compareTo(Code) == 0)
-                return lookup.getDescription();
-            }
-        return "";
+        String description = _idCodes.getDescription(Code);
+        return description == null ? "" : description;
+        }
+     
+     
+    /** Replaces the ID codes, for instance with a full list loaded
+     * by CodeTable.load().
+     * 
+     * @param Codes the codes to decode with from now on.
+     */
+    public static void setIDCodes(CodeTable Codes)
+        {
+        _idCodes = Codes;
+        }
+     
+     
+    /** Retrieves the ID codes in use.
+     * 
+     * @return the codes.
+     */
+    public static CodeTable getIDCodes()
+        {
+        return _idCodes;
         }
     }
\ No newline at end of file
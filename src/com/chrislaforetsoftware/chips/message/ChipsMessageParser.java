@@ -26,15 +26,20 @@
  
 package com.chrislaforetsoftware.chips.message;
  
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
  
-import com.chrislaforetsoftware.chips.util.ChipsField;
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.ErrorList;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageBatchParser;
+import com.chrislaforetsoftware.util.MessageFormat;
 import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.MessageSpliterator;
 import com.chrislaforetsoftware.util.ParseSupport;
  
  
@@ -54,96 +59,95 @@ public class ChipsMessageParser
      */
     static public MessageParseResults parseMessage(String Contents) throws IOException
         {
-        ParseSupport support = new ParseSupport(new BufferedReader(new StringReader(Contents)));
+        return parseMessage((CharSequence)Contents);
+        }
+     
+     
+    /** Attempts to parse a CHIPS message held in a byte buffer without
+     * first decoding it into a String.  The buffer's position and limit
+     * are left alone, and field values are views of the buffer, so the
+     * region must not be overwritten while the message is in use.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return parseMessage(new ByteCharSequence(Buffer,Offset,Length));
+        }
+     
+     
+    /** Attempts to parse a CHIPS message from any character sequence.
+     * Parsing stops at the first blank line; use ChipsBatchReader to
+     * read a file of blank-line separated messages.
+     * 
+     * @param Contents the characters of a CHIPS message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(CharSequence Contents) throws IOException
+        {
+        ParseSupport support = new ParseSupport(ErrorList.scratch());
         List<Field> fieldList = new ArrayList<Field>(30);
-        while (true)
-            {
-            String nextLine = support.reader.readLine();
-            if (nextLine == null)
-                break;
-            ++support.lineNumber;
-             
-            if (nextLine.trim().length() == 0)
-                break;
-             
-            Field field = extractField(nextLine,support);
-            if (field != null)
-                fieldList.add(field);
-            else
-                support.errorList.add("Line " + support.lineNumber + ": Invalid field or malformed field tag");
-            }
+        new ChipsTokenizer(Contents).tokenize(support,fieldList);
  
 //      checkFields(fieldList,support);
          
         ChipsMessage message = new ChipsMessage(fieldList,support.errorList);
-        return new MessageParseResults(message,fieldList,support.errorList);
+        return new MessageParseResults(message,fieldList,ErrorList.keep(support.errorList),MessageFormat.CHIPS);
+        }
+     
+     
+    /** Parses every message of a file of blank-line separated CHIPS
+     * messages held in a region of a buffer, splitting the region into
+     * messages and parsing them in parallel.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in input order.
+     * @throws IOException if an error occurs while parsing.
+     * @see MessageBatchParser
+     */
+    static public List<MessageParseResults> parseAll(ByteBuffer Buffer,int Offset,int Length,int Parallelism) throws IOException
+        {
+        return MessageBatchParser.parseAll(Buffer,Offset,Length,new ChipsFramer(),Parallelism);
         }
      
      
-    /** Handles parsing the tag out of the current line and 
-     * checks to see if the tag wraps onto other lines. If so,
-     * it reads the wrapped lines.  It does not check for field
-     * legality.
+    /** Parses every message of a file of blank-line separated CHIPS
+     * messages, splitting the file into messages and parsing them in
+     * parallel.
      * 
-     * @param Line the first (or only) line of the tagged field.
-     * @param Support the parser support class containing the message to parse.
-     * @return a Field object containing tag and field data or null if malformed line.
-     * @throws IOException if an error occurs reading from the parsing object.
+     * @param File the file to parse.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be read or an error occurs while parsing.
+     * @see MessageBatchParser
      */
-    static private Field extractField(String Line,ParseSupport Support) throws IOException
+    static public List<MessageParseResults> parseAll(Path File,int Parallelism) throws IOException
         {
-        int offset = Line.indexOf("[");
-        if (offset < 0)
-            {
-            Support.errorList.add("Line " + Support.lineNumber + ": Missing open curly ([) on tag number.");
-            return null;
-            }
-        else if (offset > 0)
-            Support.errorList.add("Line " + Support.lineNumber + ": Incorrectly placed open curly (]) on tag number...not first character on line.");
-        int tagStart = offset + 1;
- 
-        offset = Line.indexOf("]",offset);
-        if (offset < 0)
-            {
-            Support.errorList.add("Line " + Support.lineNumber + ": Missing close curly (]) on tag number.");
-            return null;
-            }
-         
-        String tag = Line.substring(tagStart,offset);
-        if (tag.length() != 3)
-            Support.errorList.add("Line " + Support.lineNumber + ": Tag is invalid length of " + tag.length() + " characters instead of 4.");
-        for (char ch : tag.toCharArray())
-            {
-            if (!Character.isDigit(ch))
-                {
-                Support.errorList.add("Line " + Support.lineNumber + ": Tag contains one or more invalid non-numeric characters.");
-                break;
-                }
-            }
-         
-        StringBuilder contents = new StringBuilder(256);
-        if (offset == Line.length() - 2)
-            Support.errorList.add("Line " + Support.lineNumber + ": No data follows the tag...empty value field.");
-        else
-            contents.append(Line.substring(offset + 2));
-         
-        while (true)
-            {
-            Support.reader.mark(1);
-            int nextChar = Support.reader.read();
-            Support.reader.reset();
-            if (nextChar == -1)
-                break;
-            if ((char)nextChar == '[')
-                break;
-             
-            String line = Support.reader.readLine();
-            Support.lineNumber++;
-             
-            contents.append("\r\n");
-            contents.append(line);
-            }
-         
-        return new ChipsField(tag,contents.toString());
+        return MessageBatchParser.parseAll(File,new ChipsFramer(),Parallelism);
+        }
+     
+     
+    /** Returns a stream over the messages of a file of blank-line
+     * separated CHIPS messages, which can be split at message boundaries
+     * for a parallel stream.  Each message is parsed when the stream
+     * reaches it.
+     * 
+     * @param File the file to read.
+     * @param Parallel true for a parallel stream.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be mapped.
+     * @see MessageSpliterator
+     */
+    static public Stream<MessageParseResults> streamAll(Path File,boolean Parallel) throws IOException
+        {
+        return MessageSpliterator.stream(File,new ChipsFramer(),Parallel);
         }
     }
@@ -0,0 +1,118 @@
+/* ChipsParser.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.chips.message;
+ 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+ 
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
+/** A CHIPS parser object that keeps its working state from one message
+ * to the next.  It gives the same fields and errors as
+ * ChipsMessageParser.parseMessage(), but the tokenizer, the fields, the
+ * error list, the message and the results are created once and reset for
+ * each message.
+ * <p>
+ * Everything returned by parseMessage() belongs to the parser and is only
+ * valid until the next call; copy out what must be kept.  A parser is not
+ * thread-safe.  Use one per thread, for instance through forCurrentThread().
+ */
+ 
+public class ChipsParser
+    {
+    static private final ThreadLocal<ChipsParser> _perThread = new ThreadLocal<ChipsParser>()
+        {
+        @Override
+        protected ChipsParser initialValue()
+            {
+            return new ChipsParser();
+            }
+        };
+    
+    private ParseSupport _support = new ParseSupport();
+    private List<Field> _fields = new ArrayList<Field>(30);
+    private ChipsTokenizer _tokenizer = new ChipsTokenizer();
+    private ByteCharSequence _view;
+    private ChipsMessage _message;
+    private MessageParseResults _results;
+    
+    /** Returns the parser that belongs to the calling thread, creating
+     * it the first time.
+     * 
+     * @return this thread's parser.
+     */
+    static public ChipsParser forCurrentThread()
+        {
+        return _perThread.get();
+        }
+    
+    
+    /** Parses a CHIPS message held in a byte buffer.  The parser keeps
+     * one view over the buffer, which is moved to each new message.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length)
+        {
+        if (_view == null)
+            _view = new ByteCharSequence(Buffer,Offset,Length);
+        else
+            _view.reset(Buffer,Offset,Length);
+        return parseMessage(_view);
+        }
+    
+    
+    /** Parses a CHIPS message from any character sequence.
+     * 
+     * @param Contents the characters of a CHIPS message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessage(CharSequence Contents)
+        {
+        _support.reset();
+        _fields.clear();
+        _tokenizer.reset(Contents);
+        _tokenizer.tokenize(_support,_fields);
+        
+        if (_message == null)
+            {
+            _message = new ChipsMessage(_fields,_support.errorList);
+            _results = new MessageParseResults(_message,_fields,_support.errorList,MessageFormat.CHIPS);
+            }
+        else
+            _message.index(_fields,_support.errorList);
+        return _results;
+        }
+    }
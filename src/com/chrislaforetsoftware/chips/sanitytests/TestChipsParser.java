@@ -26,10 +26,26 @@
  
 package com.chrislaforetsoftware.chips.sanitytests;
  
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+ 
+import com.chrislaforetsoftware.chips.message.ChipsBatchReader;
+import com.chrislaforetsoftware.chips.message.ChipsFramer;
 import com.chrislaforetsoftware.chips.message.ChipsMessage;
 import com.chrislaforetsoftware.chips.message.ChipsMessageParser;
+import com.chrislaforetsoftware.chips.message.ChipsParser;
+import com.chrislaforetsoftware.util.Amount;
+import com.chrislaforetsoftware.util.CurrencyCodes;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageFileReader;
 import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.MessagePublisher;
  
 import junit.framework.TestCase;
  
@@ -101,6 +117,10 @@ public class TestChipsParser extends TestCase
         assertEquals(message.toString(),GoodChipsMessage);
          
         assertEquals(message.getAmount(),"000220769618");
+        Amount amount = new Amount();
+        assertTrue(message.getAmount(amount));
+        assertEquals(amount.getMinorUnits(),220769618L);
+        assertEquals(amount.getCurrency(),CurrencyCodes.USD);
         assertEquals(message.getPSN(),"001663");
         assertEquals(message.getSendParticipantReference(),"74300T743013042");
          
@@ -116,4 +136,219 @@ public class TestChipsParser extends TestCase
         assertEquals(ChipsMessage.lookupIDCode(message.getBeneficiaryID().substring(0,1)),"BIC/SWIFT");
         assertEquals(ChipsMessage.lookupIDCode(message.getOriginatorID().substring(0,1)),"CHIPS Universal ID");
         }
-    }
\ No newline at end of file
+         
+    public void testMalformedMessage() throws Exception
+        {
+        String malformed = 
+            "[260] 000220769618\r\n" +
+            " x[270] 001663\r\n" +
+            "[32\r\n" +
+            "BAD\r\n" +
+            "[3A0] \n" +
+            "[500] C 005419\rmore\r\n" +
+            "\r\n" +
+            "[320] X";
+        MessageParseResults results = ChipsMessageParser.parseMessage(malformed);
+        String [] errors = 
+            {
+            "Line 3: Missing close curly (]) on tag number.",
+            "Line 3: Invalid field or malformed field tag",
+            "Line 4: Missing open curly ([) on tag number.",
+            "Line 4: Invalid field or malformed field tag",
+            "Line 5: Tag contains one or more invalid non-numeric characters.",
+            "Line 5: No data follows the tag...empty value field.",
+            "Missing mandatory field: Field 270.",
+            };
+        assertEquals(results.errorCount(),errors.length);
+        for (int index = 0; index < errors.length; index++)
+            assertEquals(results.getErrors().get(index),errors[index]);
+         
+        assertEquals(results.fieldCount(),4);
+        assertEquals(results.getFields().get(0).getValue(),"000220769618\r\n x[270] 001663");
+        assertEquals(results.getFields().get(1).getValue(),"");
+        assertEquals(results.getFields().get(2).getValue(),"C 005419\r\nmore\r\n");
+        assertEquals(results.getFields().get(3).getValue(),"X");
+         
+        // a bare tag used to throw from substring()
+        results = ChipsMessageParser.parseMessage("[260]\r\n[270] 001663\r\n[320] X");
+        assertEquals(results.fieldCount(),3);
+        assertEquals(results.getErrors().get(0),"Line 1: No data follows the tag...empty value field.");
+        }
+     
+     
+    public void testDuplicateFields() throws Exception
+        {
+        MessageParseResults results = ChipsMessageParser.parseMessage("[260] 1\r\n[270] 2\r\n[260] 3\r\n[320] X\r\n[270] 4\r\n[260] 5");
+        assertEquals(results.getErrors().size(),3);
+        assertEquals(results.getErrors().get(0),"Duplicate field: 260 exists more than once.");
+        assertEquals(results.getErrors().get(1),"Duplicate field: 270 exists more than once.");
+        assertEquals(results.getErrors().get(2),"Duplicate field: 260 exists more than once.");
+         
+        // the first field with a tag is the one used
+        ChipsMessage message = (ChipsMessage)results.getMessage();
+        assertEquals(message.getAmount(),"1");
+        Amount amount = new Amount();
+        assertTrue(message.getAmount(amount));
+        assertEquals(amount.getMinorUnits(),1L);
+        assertEquals(message.getFieldValue(270),"2");
+        assertEquals(message.getFieldValue("320"),"X");
+        assertTrue(message.doesFieldExist("260"));
+        assertFalse(message.doesFieldExist("031"));
+        assertEquals(message.getFieldValue(31),"");
+        }     
+     
+    public void testReusableParser() throws Exception
+        {
+        String [] messages = 
+            {
+            GoodChipsMessage,
+            "[260] 000220769618\r\n[32\r\nBAD\r\n[320] X",
+            "[260]\r\n[270] 001663\r\n[320] X",
+            GoodChipsMessage,
+            };
+        ChipsParser parser = ChipsParser.forCurrentThread();
+        assertTrue(parser == ChipsParser.forCurrentThread());
+        for (String message : messages)
+            {
+            MessageParseResults expected = ChipsMessageParser.parseMessage(message);
+            MessageParseResults actual = parser.parseMessage(message);
+            assertEquals(actual.getErrors(),expected.getErrors());
+            assertEquals(actual.fieldCount(),expected.fieldCount());
+            for (int index = 0; index < expected.fieldCount(); index++)
+                assertEquals(actual.getFields().get(index).getValue(),expected.getFields().get(index).getValue());
+            ChipsMessage chips = (ChipsMessage)actual.getMessage();
+            assertEquals(chips.getPSN(),((ChipsMessage)expected.getMessage()).getPSN());
+            assertEquals(chips.getAmount(),((ChipsMessage)expected.getMessage()).getAmount());
+            }
+        }
+     
+    public void testByteBuffer() throws Exception
+        {
+        byte [] bytes = GoodChipsMessage.getBytes("ISO-8859-1");
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+         
+        MessageParseResults results = ChipsMessageParser.parseMessage(direct,0,bytes.length);
+        assertEquals(results.errorCount(),0);
+        assertEquals(results.fieldCount(),10);
+         
+        ChipsMessage message = (ChipsMessage)results.getMessage();
+        assertEquals(message.getBeneficiaryBank(),"D 10990765 CITIBANK, LONDON, ENGLAND");
+        assertEquals(message.toString(),GoodChipsMessage);
+        }
+         
+    public void testBatchReader() throws Exception
+        {
+        String batch = GoodChipsMessage + "\r\n\r\n" + 
+            "[260\r\ngarbage\r\n\r\n" + 
+            "[999] BOOM\r\n\r\n\r\n" + 
+            GoodChipsMessage + "\r\n";
+        byte [] bytes = batch.getBytes("ISO-8859-1");
+         
+        ChipsBatchReader reader = new ChipsBatchReader(new ByteArrayInputStream(bytes));
+        List<MessageParseResults> results = reader.stream().collect(Collectors.toList());
+        assertEquals(results.size(),4);
+        assertEquals(results.get(0).getMessage().toString(),GoodChipsMessage);
+        assertEquals(results.get(1).getErrors().get(0),"Line 1: Missing close curly (]) on tag number.");
+        assertEquals(results.get(3).getMessage().toString(),GoodChipsMessage);
+         
+        // a message that makes the parser throw does not stop the reader
+        ChipsFramer framer = new ChipsFramer()
+            {
+            @Override
+            public MessageParseResults parse(ByteBuffer Buffer,int Offset,int Length) throws IOException
+                {
+                MessageParseResults results = super.parse(Buffer,Offset,Length);
+                if (results.getFields().get(0).valueEquals("BOOM"))
+                    throw new IllegalStateException("boom");
+                return results;
+                }
+            };
+        MessageFileReader chunked = new MessageFileReader(new ByteArrayInputStream(bytes),framer,16);
+        List<MessageParseResults> recovered = chunked.stream().collect(Collectors.toList());
+        assertEquals(recovered.size(),4);
+        assertNull(recovered.get(2).getMessage());
+        assertEquals(recovered.get(2).getErrors().get(0),"Message could not be parsed: java.lang.IllegalStateException: boom.");
+        assertEquals(chunked.getMessageLine(),batch.substring(0,batch.lastIndexOf(GoodChipsMessage)).split("\n",-1).length);
+        assertEquals(recovered.get(3).getMessage().toString(),GoodChipsMessage);
+        }
+     
+     
+    public void testPublisher() throws Exception
+        {
+        String batch = GoodChipsMessage + "\r\n\r\n" + "[260\r\ngarbage\r\n\r\n" + GoodChipsMessage + "\r\n";
+        final List<Object> received = new ArrayList<Object>();
+        final Flow.Subscription [] subscription = new Flow.Subscription[1];
+        Flow.Subscriber<MessageParseResults> subscriber = new Flow.Subscriber<MessageParseResults>()
+            {
+            public void onSubscribe(Flow.Subscription Subscription)
+                {
+                subscription[0] = Subscription;
+                }
+             
+            public void onNext(MessageParseResults Results)
+                {
+                received.add(Results);
+                }
+             
+            public void onError(Throwable Failure)
+                {
+                received.add(Failure);
+                }
+             
+            public void onComplete()
+                {
+                received.add("complete");
+                }
+            };
+         
+        // running on the calling thread shows exactly what each request reads
+        Executor caller = new Executor()
+            {
+            public void execute(Runnable Task)
+                {
+                Task.run();
+                }
+            };
+        ChipsBatchReader reader = new ChipsBatchReader(new ByteArrayInputStream(batch.getBytes("ISO-8859-1")));
+        MessagePublisher publisher = reader.publisher(caller);
+        publisher.subscribe(subscriber);
+        assertEquals(received.size(),0);
+        subscription[0].request(1);
+        assertEquals(received.size(),1);
+        assertEquals(((MessageParseResults)received.get(0)).getMessage().toString(),GoodChipsMessage);
+        subscription[0].request(5);
+        assertEquals(received.size(),4);
+        assertTrue(((MessageParseResults)received.get(1)).errorCount() > 0);
+        assertEquals(received.get(3),"complete");
+         
+        // only one subscriber, and a bad request or a cancel ends the subscription
+        publisher.subscribe(subscriber);
+        assertTrue(received.get(4) instanceof IllegalStateException);
+         
+        received.clear();
+        reader = new ChipsBatchReader(new ByteArrayInputStream(batch.getBytes("ISO-8859-1")));
+        reader.publisher(caller).subscribe(subscriber);
+        subscription[0].request(0);
+        assertTrue(received.get(0) instanceof IllegalArgumentException);
+        subscription[0].request(1);
+        assertEquals(received.size(),1);
+         
+        // asking for exactly the messages there are still completes
+        received.clear();
+        reader = new ChipsBatchReader(new ByteArrayInputStream(batch.getBytes("ISO-8859-1")));
+        reader.publisher(caller).subscribe(subscriber);
+        subscription[0].request(3);
+        assertEquals(received.size(),4);
+        assertEquals(received.get(3),"complete");
+         
+        received.clear();
+        reader = new ChipsBatchReader(new ByteArrayInputStream(batch.getBytes("ISO-8859-1")));
+        reader.publisher(caller).subscribe(subscriber);
+        subscription[0].request(1);
+        subscription[0].cancel();
+        subscription[0].request(1);
+        assertEquals(received.size(),1);
+        assertFalse(reader.hasNext());
+        }
+    }
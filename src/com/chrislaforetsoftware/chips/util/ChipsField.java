@@ -41,6 +41,24 @@ public class ChipsField extends Field
         }
      
      
+    public ChipsField(String Tag,CharSequence Value)
+        {
+        super(Tag,Value);
+        }
+     
+     
+    public ChipsField(CharSequence Source,int TagStart,int TagEnd,int ValueStart,int ValueEnd)
+        {
+        super(Source,TagStart,TagEnd,ValueStart,ValueEnd);
+        }
+     
+     
+    public ChipsField(CharSequence Source,int TagStart,int TagEnd,String Value)
+        {
+        super(Source,TagStart,TagEnd,Value);
+        }
+     
+     
     /* (non-Javadoc)
      * @see com.wachovia.util.Field#getField()
      */
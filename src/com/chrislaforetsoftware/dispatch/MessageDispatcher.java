@@ -0,0 +1,102 @@
+/* MessageDispatcher.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.dispatch;
+ 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+ 
+import com.chrislaforetsoftware.chips.message.ChipsMessageParser;
+import com.chrislaforetsoftware.fed.message.FedWireMessageParser;
+import com.chrislaforetsoftware.swift.message.SwiftMessageParser;
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Parses a message of any of the supported formats.  The format is
+ * worked out from the first few characters of the message by
+ * MessageFormat.sniff() and the message is handed to that format's parser
+ * only, so callers with a mixed inbound feed no longer need to try each
+ * parser in turn.  The format is available from getFormat() on the results.
+ */
+ 
+public class MessageDispatcher
+    {
+    /** Parses a message held in a String.
+     * 
+     * @param Contents the message.
+     * @return the results of parsing the message, tagged with its format.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(String Contents) throws IOException
+        {
+        return parseMessage((CharSequence)Contents);
+        }
+     
+     
+    /** Parses a message held in a byte buffer, without decoding it into
+     * a String first.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results of parsing the message, tagged with its format.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return parseMessage(new ByteCharSequence(Buffer,Offset,Length));
+        }
+     
+     
+    /** Parses a message held in any character sequence.
+     * 
+     * @param Contents the message.
+     * @return the results of parsing the message, tagged with its format.
+     * An unrecognized message gives results with no message, no fields and
+     * a single error.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(CharSequence Contents) throws IOException
+        {
+        switch (MessageFormat.sniff(Contents))
+            {
+            case SWIFT:
+                return SwiftMessageParser.parseMessage(Contents);
+            case FEDWIRE:
+                return FedWireMessageParser.parseMessage(Contents);
+            case CHIPS:
+                return ChipsMessageParser.parseMessage(Contents);
+            default:
+                List<String> errors = new ArrayList<String>(1);
+                errors.add("Unable to determine the message format: it does not start with {1:, {nnnn} or [nnn].");
+                return new MessageParseResults(null,new ArrayList<Field>(),errors,MessageFormat.UNKNOWN);
+            }
+        }
+    }
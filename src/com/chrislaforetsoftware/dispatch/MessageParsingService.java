@@ -0,0 +1,571 @@
+/* MessageParsingService.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.dispatch;
+ 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+ 
+import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageFileReader;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageFramer;
+import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
+/** Reads and parses messages from many blocking sources at once and
+ * hands the results to a consumer through a bounded queue.  Each source
+ * gets a thread of its own, which spends most of its life blocked on the
+ * source, so on a JVM with virtual threads each source runs on a virtual
+ * thread and thousands of sources cost no more than a few platform threads.
+ * On an older JVM the service falls back to platform threads.
+ * <p>
+ * Two settings keep the service in check:
+ * <ul>
+ * <li>the queue capacity is the number of parsed messages that may be
+ * waiting for the consumer.  A source whose message does not fit waits
+ * until the consumer catches up, which slows the reads from that source.
+ * <li>the parse concurrency is the number of sources that may be parsing
+ * at the same moment, so that parsing stays on about as many threads as
+ * there are processors however many sources are blocked reading.
+ * </ul>
+ * The consumer calls take() until it returns null, which happens once
+ * shutdown() has been called and every source has been read to the end.
+ * A source that fails is reported as a message whose results hold a
+ * single error and no message.
+ * <pre>
+ * MessageParsingService service = new MessageParsingService(1000);
+ * for (Socket feed : feeds)
+ *     service.addSource(feed.toString(),feed.getInputStream(),new FedWireFramer());
+ * service.shutdown();
+ * for (MessageParsingService.ParsedMessage message; (message = service.take()) != null; )
+ *     route(message.getResults());
+ * </pre>
+ */
+ 
+public class MessageParsingService implements Closeable
+    {
+    /** The results of one message, along with the name of the source it
+     * came from.
+     */
+    static public class ParsedMessage
+        {
+        private String _source;
+        private MessageParseResults _results;
+        
+        private ParsedMessage(String Source,MessageParseResults Results)
+            {
+            _source = Source;
+            _results = Results;
+            }
+        
+        
+        /** Returns the name the source was added with.
+         * 
+         * @return the source name.
+         */
+        public String getSource()
+            {
+            return _source;
+            }
+        
+        
+        /** Returns the results of parsing the message.
+         * 
+         * @return the parse results.
+         */
+        public MessageParseResults getResults()
+            {
+            return _results;
+            }
+        }
+    
+    
+    static private final ParsedMessage END_OF_SOURCES = new ParsedMessage(null,null);
+    static private final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+    
+    private BlockingQueue<ParsedMessage> _queue = new LinkedBlockingQueue<ParsedMessage>();
+    private Semaphore _queueSpace;
+    private Semaphore _parsePermits;
+    private int _queueCapacity;
+    private int _parseConcurrency;
+    private ThreadFactory _threadFactory;
+    private boolean _virtualThreads;
+    
+    // each running source's thread with what close() must close to unblock it
+    private Map<Thread,Closeable> _threads = new HashMap<Thread,Closeable>();
+    private boolean _shutdown;
+    private volatile boolean _closed;
+    
+    /** Creates a service that runs each source on a virtual thread when
+     * the JVM has them and parses on as many sources at a time as there 
+     * are processors.
+     * 
+     * @param QueueCapacity the number of parsed messages that may wait for the consumer.
+     */
+    public MessageParsingService(int QueueCapacity)
+        {
+        this(QueueCapacity,Runtime.getRuntime().availableProcessors(),null);
+        }
+    
+    
+    /** Creates a service with all of its settings given.
+     * 
+     * @param QueueCapacity the number of parsed messages that may wait for the consumer.
+     * @param ParseConcurrency the number of sources that may parse at the same time.
+     * @param Factory the factory for the source threads, or null to use
+     * virtual threads when the JVM has them and daemon platform threads
+     * when it does not.
+     */
+    public MessageParsingService(int QueueCapacity,int ParseConcurrency,ThreadFactory Factory)
+        {
+        if (QueueCapacity <= 0)
+            throw new IllegalArgumentException("Queue capacity must be positive.");
+        if (ParseConcurrency <= 0)
+            throw new IllegalArgumentException("Parse concurrency must be positive.");
+        
+        _queueCapacity = QueueCapacity;
+        _parseConcurrency = ParseConcurrency;
+        _queueSpace = new Semaphore(QueueCapacity);
+        _parsePermits = new Semaphore(ParseConcurrency);
+        if (Factory != null)
+            _threadFactory = Factory;
+        else if (VIRTUAL_THREAD_FACTORY != null)
+            {
+            _threadFactory = VIRTUAL_THREAD_FACTORY;
+            _virtualThreads = true;
+            }
+        else
+            {
+            final ThreadFactory platform = Executors.defaultThreadFactory();
+            _threadFactory = new ThreadFactory()
+                {
+                public Thread newThread(Runnable Task)
+                    {
+                    Thread thread = platform.newThread(Task);
+                    thread.setDaemon(true);
+                    return thread;
+                    }
+                };
+            }
+        }
+    
+    
+    /** Returns the number of parsed messages that may wait for the
+     * consumer before the sources are held back.
+     * 
+     * @return the queue capacity.
+     */
+    public int getQueueCapacity()
+        {
+        return _queueCapacity;
+        }
+    
+    
+    /** Returns the number of sources that may parse at the same time.
+     * 
+     * @return the parse concurrency.
+     */
+    public int getParseConcurrency()
+        {
+        return _parseConcurrency;
+        }
+    
+    
+    /** Tells whether the sources run on virtual threads.
+     * 
+     * @return true if each source has a virtual thread.
+     */
+    public boolean isUsingVirtualThreads()
+        {
+        return _virtualThreads;
+        }
+    
+    
+    /** Returns the number of sources that are still being read.
+     * 
+     * @return the number of running sources.
+     */
+    public synchronized int getActiveSources()
+        {
+        return _threads.size();
+        }
+    
+    
+    /** Returns the number of parsed messages waiting for the consumer.
+     * 
+     * @return the number of messages queued.
+     */
+    public int getQueuedMessages()
+        {
+        return _queueCapacity - _queueSpace.availablePermits();
+        }
+    
+    
+    /** Starts reading a stream of many messages, such as a file on a
+     * share or a socket feed, using a framer to split it into messages.
+     * The stream is closed when it has been read.  A message longer than
+     * the framer's getMaximumMessageLength() is skipped and reported as
+     * an error, so a feed that loses its separators cannot exhaust memory.
+     * 
+     * @param Name the name reported with each message.
+     * @param Stream the stream to read.
+     * @param Framer the framer for the stream's format.
+     */
+    public void addSource(String Name,InputStream Stream,MessageFramer Framer)
+        {
+        final MessageFileReader reader = new MessageFileReader(Stream,new ThrottledFramer(Framer));
+        start(Name,Framer.getFormat(),new Callable<MessageParseResults>()
+            {
+            public MessageParseResults call() throws Exception
+                {
+                return reader.hasNext() ? reader.next() : null;
+                }
+            },reader);
+        }
+    
+    
+    /** Starts reading a source that hands over one message at a time,
+     * such as a queue.  Source is called until it returns null, and each
+     * message it returns is parsed with MessageDispatcher, so a source may
+     * mix formats.
+     * 
+     * @param Name the name reported with each message.
+     * @param Source returns the next message, blocking until there is one,
+     * or null when there are no more.
+     */
+    public void addSource(String Name,final Callable<? extends CharSequence> Source)
+        {
+        start(Name,MessageFormat.UNKNOWN,new Callable<MessageParseResults>()
+            {
+            public MessageParseResults call() throws Exception
+                {
+                CharSequence message = Source.call();
+                if (message == null)
+                    return null;
+                
+                acquireParsePermit();
+                try
+                    {
+                    return MessageDispatcher.parseMessage(message);
+                    }
+                finally
+                    {
+                    _parsePermits.release();
+                    }
+                }
+            },null);
+        }
+    
+    
+    /** Stops the service from taking new sources.  The sources already
+     * added are read to the end, after which take() returns null.
+     */
+    public void shutdown()
+        {
+        synchronized (this)
+            {
+            if (_shutdown)
+                return;
+            _shutdown = true;
+            if (!_threads.isEmpty())
+                return;
+            }
+        _queue.add(END_OF_SOURCES);
+        }
+    
+    
+    /** Waits for the next parsed message.
+     * 
+     * @return the next message, or null once the service has been shut
+     * down and every source has finished.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public ParsedMessage take() throws InterruptedException
+        {
+        ParsedMessage message = _queue.take();
+        if (message == END_OF_SOURCES)
+            {
+            // leave the marker for any other consumer
+            _queue.add(END_OF_SOURCES);
+            return null;
+            }
+        _queueSpace.release();
+        return message;
+        }
+    
+    
+    /** Shuts the service down and stops the sources that are still
+     * running, without waiting for them to finish reading.  Each source
+     * is interrupted and its stream is closed, since an interrupt does not
+     * wake a thread blocked reading a socket.  Failures that closing causes
+     * are not reported.
+     */
+    public void close()
+        {
+        shutdown();
+        List<Map.Entry<Thread,Closeable>> sources;
+        synchronized (this)
+            {
+            _closed = true;
+            sources = new ArrayList<Map.Entry<Thread,Closeable>>(_threads.entrySet());
+            }
+        for (Map.Entry<Thread,Closeable> source : sources)
+            {
+            source.getKey().interrupt();
+            if (source.getValue() != null)
+                {
+                try
+                    {
+                    source.getValue().close();
+                    }
+                catch (IOException ee)
+                    {
+                    }
+                }
+            }
+        }
+     
+     
+    /** Starts the thread that reads a source and queues its messages.
+     * 
+     * @param Name the name of the source.
+     * @param Format the format reported if the source fails.
+     * @param Next returns the results of the next message or null at the end.
+     * @param Resource what to close when the source is done, or null.
+     */
+    private void start(final String Name,final MessageFormat Format,final Callable<MessageParseResults> Next,final Closeable Resource)
+        {
+        Runnable task = new Runnable()
+            {
+            public void run()
+                {
+                try
+                    {
+                    MessageParseResults results;
+                    while ((results = Next.call()) != null)
+                        queue(new ParsedMessage(Name,results));
+                    }
+                catch (InterruptedException | InterruptedIOException ee)
+                    {
+                    // closed while reading
+                    }
+                catch (Exception ee)
+                    {
+                    if (_closed || ee.getCause() instanceof InterruptedIOException)
+                        return;
+                    List<String> errors = new ArrayList<String>(1);
+                    errors.add(ParseSupport.sentence("Source " + Name + " failed: " + ee));
+                    try
+                        {
+                        queue(new ParsedMessage(Name,new MessageParseResults(null,new ArrayList<Field>(),errors,Format)));
+                        }
+                    catch (InterruptedException ie)
+                        {
+                        }
+                    }
+                finally
+                    {
+                    if (Resource != null)
+                        {
+                        try
+                            {
+                            Resource.close();
+                            }
+                        catch (IOException ee)
+                            {
+                            }
+                        }
+                    finished(Thread.currentThread());
+                    }
+                }
+            };
+        
+        synchronized (this)
+            {
+            if (_shutdown)
+                throw new IllegalStateException("The service has been shut down.");
+            Thread thread = _threadFactory.newThread(task);
+            _threads.put(thread,Resource);
+            thread.start();
+            }
+        }
+    
+    
+    /** Waits for room in the queue and adds a message to it. */
+    private void queue(ParsedMessage Message) throws InterruptedException
+        {
+        _queueSpace.acquire();
+        _queue.add(Message);
+        }
+    
+    
+    /** Waits for a parse permit, turning an interrupt into an I/O error
+     * so it can be thrown from a framer.
+     */
+    private void acquireParsePermit() throws InterruptedIOException
+        {
+        try
+            {
+            _parsePermits.acquire();
+            }
+        catch (InterruptedException ee)
+            {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to parse.");
+            }
+        }
+    
+    
+    /** Removes a source's thread, marking the end of the messages if it
+     * was the last source after a shutdown.
+     */
+    private void finished(Thread Source)
+        {
+        synchronized (this)
+            {
+            _threads.remove(Source);
+            if (!_shutdown || !_threads.isEmpty())
+                return;
+            }
+        _queue.add(END_OF_SOURCES);
+        }
+    
+    
+    /** Looks up Thread.ofVirtual().factory() by reflection, so that the
+     * service still runs on JVMs that do not have virtual threads.
+     * 
+     * @return the virtual thread factory or null if there is none.
+     */
+    static private ThreadFactory virtualThreadFactory()
+        {
+        try
+            {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder").getMethod("name",String.class,long.class).invoke(builder,"message-source-",0L);
+            return (ThreadFactory)Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            }
+        catch (ReflectiveOperationException | RuntimeException ee)
+            {
+            return null;
+            }
+        }
+    
+    
+    /** Passes everything through to another framer, but holds a parse
+     * permit while a message is parsed.
+     */
+    private class ThrottledFramer extends MessageFramer
+        {
+        private MessageFramer _framer;
+        
+        private ThrottledFramer(MessageFramer Framer)
+            {
+            _framer = Framer;
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see com.chrislaforetsoftware.util.MessageFramer#frame(java.nio.ByteBuffer, int, int, boolean, int[])
+         */
+        @Override
+        public int frame(ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,int [] Span)
+            {
+            return _framer.frame(Buffer,From,Limit,EndOfInput,Span);
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see com.chrislaforetsoftware.util.MessageFramer#resync(java.nio.ByteBuffer, int, int)
+         */
+        @Override
+        public int resync(ByteBuffer Buffer,int From,int Limit)
+            {
+            return _framer.resync(Buffer,From,Limit);
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see com.chrislaforetsoftware.util.MessageFramer#countsLines()
+         */
+        @Override
+        public boolean countsLines()
+            {
+            return _framer.countsLines();
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see com.chrislaforetsoftware.util.MessageFramer#getMaximumMessageLength()
+         */
+        @Override
+        public int getMaximumMessageLength()
+            {
+            return _framer.getMaximumMessageLength();
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see com.chrislaforetsoftware.util.MessageFramer#getFormat()
+         */
+        @Override
+        public MessageFormat getFormat()
+            {
+            return _framer.getFormat();
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see com.chrislaforetsoftware.util.MessageFramer#parse(java.nio.ByteBuffer, int, int)
+         */
+        @Override
+        public MessageParseResults parse(ByteBuffer Buffer,int Offset,int Length) throws IOException
+            {
+            acquireParsePermit();
+            try
+                {
+                return _framer.parse(Buffer,Offset,Length);
+                }
+            finally
+                {
+                _parsePermits.release();
+                }
+            }
+        }
+    }
@@ -0,0 +1,161 @@
+/* MessageDispatcherBenchmark.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.dispatch.benchmarks;
+ 
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+ 
+import com.chrislaforetsoftware.chips.message.ChipsMessageParser;
+import com.chrislaforetsoftware.dispatch.MessageDispatcher;
+import com.chrislaforetsoftware.fed.message.FedWireMessageParser;
+import com.chrislaforetsoftware.swift.message.SwiftMessageParser;
+import com.chrislaforetsoftware.util.BenchmarkTimer;
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Measures what MessageDispatcher costs on a mixed feed of SWIFT,
+ * FedWire and CHIPS messages: the sniffing on its own, over Strings and
+ * over byte buffers, then dispatching against trying each parser in turn
+ * until one reports no errors.
+ * <p>
+ * Run with: java com.chrislaforetsoftware.dispatch.benchmarks.MessageDispatcherBenchmark [rounds]
+ */
+ 
+public class MessageDispatcherBenchmark
+    {
+    static private String [] _messages =
+        {
+        "{1:F01ABCDUS10AXXX0000000000}{2:I202MNOPUS40HXYZX}{4:\r\n" +
+            ":20:101101012345678A\r\n" +
+            ":21:A10112090QQ1-150\r\n" +
+            ":32A:101101USD10100,50\r\n" +
+            ":52A:ABCDCHAAXXX\r\n" +
+            ":58A:QRSTJP90MNO\r\n" +
+            ":72:/REC//DEDUCT/\r\n" +
+            "-}{5:{MAC:41720873}{CHK:123456789ABC}}",
+        "{1500}0222000212T\r\n" +
+            "{1510}1000\r\n" +
+            "{1520}20101122I1B78A1R000002\r\n" +
+            "{2000}000000000100\r\n" +
+            "{3100}999999999SOME BANKS INC\r\n" +
+            "{3400}888888888ANOTHER BANKCO NA\r\n" +
+            "{3600}CTR\r\n" +
+            "{5000}D000000123456789\r\n" +
+            "FANCYTOWN ENERGY COMPANY L.P.\r\n" +
+            "{6000}FANCYTOWN ENERGY",
+        "[031] 01 19920508 0509 1 03 125956\r\n" +
+            "SSN: 0045348, ISN: 001673, OSN: 003406\r\n" +
+            "[221] 0008 B\r\n" +
+            "[260] 000220769618\r\n" +
+            "[270] 001663\r\n" +
+            "[320] 74300T743013042\r\n" +
+            "[412] D 10990765 CITIBANK, LONDON, ENGLAND\r\n" +
+            "[422] B UBSWCHZH80A",
+        };
+     
+    /** Runs the benchmark.
+     * 
+     * @param args optionally the number of passes over the messages in each round.
+     * @throws Exception if a message cannot be parsed.
+     */
+    static public void main(String [] args) throws Exception
+        {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final int count = rounds * _messages.length;
+         
+        final ByteCharSequence [] buffers = new ByteCharSequence[_messages.length];
+        for (int index = 0; index < _messages.length; index++)
+            {
+            byte [] bytes = _messages[index].getBytes("ISO-8859-1");
+            buffers[index] = new ByteCharSequence(ByteBuffer.allocateDirect(bytes.length).put(bytes),0,bytes.length);
+            }
+         
+        BenchmarkTimer.time("MessageFormat.sniff(String)",count,new Callable<Object>()
+            {
+            public Object call()
+                {
+                int total = 0;
+                for (int round = 0; round < rounds; round++)
+                    {
+                    for (String message : _messages)
+                        total += MessageFormat.sniff(message).ordinal();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("MessageFormat.sniff(direct ByteBuffer)",count,new Callable<Object>()
+            {
+            public Object call()
+                {
+                int total = 0;
+                for (int round = 0; round < rounds; round++)
+                    {
+                    for (ByteCharSequence message : buffers)
+                        total += MessageFormat.sniff(message).ordinal();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("MessageDispatcher.parseMessage",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                int total = 0;
+                for (int round = 0; round < rounds; round++)
+                    {
+                    for (String message : _messages)
+                        total += MessageDispatcher.parseMessage(message).fieldCount();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("Each parser in turn until one succeeds",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                int total = 0;
+                for (int round = 0; round < rounds; round++)
+                    {
+                    for (String message : _messages)
+                        {
+                        MessageParseResults results = SwiftMessageParser.parseMessage(message);
+                        if (results.errorCount() != 0)
+                            results = FedWireMessageParser.parseMessage(message);
+                        if (results.errorCount() != 0)
+                            results = ChipsMessageParser.parseMessage(message);
+                        total += results.fieldCount();
+                        }
+                    }
+                return total;
+                }
+            });
+        }
+    }
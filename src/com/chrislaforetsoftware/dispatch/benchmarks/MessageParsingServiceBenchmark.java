@@ -0,0 +1,165 @@
+/* MessageParsingServiceBenchmark.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.dispatch.benchmarks;
+ 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+ 
+import com.chrislaforetsoftware.dispatch.MessageDispatcher;
+import com.chrislaforetsoftware.dispatch.MessageParsingService;
+import com.chrislaforetsoftware.util.BenchmarkTimer;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Compares MessageParsingService with a fixed thread pool when
+ * thousands of slow feeds are read at once.  Each feed blocks for a
+ * millisecond before every message, as a socket or a file share would, and
+ * the parsed messages go through a bounded queue to a single consumer in
+ * both cases.  The fixed pool can only wait on as many feeds as it has
+ * threads, while the service waits on all of them.
+ * <p>
+ * Run with: java com.chrislaforetsoftware.dispatch.benchmarks.MessageParsingServiceBenchmark [feeds] [messages per feed] [pool threads]
+ * <p>
+ * Virtual threads are only used on a JVM that has them (Java 21 or later);
+ * otherwise the service runs one platform thread per feed, which the
+ * output notes.
+ */
+ 
+public class MessageParsingServiceBenchmark
+    {
+    static private final int QUEUE_CAPACITY = 1024;
+    
+    static private final String MESSAGE = "{1500}0222000212T\r\n" +
+            "{1510}1000\r\n" +
+            "{1520}20101122I1B78A1R000002\r\n" +
+            "{2000}000000000100\r\n" +
+            "{3100}999999999SOME BANKS INC\r\n" +
+            "{3400}888888888ANOTHER BANKCO NA\r\n" +
+            "{3600}CTR\r\n" +
+            "{5000}D000000123456789\r\n" +
+            "FANCYTOWN ENERGY COMPANY L.P.\r\n" +
+            "{6000}FANCYTOWN ENERGY";
+    
+    /** A feed that blocks for a millisecond before each message. */
+    static private class SlowFeed implements Callable<String>
+        {
+        private int _remaining;
+        
+        private SlowFeed(int Messages)
+            {
+            _remaining = Messages;
+            }
+        
+        
+        public String call() throws InterruptedException
+            {
+            if (_remaining == 0)
+                return null;
+            --_remaining;
+            Thread.sleep(1);
+            return MESSAGE;
+            }
+        }
+    
+    
+    /** Runs the benchmark.
+     * 
+     * @param args optionally the number of feeds, the messages per feed and
+     * the number of threads in the fixed pool.
+     * @throws Exception if a round fails.
+     */
+    static public void main(String [] args) throws Exception
+        {
+        final int feeds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        final int messages = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final int poolThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4 * Runtime.getRuntime().availableProcessors();
+        
+        boolean virtual = new MessageParsingService(QUEUE_CAPACITY).isUsingVirtualThreads();
+        System.out.println(feeds + " feeds of " + messages + " messages, " + 
+                (virtual ? "virtual threads" : "no virtual threads in this JVM, one platform thread per feed"));
+        
+        BenchmarkTimer.time("MessageParsingService",feeds * messages,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                MessageParsingService service = new MessageParsingService(QUEUE_CAPACITY);
+                for (int feed = 0; feed < feeds; feed++)
+                    service.addSource("feed" + feed,new SlowFeed(messages));
+                service.shutdown();
+                
+                int fields = 0;
+                MessageParsingService.ParsedMessage message;
+                while ((message = service.take()) != null)
+                    fields += message.getResults().fieldCount();
+                return fields;
+                }
+            });
+        
+        BenchmarkTimer.time("Fixed pool of " + poolThreads + " threads",feeds * messages,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                final BlockingQueue<MessageParseResults> queue = new ArrayBlockingQueue<MessageParseResults>(QUEUE_CAPACITY);
+                ExecutorService pool = Executors.newFixedThreadPool(poolThreads);
+                try
+                    {
+                    for (int feed = 0; feed < feeds; feed++)
+                        {
+                        final SlowFeed source = new SlowFeed(messages);
+                        pool.execute(new Runnable()
+                            {
+                            public void run()
+                                {
+                                try
+                                    {
+                                    String message;
+                                    while ((message = source.call()) != null)
+                                        queue.put(MessageDispatcher.parseMessage(message));
+                                    }
+                                catch (Exception ee)
+                                    {
+                                    throw new RuntimeException(ee);
+                                    }
+                                }
+                            });
+                        }
+                    
+                    int fields = 0;
+                    for (int count = 0; count < feeds * messages; count++)
+                        fields += queue.take().fieldCount();
+                    return fields;
+                    }
+                finally
+                    {
+                    pool.shutdown();
+                    }
+                }
+            });
+        }
+    }
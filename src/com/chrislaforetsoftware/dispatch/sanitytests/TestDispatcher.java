@@ -0,0 +1,221 @@
+/* TestDispatcher.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.dispatch.sanitytests;
+ 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+ 
+import com.chrislaforetsoftware.chips.message.ChipsMessage;
+import com.chrislaforetsoftware.chips.sanitytests.TestChipsParser;
+import com.chrislaforetsoftware.dispatch.MessageDispatcher;
+import com.chrislaforetsoftware.dispatch.MessageParsingService;
+import com.chrislaforetsoftware.fed.message.FedWireBatchReader;
+import com.chrislaforetsoftware.fed.message.FedWireFramer;
+import com.chrislaforetsoftware.fed.message.FedWireMessage;
+import com.chrislaforetsoftware.fed.sanitytests.TestFedParser;
+import com.chrislaforetsoftware.swift.message.SwiftMessage;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+import junit.framework.TestCase;
+ 
+/** Test cases for picking the parser from the start of a message.
+ */
+ 
+public class TestDispatcher extends TestCase
+    {
+    static private String SwiftMessage = "{1:F01ABCDUS10AXXX0000000000}{2:I202MNOPUS40HXYZX}{4:\r\n" +
+            ":20:101101012345678A\r\n" +
+            ":32A:101101USD10100,50\r\n" +
+            "-}";
+     
+    public void testSniff() throws Exception
+        {
+        assertEquals(MessageFormat.sniff(SwiftMessage),MessageFormat.SWIFT);
+        assertEquals(MessageFormat.sniff(TestFedParser.GoodFedMessage),MessageFormat.FEDWIRE);
+        assertEquals(MessageFormat.sniff(TestChipsParser.GoodChipsMessage),MessageFormat.CHIPS);
+        assertEquals(MessageFormat.sniff("\r\n  {1:"),MessageFormat.SWIFT);
+        assertEquals(MessageFormat.sniff("{150X}1"),MessageFormat.UNKNOWN);
+        assertEquals(MessageFormat.sniff("[26]"),MessageFormat.UNKNOWN);
+        assertEquals(MessageFormat.sniff("{2:I202}"),MessageFormat.UNKNOWN);
+        assertEquals(MessageFormat.sniff(""),MessageFormat.UNKNOWN);
+        char [] blank = new char[MessageFormat.MAXIMUM_LEADING_SPACE];
+        Arrays.fill(blank,' ');
+        assertEquals(MessageFormat.sniff(new String(blank) + "{1:"),MessageFormat.SWIFT);
+        assertEquals(MessageFormat.sniff(new String(blank) + " {1:"),MessageFormat.UNKNOWN);
+        }
+     
+     
+    public void testDispatch() throws Exception
+        {
+        MessageParseResults results = MessageDispatcher.parseMessage(SwiftMessage);
+        assertEquals(results.getFormat(),MessageFormat.SWIFT);
+        assertEquals(((SwiftMessage)results.getMessage()).getMT(),"202");
+         
+        results = MessageDispatcher.parseMessage(TestFedParser.GoodFedMessage);
+        assertEquals(results.getFormat(),MessageFormat.FEDWIRE);
+        assertEquals(((FedWireMessage)results.getMessage()).getBusinessFunctionCode(),"CTR");
+         
+        byte [] bytes = TestChipsParser.GoodChipsMessage.getBytes("ISO-8859-1");
+        results = MessageDispatcher.parseMessage(ByteBuffer.wrap(bytes),0,bytes.length);
+        assertEquals(results.getFormat(),MessageFormat.CHIPS);
+        assertEquals(((ChipsMessage)results.getMessage()).getAmount(),"000220769618");
+         
+        results = MessageDispatcher.parseMessage("HELLO");
+        assertEquals(results.getFormat(),MessageFormat.UNKNOWN);
+        assertNull(results.getMessage());
+        assertEquals(results.errorCount(),1);
+        }
+     
+     
+    public void testParsingService() throws Exception
+        {
+        final String fedBatch = TestFedParser.GoodFedMessage + "\r\n\r\n" + TestFedParser.GoodFedMessage + "\r\n\r\n" + TestFedParser.GoodFedMessage;
+         
+        // a tiny queue makes the sources wait on the consumer
+        MessageParsingService service = new MessageParsingService(2);
+        assertEquals(service.getQueueCapacity(),2);
+        for (int index = 0; index < 10; index++)
+            {
+            service.addSource("fed" + index,new ByteArrayInputStream(fedBatch.getBytes("ISO-8859-1")),new FedWireFramer());
+            final Iterator<String> messages = Arrays.asList(SwiftMessage,TestChipsParser.GoodChipsMessage).iterator();
+            service.addSource("queue" + index,new Callable<String>()
+                {
+                public String call()
+                    {
+                    return messages.hasNext() ? messages.next() : null;
+                    }
+                });
+            }
+        service.addSource("broken",new Callable<String>()
+            {
+            public String call() throws Exception
+                {
+                throw new IOException("connection reset");
+                }
+            });
+        service.shutdown();
+         
+        Map<String,List<MessageFormat>> formats = new HashMap<String,List<MessageFormat>>();
+        MessageParsingService.ParsedMessage message;
+        while ((message = service.take()) != null)
+            {
+            assertTrue(service.getQueuedMessages() <= 2);
+            if (!formats.containsKey(message.getSource()))
+                formats.put(message.getSource(),new ArrayList<MessageFormat>());
+            formats.get(message.getSource()).add(message.getResults().getFormat());
+            if (message.getSource().equals("broken"))
+                assertEquals(message.getResults().getErrors().get(0),"Source broken failed: java.io.IOException: connection reset.");
+            else
+                assertEquals(message.getResults().errorCount(),0);
+            }
+        assertNull(service.take());
+        assertEquals(service.getActiveSources(),0);
+         
+        assertEquals(formats.size(),21);
+        assertEquals(formats.get("fed3"),Arrays.asList(MessageFormat.FEDWIRE,MessageFormat.FEDWIRE,MessageFormat.FEDWIRE));
+        assertEquals(formats.get("queue7"),Arrays.asList(MessageFormat.SWIFT,MessageFormat.CHIPS));
+        assertEquals(formats.get("broken"),Arrays.asList(MessageFormat.UNKNOWN));
+        }
+     
+     
+    public void testRunOnSource() throws Exception
+        {
+        // a feed that lost its blank line: the run-on message is skipped, not buffered
+        char [] runOn = new char[FedWireBatchReader.MAXIMUM_MESSAGE_LENGTH * 2];
+        Arrays.fill(runOn,'X');
+        String feed = TestFedParser.GoodFedMessage + "\r\n\r\n" + new String(runOn) + "\r\n\r\n" + TestFedParser.GoodFedMessage;
+         
+        MessageParsingService service = new MessageParsingService(4);
+        service.addSource("feed",new ByteArrayInputStream(feed.getBytes("ISO-8859-1")),new FedWireFramer());
+        service.shutdown();
+         
+        List<MessageParseResults> results = new ArrayList<MessageParseResults>();
+        MessageParsingService.ParsedMessage message;
+        while ((message = service.take()) != null)
+            results.add(message.getResults());
+        assertEquals(results.size(),3);
+        assertNotNull(results.get(0).getMessage());
+        assertNull(results.get(1).getMessage());
+        assertEquals(results.get(1).getErrors().get(0),"Message is longer than the maximum of " + FedWireBatchReader.MAXIMUM_MESSAGE_LENGTH + " bytes and was skipped.");
+        assertNotNull(results.get(2).getMessage());
+        assertEquals(results.get(2).errorCount(),0);
+        }
+     
+     
+    public void testCloseBlockedSource() throws Exception
+        {
+        // like a socket: an interrupt does not wake the read, only closing does
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        InputStream feed = new InputStream()
+            {
+            public int read() throws IOException
+                {
+                reading.countDown();
+                while (closed.getCount() > 0)
+                    {
+                    try
+                        {
+                        closed.await();
+                        }
+                    catch (InterruptedException ee)
+                        {
+                        }
+                    }
+                throw new IOException("Socket closed");
+                }
+             
+            public void close()
+                {
+                closed.countDown();
+                }
+            };
+         
+        MessageParsingService service = new MessageParsingService(2);
+        service.addSource("feed",feed,new FedWireFramer());
+        assertTrue(reading.await(5,TimeUnit.SECONDS));
+        service.close();
+         
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getActiveSources() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(service.getActiveSources(),0);
+        assertNull(service.take());
+        }
+    }
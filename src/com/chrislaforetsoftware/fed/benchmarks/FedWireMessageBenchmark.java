@@ -0,0 +1,233 @@
+/* FedWireMessageBenchmark.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.fed.benchmarks;
+ 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+ 
+import com.chrislaforetsoftware.fed.message.FedWireMessage;
+import com.chrislaforetsoftware.fed.message.FedWireMessageParser;
+import com.chrislaforetsoftware.fed.message.FedWireParser;
+import com.chrislaforetsoftware.util.BenchmarkTimer;
+import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Compares building a FedWireMessage eagerly, with every mandatory
+ * field checked, against building it lazily and only reading the fields
+ * a router needs ({3600} and {2000}), and parsing with the static parser
+ * against a reused FedWireParser.  The messages have 25 to 39 fields.
+ * <p>
+ * Run with: java com.chrislaforetsoftware.fed.benchmarks.FedWireMessageBenchmark [messages]
+ */
+ 
+public class FedWireMessageBenchmark
+    {
+    static private String [] _mandatory =
+        {
+        "{1500}0222000212T",
+        "{1510}1000",
+        "{1520}20101122I1B78A1R000002",
+        "{2000}000000000100",
+        "{3100}999999999SOME BANKS INC",
+        "{3400}888888888ANOTHER BANKCO NA",
+        "{3600}CTR",
+        };
+     
+    static private String [] _optional =
+        {
+        "{1100}02T 3",
+        "{1110}11221518FT01",
+        "{1120}20101122QMGFT01500000211221518FT01",
+        "{1130}W172BEYOND CUTOFF",
+        "{3000}1011220001",
+        "{3320}2010112200000101",
+        "{3500}20101121I1B78A1R000001",
+        "{3700}SHARED 00000000",
+        "{3710}USD000000000100,00",
+        "{3720}000001,00000",
+        "{4000}F123456789\r\nINTERMEDIARY BANK\r\nNEW YORK NY",
+        "{4100}F987654321\r\nBENEFICIARY BANK NA\r\n1 MAIN ST\r\nCHICAGO IL",
+        "{4200}D01230123456789\r\nFANCYTOWN ENERGY COMPANY L.P.\r\n200 S RAINER ST STE 1901\r\nLOS ANGELES          CA 90071-0192",
+        "{4320}ABC0099123123123",
+        "{4400}D000000987654321",
+        "{5000}D000000123456789\r\nFANCYTOWN ENERGY COMPANY L.P.\r\n200 S RAINER ST STE 1901\r\nLOS ANGELES          CA 90071-0192",
+        "{5100}B ABCDUS33XXX\r\nORIGINATOR BANK",
+        "{5200}F111111111\r\nINSTRUCTING BANK",
+        "{5400}000012345678",
+        "{6000}FANCYTOWN ENERGY\r\nINVOICE 2010-1122",
+        "{6100}RFB REFERENCE 123",
+        "{6110}PAYMENT FOR SERVICES",
+        "{6200}RECEIVER INFO",
+        "{6210}PHNCALL ON ARRIVAL",
+        "{6300}INTERMEDIARY INFO",
+        "{6310}WRE",
+        "{6400}BENEFICIARY FI INFO",
+        "{6410}LTR",
+        "{6420}BENEFICIARY INFO",
+        "{6430}BENEFICIARY METHOD",
+        "{6500}FI TO FI INFO",
+        "{9000}SERVICE MESSAGE TEXT",
+        };
+     
+    /** Runs the benchmark.
+     * 
+     * @param args optionally the number of messages in each round.
+     * @throws Exception if a message cannot be parsed.
+     */
+    static public void main(String [] args) throws Exception
+        {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final String [] messages = buildMessages(count,new Random(20101122L));
+         
+        final List<List<Field>> fieldLists = new ArrayList<List<Field>>(count);
+        for (String message : messages)
+            fieldLists.add(FedWireMessageParser.parseMessage(message).getFields());
+         
+        BenchmarkTimer.time("FedWireMessage eager construction",count,new Callable<Object>()
+            {
+            public Object call()
+                {
+                long total = 0;
+                for (List<Field> fields : fieldLists)
+                    {
+                    FedWireMessage message = new FedWireMessage(fields,new ArrayList<String>());
+                    total += message.getBusinessFunctionCode().length() + message.getAmount().length();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("FedWireMessage lazy construction and route",count,new Callable<Object>()
+            {
+            public Object call()
+                {
+                long total = 0;
+                for (List<Field> fields : fieldLists)
+                    {
+                    FedWireMessage message = new FedWireMessage(fields);
+                    total += message.getBusinessFunctionCode().length() + message.getAmount().length();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("FedWireMessageParser.parseMessage",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (String text : messages)
+                    {
+                    FedWireMessage message = (FedWireMessage)FedWireMessageParser.parseMessage(text).getMessage();
+                    total += message.getBusinessFunctionCode().length() + message.getAmount().length();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("FedWireMessageParser.parseMessageLazily and route",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (String text : messages)
+                    {
+                    MessageParseResults results = FedWireMessageParser.parseMessageLazily(text);
+                    FedWireMessage message = (FedWireMessage)results.getMessage();
+                    Field function = message.getField("3600");
+                    if (function != null && function.valueEquals("CTR"))
+                        total += message.getField("2000").getValueLength();
+                    }
+                return total;
+                }
+            });
+         
+        BenchmarkTimer.time("FedWireParser.parseMessage on a reused parser",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                FedWireParser parser = FedWireParser.forCurrentThread();
+                long total = 0;
+                for (String text : messages)
+                    {
+                    FedWireMessage message = (FedWireMessage)parser.parseMessage(text).getMessage();
+                    total += message.getBusinessFunctionCode().length() + message.getAmount().length();
+                    }
+                return total;
+                }
+            });
+        }
+     
+     
+    /** Builds messages holding all of the mandatory fields and a random
+     * selection of the optional ones, in tag order.
+     * 
+     * @param Count the number of messages to build.
+     * @param Random the source of the field selection.
+     * @return the messages.
+     */
+    static private String [] buildMessages(int Count,Random Random)
+        {
+        String [] messages = new String[Count];
+        for (int index = 0; index < Count; index++)
+            {
+            int wanted = 25 + Random.nextInt(15) - _mandatory.length;
+            boolean [] chosen = new boolean[_optional.length];
+            for (int picked = 0; picked < wanted; )
+                {
+                int slot = Random.nextInt(_optional.length);
+                if (!chosen[slot])
+                    {
+                    chosen[slot] = true;
+                    ++picked;
+                    }
+                }
+             
+            List<String> fields = new ArrayList<String>(40);
+            for (String field : _mandatory)
+                fields.add(field);
+            for (int slot = 0; slot < _optional.length; slot++)
+                {
+                if (chosen[slot])
+                    fields.add(_optional[slot]);
+                }
+            fields.sort(null);
+             
+            StringBuilder sb = new StringBuilder(2048);
+            for (String field : fields)
+                {
+                if (sb.length() > 0)
+                    sb.append("\r\n");
+                sb.append(field);
+                }
+            messages[index] = sb.toString();
+            }
+        return messages;
+        }
+    }
@@ -0,0 +1,79 @@
+/* FedWireBatchReader.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.fed.message;
+ 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+ 
+import com.chrislaforetsoftware.util.MessageFileReader;
+ 
+/** Reads the messages of a FedWire download file, where the messages
+ * are separated by blank lines, one at a time and in bounded memory.
+ * The "Line n:" errors of each message count from the start of the
+ * message as they do for FedWireMessageParser; getMessageLine() gives the
+ * line of the file the message starts on and getFileErrors() restates
+ * the errors against the file.  A message longer than
+ * MAXIMUM_MESSAGE_LENGTH is skipped and reported as an error.
+ */
+ 
+public class FedWireBatchReader extends MessageFileReader
+    {
+    static public final int MAXIMUM_MESSAGE_LENGTH = 1024 * 1024;
+     
+    /** Opens a FedWire file and reads it through memory-mapped windows.
+     * 
+     * @param File the FedWire file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public FedWireBatchReader(Path File) throws IOException
+        {
+        super(File,new FedWireFramer());
+        }
+     
+     
+    /** Reads a FedWire file from a channel through memory-mapped windows.
+     * 
+     * @param Channel the channel to read from its current position.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public FedWireBatchReader(FileChannel Channel) throws IOException
+        {
+        super(Channel,new FedWireFramer(),DEFAULT_WINDOW_SIZE);
+        }
+     
+     
+    /** Reads a FedWire file from a stream.
+     * 
+     * @param Stream the stream to read.
+     */
+    public FedWireBatchReader(InputStream Stream)
+        {
+        super(Stream,new FedWireFramer());
+        }
+    }
@@ -0,0 +1,114 @@
+/* FedWireFramer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.fed.message;
+ 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+ 
+import com.chrislaforetsoftware.util.BlankLineFramer;
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Frames the blank-line separated messages of a FedWire download
+ * file and parses each one with FedWireMessageParser.
+ */
+ 
+public class FedWireFramer extends BlankLineFramer
+    {
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#getFormat()
+     */
+    @Override
+    public MessageFormat getFormat()
+        {
+        return MessageFormat.FEDWIRE;
+        }
+     
+     
+    /** Returns the limit that FedWireBatchReader sets, so any reader of this
+     * format skips a run-on message rather than holding it in memory.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#getMaximumMessageLength()
+     */
+    @Override
+    public int getMaximumMessageLength()
+        {
+        return FedWireBatchReader.MAXIMUM_MESSAGE_LENGTH;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#parse(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public MessageParseResults parse(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return FedWireMessageParser.parseMessage(Buffer,Offset,Length);
+        }
+     
+     
+    /** Tokenizes the message and indexes its fields, leaving the field
+     * checks to validate().
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#parseStructure(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return FedWireMessageParser.parseMessageLazily(new ByteCharSequence(Buffer,Offset,Length));
+        }
+     
+     
+    /** Returns a FedWireParser that tokenizes and indexes each message
+     * as parseStructure() does.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#newReusableParser()
+     */
+    @Override
+    public ReusableParser newReusableParser()
+        {
+        final FedWireParser parser = new FedWireParser();
+        return new ReusableParser()
+            {
+            public MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length)
+                {
+                return parser.parseMessageLazily(Buffer,Offset,Length);
+                }
+            };
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#validate(com.chrislaforetsoftware.util.MessageParseResults)
+     */
+    @Override
+    public void validate(MessageParseResults Results)
+        {
+        FedWireMessageParser.validateMessage(Results);
+        }
+    }
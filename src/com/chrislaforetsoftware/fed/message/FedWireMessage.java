@@ -26,11 +26,16 @@
  
 package com.chrislaforetsoftware.fed.message;
  
-import java.util.HashMap;
 import java.util.List;
  
+import com.chrislaforetsoftware.util.Amount;
 import com.chrislaforetsoftware.util.CodeLookup;
+import com.chrislaforetsoftware.util.CodeTable;
+import com.chrislaforetsoftware.util.CurrencyCodes;
+import com.chrislaforetsoftware.util.ErrorList;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.FieldIndex;
+import com.chrislaforetsoftware.util.ParseError;
  
 /** Contains a FedWire message.
  * 
@@ -97,111 +102,108 @@ public class FedWireMessage
                 new CodeLookup("DRW","Drawdown Payment"),
                 };
      
-    // mandatory fields
-    private String _senderSupplied;     // {1500}
-    private String _typeCode;           // {1510}
-    private String _subtypeCode;
-    private String _imad;               // {1520} 
-    private String _amount;             // {2000}
-    private String _senderFI;           // {3100}
-    private String _receiverFI;         // {3400}
-    private String _businessFuncCode;   // {3600}
-     
-    // fedwire-appended fields
-    private String _messageDisposition;     // {1100}
-    private String _acceptanceTimestamp;    // {1110}
-    private String _omad;                   // {1120}
-    private String _error;                  // {1130}
-     
-    // additional fields
+    // the lists above compiled for lookup; each may be replaced with a full list
+    private static volatile CodeTable _adviceCodes = new CodeTable(_adviceCode);
+    private static volatile CodeTable _idCodes = new CodeTable(_idCode);
+    private static volatile CodeTable _businessFunctions = new CodeTable(_businessFunction);
+     
+    // FedWire tags are four digits
+    static private final int TAG_WIDTH = 4;
+     
+    // mandatory fields, checked by validate()
+    static private final int [] _mandatoryTags = { 1500, 1510, 1520, 2000, 3100, 3400, 3600 };
+     
     private List<Field> _fields;
-    private HashMap<String,Field> _fieldMap = new HashMap<String,Field>();
+     
+    private FieldIndex _index = new FieldIndex(TAG_WIDTH);
  
     /** Attempts to create a FedWireMessage object from a collection
-     * of fields.
+     * of fields.  Duplicate and missing mandatory fields are reported 
+     * right away.
      * 
      * @param Fields the fields contained in the message.
+     * @param Errors the list to add any errors to.
      */
     public FedWireMessage(List<Field> Fields,List<String> Errors)
+        {
+        this(Fields);
+        validate(Errors);
+        }
+     
+     
+    /** Creates a FedWireMessage that only indexes where each tag is
+     * in the list of fields.  Values are read from the fields when they
+     * are asked for, and nothing is checked until validate() is called,
+     * so routing on a couple of fields such as {3600} and {2000} costs
+     * no more than the lookups themselves.  When a tag is repeated the
+     * first field with that tag is the one used.
+     * 
+     * @param Fields the fields contained in the message.
+     */
+    public FedWireMessage(List<Field> Fields)
+        {
+        index(Fields);
+        }
+     
+     
+    /** Points the message at a new list of fields and indexes them, 
+     * keeping the index from the last message when it is big enough.
+     * This lets FedWireParser reuse one message object.
+     * 
+     * @param Fields the fields contained in the message.
+     */
+    void index(List<Field> Fields)
         {
         _fields = Fields;
+        _index.index(Fields);
+        }
+     
+     
+    /** Checks for duplicate fields and for missing mandatory fields, 
+     * adding the same errors that the two-argument constructor adds.
+     * 
+     * @param Errors the list to add any errors to.
+     * @return true if no errors were found.
+     */
+    public boolean validate(List<String> Errors)
+        {
+        int errorCount = Errors.size();
+        for (int duplicate = 0; duplicate < _index.getDuplicateCount(); duplicate++)
+            ErrorList.add(Errors,ParseError.DUPLICATE_FIELD,_index.getDuplicate(duplicate));
          
-        for (Field field : Fields)
-            {
-            if (_fieldMap.containsKey(field.getTag()))
-                Errors.add("Duplicate field: " + field.getTag() + " exists more than once.");
-            else
-                _fieldMap.put(field.getTag(),field);
-            }
-         
-        // mandatory fields
-        Field match = _fieldMap.get("1500");
-        if (match != null)
-            _senderSupplied = match.getValue();
-        else
-            Errors.add("Missing mandatory field: Field 1500.");
-         
-        match = _fieldMap.get("1510");
-        if (match != null)
+        for (int tag : _mandatoryTags)
             {
-            String value = match.getValue();
-            if (value.length() == 4)
-                {
-                _typeCode = value.substring(0,2);
-                _subtypeCode = value.substring(2);
-                }
-            else
-                Errors.add("Missing Type/Subtype Code: Field 1510");
+            Field match = getField(tag);
+            if (match == null)
+                ErrorList.addTag(Errors,ParseError.MISSING_FIELD,tag,TAG_WIDTH);
+            else if (tag == 1510 && match.getValueLength() != 4)
+                ErrorList.add(Errors,ParseError.MISSING_TYPE_SUBTYPE,match);
             }
-        else
-            Errors.add("Missing mandatory field: Field 1510.");
-         
-        match = _fieldMap.get("1520");
-        if (match != null)
-            _imad = match.getValue();
-        else
-            Errors.add("Missing mandatory field: Field 1520.");
-         
-        match = _fieldMap.get("2000");
-        if (match != null)
-            _amount = match.getValue();
-        else
-            Errors.add("Missing mandatory field: Field 2000.");
-         
-        match = _fieldMap.get("3100");
-        if (match != null)
-            _senderFI = match.getValue();
-        else
-            Errors.add("Missing mandatory field: Field 3100.");
-         
-        match = _fieldMap.get("3400");
-        if (match != null)
-            _receiverFI = match.getValue();
-        else
-            Errors.add("Missing mandatory field: Field 3400.");
-         
-        match = _fieldMap.get("3600");
-        if (match != null)
-            _businessFuncCode = match.getValue();
-        else
-            Errors.add("Missing mandatory field: Field 3600.");
-         
-        // fedwire-appended fields
-        match = _fieldMap.get("1100");
-        if (match != null)
-            _messageDisposition = match.getValue();
-         
-        match = _fieldMap.get("1110");
-        if (match != null)
-            _acceptanceTimestamp = match.getValue();
-         
-        match = _fieldMap.get("1120");
-        if (match != null)
-            _omad = match.getValue();
-         
-        match = _fieldMap.get("1130");
-        if (match != null)
-            _error = match.getValue();
+        return Errors.size() == errorCount;
+        }
+     
+     
+    /** Retrieves the first field with the tag passed in without
+     * copying its value.
+     * 
+     * @param FieldTag the tag (e.g. 3600) to find.
+     * @return the field or null if it does not exist.
+     */
+    public Field getField(String FieldTag)
+        {
+        return _index.get(FieldTag);
+        }
+     
+     
+    /** Retrieves the first field with the four digit tag passed in
+     * without copying its value.
+     * 
+     * @param TagCode the tag (e.g. 3600) to find.
+     * @return the field or null if it does not exist.
+     */
+    public Field getField(int TagCode)
+        {
+        return _index.get(TagCode);
         }
      
      
@@ -211,7 +213,7 @@ public class FedWireMessage
      */
     public String getSenderSuppliedInformation()
         {
-        return _senderSupplied == null ? "" : _senderSupplied;
+        return getFieldValue(1500);
         }
      
      
@@ -221,7 +223,8 @@ public class FedWireMessage
      */
     public String getTypeCode()
         {
-        return _typeCode == null ? "" : _typeCode;
+        String code = getFieldValue(1510);
+        return code.length() == 4 ? code.substring(0,2) : "";
         }
      
      
@@ -231,7 +234,8 @@ public class FedWireMessage
      */
     public String getSubTypeCode()
         {
-        return _subtypeCode == null ? "" : _subtypeCode;
+        String code = getFieldValue(1510);
+        return code.length() == 4 ? code.substring(2) : "";
         }
      
      
@@ -251,7 +255,7 @@ public class FedWireMessage
      */
     public String getIMAD()
         {
-        return _imad == null ? "" : _imad;
+        return getFieldValue(1520);
         }
  
      
@@ -261,7 +265,25 @@ public class FedWireMessage
      */
     public String getAmount()
         {
-        return _amount == null ? "" : _amount;
+        return getFieldValue(2000);
+        }
+     
+     
+    /** Decodes field 2000, twelve digits of cents, into an amount 
+     * without copying the field.
+     * 
+     * @param Into the amount to fill in; it is cleared if the field is missing or malformed.
+     * @return true if the amount was decoded.
+     */
+    public boolean getAmount(Amount Into)
+        {
+        Field field = getField(2000);
+        if (field == null)
+            {
+            Into.clear();
+            return false;
+            }
+        return Into.decodeImplied(field,2,CurrencyCodes.USD);
         }
  
      
@@ -271,7 +293,7 @@ public class FedWireMessage
      */
     public String getSenderFI()
         {
-        return _senderFI == null ? "" : _senderFI;
+        return getFieldValue(3100);
         }
      
      
@@ -296,7 +318,7 @@ public class FedWireMessage
      */
     public String getReceiverFI()
         {
-        return _receiverFI == null ? "" : _receiverFI;
+        return getFieldValue(3400);
         }
  
      
@@ -321,7 +343,7 @@ public class FedWireMessage
      */
     public String getBusinessFunctionCode()
         {
-        return _businessFuncCode == null ? "" : _businessFuncCode;
+        return getFieldValue(3600);
         }
      
      
@@ -331,7 +353,7 @@ public class FedWireMessage
      */
     public String getMessageDisposition()
         {
-        return _messageDisposition == null ? "" : _messageDisposition;
+        return getFieldValue(1100);
         }
      
      
@@ -341,7 +363,7 @@ public class FedWireMessage
      */
     public String getAcceptanceTimeStamp()
         {
-        return _acceptanceTimestamp == null ? "" : _acceptanceTimestamp;
+        return getFieldValue(1110);
         }
      
      
@@ -351,7 +373,7 @@ public class FedWireMessage
      */
     public String getOMAD()
         {
-        return _omad == null ? "" : _omad;
+        return getFieldValue(1120);
         }
      
      
@@ -361,7 +383,7 @@ public class FedWireMessage
      */
     public String getErrorField()
         {
-        return _error == null ? "" : _error;
+        return getFieldValue(1130);
         }
  
      
@@ -372,7 +394,7 @@ public class FedWireMessage
      */
     public boolean doesFieldExist(String FieldTag)
         {
-        return _fieldMap.containsKey(FieldTag);
+        return getField(FieldTag) != null;
         }
      
      
@@ -384,9 +406,21 @@ public class FedWireMessage
      */
     public String getFieldValue(String FieldTag)
         {
-        if (_fieldMap.containsKey(FieldTag))
-            return _fieldMap.get(FieldTag).getValue();
-        return "";
+        Field field = getField(FieldTag);
+        return field == null ? "" : field.getValue();
+        }
+     
+     
+    /** Attempts to return the value attached to a four digit tag
+     * if it is found in the list of fields.
+     * 
+     * @param TagCode the tag (e.g. 1500) to find.
+     * @return the value if found or an empty string if field does not exist.
+     */
+    public String getFieldValue(int TagCode)
+        {
+        Field field = getField(TagCode);
+        return field == null ? "" : field.getValue();
         }
  
      
@@ -397,7 +431,7 @@ public class FedWireMessage
      */
     public String getIntermediaryFI()
         {
-        return getFieldValue("4000");
+        return getFieldValue(4000);
         }
      
      
@@ -425,7 +459,7 @@ public class FedWireMessage
      */
     public String getBeneficiaryFI()
         {
-        return getFieldValue("4100");
+        return getFieldValue(4100);
         }
      
      
@@ -453,7 +487,7 @@ public class FedWireMessage
      */
     public String getBeneficiary()
         {
-        return getFieldValue("4200");
+        return getFieldValue(4200);
         }
      
      
@@ -481,7 +515,7 @@ public class FedWireMessage
      */
     public String getDrawdownDebitAccount()
         {
-        return getFieldValue("4400");
+        return getFieldValue(4400);
         }
      
      
@@ -509,7 +543,7 @@ public class FedWireMessage
      */
     public String getOriginatorFI()
         {
-        return getFieldValue("5100");
+        return getFieldValue(5100);
         }
      
      
@@ -537,7 +571,7 @@ public class FedWireMessage
      */
     public String getOriginator()
         {
-        return getFieldValue("5000");
+        return getFieldValue(5000);
         }
      
      
@@ -565,7 +599,7 @@ public class FedWireMessage
      */
     public String getInstructingFI()
         {
-        return getFieldValue("5200");
+        return getFieldValue(5200);
         }
      
      
@@ -615,12 +649,8 @@ public class FedWireMessage
      */
     public static String lookupAdviceCode(String Code)
         {
-        for (CodeLookup lookup : _adviceCode)
-            {
-            if (lookup.getCode().compareTo(Code) == 0)
-                return lookup.getDescription();
-            }
-        return "";
+        String description = _adviceCodes.getDescription(Code);
+        return description == null ? "" : description;
         }
  
  
@@ -631,12 +661,8 @@ public class FedWireMessage
      */
     public static String lookupIDCode(String Code)
         {
-        for (CodeLookup lookup : _idCode)
-            {
-            if (lookup.getCode().compareTo(Code) == 0)
-                return lookup.getDescription();
-            }
-        return "";
+        String description = _idCodes.getDescription(Code);
+        return description == null ? "" : description;
         }
  
  
@@ -647,11 +673,68 @@ public class FedWireMessage
      */
     public static String lookupBusinessFunction(String Code)
         {
-        for (CodeLookup lookup : _businessFunction)
-            {
-            if (lookup.getCode().compareTo(Code) == 0)
-                return lookup.getDescription();
-            }
-        return "";
+        String description = _businessFunctions.getDescription(Code);
+        return description == null ? "" : description;
+        }
+     
+     
+    /** Replaces the advice codes, for instance with a full list loaded
+     * by CodeTable.load().
+     * 
+     * @param Codes the codes to decode with from now on.
+     */
+    public static void setAdviceCodes(CodeTable Codes)
+        {
+        _adviceCodes = Codes;
+        }
+     
+     
+    /** Retrieves the advice codes in use.
+     * 
+     * @return the codes.
+     */
+    public static CodeTable getAdviceCodes()
+        {
+        return _adviceCodes;
+        }
+     
+     
+    /** Replaces the ID codes.
+     * 
+     * @param Codes the codes to decode with from now on.
+     */
+    public static void setIDCodes(CodeTable Codes)
+        {
+        _idCodes = Codes;
+        }
+     
+     
+    /** Retrieves the ID codes in use.
+     * 
+     * @return the codes.
+     */
+    public static CodeTable getIDCodes()
+        {
+        return _idCodes;
+        }
+     
+     
+    /** Replaces the business function codes.
+     * 
+     * @param Codes the codes to decode with from now on.
+     */
+    public static void setBusinessFunctions(CodeTable Codes)
+        {
+        _businessFunctions = Codes;
+        }
+     
+     
+    /** Retrieves the business function codes in use.
+     * 
+     * @return the codes.
+     */
+    public static CodeTable getBusinessFunctions()
+        {
+        return _businessFunctions;
         }
     }
\ No newline at end of file
@@ -26,15 +26,22 @@
  
 package com.chrislaforetsoftware.fed.message;
  
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
  
-import com.chrislaforetsoftware.fed.util.FedWireField;
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.ErrorList;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageBatchParser;
+import com.chrislaforetsoftware.util.MessageFormat;
 import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.MessageSpliterator;
+import com.chrislaforetsoftware.util.ParseError;
 import com.chrislaforetsoftware.util.ParseSupport;
  
  
@@ -54,185 +61,240 @@ public class FedWireMessageParser
      */
     static public MessageParseResults parseMessage(String Contents) throws IOException
         {
-        ParseSupport support = new ParseSupport(new BufferedReader(new StringReader(Contents)));
+        return parseMessage((CharSequence)Contents);
+        }
+     
+     
+    /** Attempts to parse a FedWire message held in a byte buffer without
+     * first decoding it into a String.  The buffer's position and limit
+     * are left alone, and field values are views of the buffer, so the
+     * region must not be overwritten while the message is in use.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return parseMessage(new ByteCharSequence(Buffer,Offset,Length));
+        }
+     
+     
+    /** Attempts to parse a FedWire message held in part of a char array.
+     * Field values refer back to the array rather than copying it.
+     * 
+     * @param Chars the array containing the message.
+     * @param Offset the index of the first character of the message.
+     * @param Length the number of characters in the message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(char [] Chars,int Offset,int Length) throws IOException
+        {
+        return parseMessage(CharBuffer.wrap(Chars,Offset,Length));
+        }
+     
+     
+    /** Attempts to parse a FedWire message from any character sequence.
+     * Parsing stops at the first blank line; use FedWireBatchReader to
+     * read a file of blank-line separated messages.
+     * 
+     * @param Contents the characters of a FedWire message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(CharSequence Contents) throws IOException
+        {
+        ParseSupport support = new ParseSupport(ErrorList.scratch());
         List<Field> fieldList = new ArrayList<Field>(30);
-        while (true)
-            {
-            String nextLine = support.reader.readLine();
-            if (nextLine == null)
-                break;
-            ++support.lineNumber;
-             
-            if (nextLine.trim().length() == 0)
-                break;
-             
-            Field field = extractField(nextLine,support);
-            if (field != null)
-                fieldList.add(field);
-            else
-                support.errorList.add("Line " + support.lineNumber + ": Invalid field or malformed field tag");
-            }
+        new FedWireTokenizer(Contents).tokenize(support,fieldList);
  
-        checkFields(fieldList,support);
+        checkFields(fieldList,support.errorList);
          
          
 // TODO: form the message
         FedWireMessage message = new FedWireMessage(fieldList,support.errorList);
-        return new MessageParseResults(message,fieldList,support.errorList);
+        return new MessageParseResults(message,fieldList,ErrorList.keep(support.errorList),MessageFormat.FEDWIRE);
         }
      
      
-    /** Handles parsing the tag out of the current line and 
-     * checks to see if the tag wraps onto other lines. If so,
-     * it reads the wrapped lines.  It does not check for field
-     * legality.
+    /** Parses every message of a file of blank-line separated FedWire
+     * messages held in a region of a buffer, splitting the region into
+     * messages and parsing them in parallel.
      * 
-     * @param Line the first (or only) line of the tagged field.
-     * @param Support the parser support class containing the message to parse.
-     * @return a Field object containing tag and field data or null if malformed line.
-     * @throws IOException if an error occurs reading from the parsing object.
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in input order.
+     * @throws IOException if an error occurs while parsing.
+     * @see MessageBatchParser
      */
-    static private Field extractField(String Line,ParseSupport Support) throws IOException
+    static public List<MessageParseResults> parseAll(ByteBuffer Buffer,int Offset,int Length,int Parallelism) throws IOException
         {
-        int offset = Line.indexOf("{");
-        if (offset < 0)
-            {
-            Support.errorList.add("Line " + Support.lineNumber + ": Missing open curly ({) on tag number.");
-            return null;
-            }
-        else if (offset > 0)
-            Support.errorList.add("Line " + Support.lineNumber + ": Incorrectly placed open curly ({) on tag number...not first character on line.");
-        int tagStart = offset + 1;
- 
-        offset = Line.indexOf("}",offset);
-        if (offset < 0)
-            {
-            Support.errorList.add("Line " + Support.lineNumber + ": Missing close curly (}) on tag number.");
-            return null;
-            }
-         
-        String tag = Line.substring(tagStart,offset);
-        if (tag.length()!= 4)
-            Support.errorList.add("Line " + Support.lineNumber + ": Tag is invalid length of " + tag.length() + " characters instead of 4.");
-        for (char ch : tag.toCharArray())
-            {
-            if (!Character.isDigit(ch))
-                {
-                Support.errorList.add("Line " + Support.lineNumber + ": Tag contains one or more invalid non-numeric characters.");
-                break;
-                }
-            }
-         
-        StringBuilder contents = new StringBuilder(256);
-        if (offset == Line.length() - 1)
-            Support.errorList.add("Line " + Support.lineNumber + ": No data follows the tag...empty value field.");
-        else
-            contents.append(Line.substring(offset + 1));
+        return MessageBatchParser.parseAll(Buffer,Offset,Length,new FedWireFramer(),Parallelism);
+        }
+     
+     
+    /** Parses every message of a file of blank-line separated FedWire
+     * messages, splitting the file into messages and parsing them in
+     * parallel.
+     * 
+     * @param File the file to parse.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be read or an error occurs while parsing.
+     * @see MessageBatchParser
+     */
+    static public List<MessageParseResults> parseAll(Path File,int Parallelism) throws IOException
+        {
+        return MessageBatchParser.parseAll(File,new FedWireFramer(),Parallelism);
+        }
+     
+     
+    /** Returns a stream over the messages of a file of blank-line
+     * separated FedWire messages, which can be split at message boundaries
+     * for a parallel stream.  Each message is parsed when the stream
+     * reaches it.
+     * 
+     * @param File the file to read.
+     * @param Parallel true for a parallel stream.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be mapped.
+     * @see MessageSpliterator
+     */
+    static public Stream<MessageParseResults> streamAll(Path File,boolean Parallel) throws IOException
+        {
+        return MessageSpliterator.stream(File,new FedWireFramer(),Parallel);
+        }
+     
+     
+    /** Tokenizes a FedWire message and builds a message that only
+     * indexes its fields.  The per-field format checks and the mandatory
+     * field checks are both skipped, so the error list only holds 
+     * problems found while splitting the fields; call validate() on the
+     * message to check for duplicate and missing mandatory fields.
+     * 
+     * @param Contents the characters of a FedWire message.
+     * @return a lazily built message contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessageLazily(CharSequence Contents) throws IOException
+        {
+        ParseSupport support = new ParseSupport(ErrorList.scratch());
+        List<Field> fieldList = new ArrayList<Field>(30);
+        new FedWireTokenizer(Contents).tokenize(support,fieldList);
          
-        while (true)
+        FedWireMessage message = new FedWireMessage(fieldList);
+        return new MessageParseResults(message,fieldList,ErrorList.keep(support.errorList),MessageFormat.FEDWIRE);
+        }
+     
+     
+    /** Runs the checks that parseMessageLazily() skips on its results:
+     * the per-field format checks and then the duplicate and mandatory
+     * field checks.  The errors are added to the results in the same order
+     * that parseMessage() reports them.  Results that share the empty
+     * error list are checked into the thread's scratch list, so a message
+     * that passes still allocates nothing for its errors.
+     * 
+     * @param Results the results of parseMessageLazily().
+     */
+    static public void validateMessage(MessageParseResults Results)
+        {
+        FedWireMessage message = (FedWireMessage)Results.getMessage();
+        if (Results.getErrors() != ErrorList.EMPTY)
             {
-            Support.reader.mark(1);
-            int nextChar = Support.reader.read();
-            Support.reader.reset();
-            if (nextChar == -1)
-                break;
-            if ((char)nextChar == '{')
-                break;
-             
-            String line = Support.reader.readLine();
-            Support.lineNumber++;
-             
-            contents.append("\r\n");
-            contents.append(line);
+            checkFields(Results.getFields(),Results.getErrors());
+            message.validate(Results.getErrors());
+            return;
             }
          
-        return new FedWireField(tag,contents.toString());
+        ErrorList errors = ErrorList.scratch();
+        checkFields(Results.getFields(),errors);
+        message.validate(errors);
+        if (!errors.isEmpty())
+            Results.reset(message,Results.getFields(),ErrorList.keep(errors));
         }
      
      
-    /** Checks the fields for valid form according to the specs.
+    /** Checks the fields for valid form according to the specs.  A
+     * field that passes costs no allocation; a field that fails is
+     * recorded as an entry when Errors is an ErrorList.
      * 
      * @param Fields the list of fields to check.
-     * @param Support the container containing the error lists.
+     * @param Errors the list to add the errors to.
      */
-    static private void checkFields(List<Field> Fields,ParseSupport Support)
+    static void checkFields(List<Field> Fields,List<String> Errors)
         {
         for (Field field : Fields)
             {
-            int tag = -1;
-            try
-                {
-                tag = Integer.parseInt(field.getTag());
-                }
-            catch (Exception ee)
-                {
-                }
-             
-            switch (tag)
+            switch (field.getTagCode())
                 {
                 case 1500:
-                    if (field.getValue().length() != 11 && field.getValue().length() != 12)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 11 && field.getValueLength() != 12)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                      
                 case 1510:
-                    if (field.getValue().length() != 4)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 4)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 1520:
-                    if (field.getValue().length() != 22)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " (IMAD) incorrect length.");
+                    if (field.getValueLength() != 22)
+                        ErrorList.add(Errors,ParseError.IMAD_LENGTH,field);
                     break;
                  
                 case 2000:
-                    if (field.getValue().length() != 12)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " (Amount) incorrect length.");
+                    if (field.getValueLength() != 12)
+                        ErrorList.add(Errors,ParseError.AMOUNT_LENGTH,field);
                     break;
                  
                 case 3100:
-                    if (field.getValue().length() < 9)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() < 9)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3400:
-                    if (field.getValue().length() < 9)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() < 9)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3600:
-                    if (field.getValue().length() != 3 && field.getValue().compareTo("CTRCOV") != 0)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 3 && !field.valueEquals("CTRCOV"))
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3000:
-                    if (field.getValue().length() != 10)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 10)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3320:
-                    if (field.getValue().length() != 16)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 16)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3500:
-                    if (field.getValue().length() != 22)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " (Prev IMAD) incorrect length.");
+                    if (field.getValueLength() != 22)
+                        ErrorList.add(Errors,ParseError.PREVIOUS_IMAD_LENGTH,field);
                     break;
                  
                 case 3700:
-                    if (field.getValue().length() != 15)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 15)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3710:
-                    if (field.getValue().length() != 18)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 18)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 3720:
-                    if (field.getValue().length() != 12)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " incorrect length.");
+                    if (field.getValueLength() != 12)
+                        ErrorList.add(Errors,ParseError.FIELD_LENGTH,field);
                     break;
                  
                 case 4000:
@@ -257,20 +319,20 @@ public class FedWireMessageParser
                 case 6430:
                 case 6500:
                 case 9000:
-                    if (field.getValue().length() == 0)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " is empty.");
+                    if (field.getValueLength() == 0)
+                        ErrorList.add(Errors,ParseError.EMPTY_FIELD,field);
                     break;
  
                 case 1100:
                 case 1110:
                 case 1120:
                 case 1130:
-                    if (field.getValue().length() == 0)
-                        Support.errorList.add("Malformed field: " + field.getTag() + " is empty.");
+                    if (field.getValueLength() == 0)
+                        ErrorList.add(Errors,ParseError.EMPTY_FIELD,field);
                     break;
  
                 default:
-                    Support.errorList.add("Invalid field type: " + field.getTag() + " found in list.");
+                    ErrorList.add(Errors,ParseError.INVALID_FIELD_TYPE,field);
                 }
             }
         }
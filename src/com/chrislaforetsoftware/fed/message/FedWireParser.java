@@ -0,0 +1,162 @@
+/* FedWireParser.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.fed.message;
+ 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+ 
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
+/** A FedWire parser object that keeps its working state from one
+ * message to the next, for hot paths that parse message after message.
+ * It gives the same fields and errors as FedWireMessageParser.parseMessage(),
+ * but the tokenizer, the fields, the error list, the message, its tag index
+ * and the results are all created once and reset for each message, so a
+ * message that fits in what earlier ones used allocates nothing beyond the
+ * text of any errors and of values that had to be joined.
+ * <p>
+ * The price is that everything returned by parseMessage() belongs to the
+ * parser and is only valid until the next call; copy out what must be
+ * kept.  A parser is not thread-safe.  Use one per thread, for instance
+ * through forCurrentThread().
+ * <pre>
+ * FedWireParser parser = FedWireParser.forCurrentThread();
+ * MessageParseResults results = parser.parseMessage(buffer,offset,length);
+ * route(((FedWireMessage)results.getMessage()).getBusinessFunctionCode());
+ * </pre>
+ */
+ 
+public class FedWireParser
+    {
+    static private final ThreadLocal<FedWireParser> _perThread = new ThreadLocal<FedWireParser>()
+        {
+        @Override
+        protected FedWireParser initialValue()
+            {
+            return new FedWireParser();
+            }
+        };
+    
+    private ParseSupport _support = new ParseSupport();
+    private List<Field> _fields = new ArrayList<Field>(30);
+    private FedWireTokenizer _tokenizer = new FedWireTokenizer();
+    private ByteCharSequence _view;
+    private FedWireMessage _message;
+    private MessageParseResults _results;
+    
+    /** Returns the parser that belongs to the calling thread, creating
+     * it the first time.  Results from it must not be passed to another
+     * thread unless they are finished with before this thread parses again.
+     * 
+     * @return this thread's parser.
+     */
+    static public FedWireParser forCurrentThread()
+        {
+        return _perThread.get();
+        }
+    
+    
+    /** Parses a FedWire message held in a byte buffer.  The parser keeps
+     * one view over the buffer, which is moved to each new message.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length)
+        {
+        if (_view == null)
+            _view = new ByteCharSequence(Buffer,Offset,Length);
+        else
+            _view.reset(Buffer,Offset,Length);
+        return parseMessage(_view);
+        }
+    
+    
+    /** Parses a FedWire message from any character sequence.
+     * 
+     * @param Contents the characters of a FedWire message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessage(CharSequence Contents)
+        {
+        _support.reset();
+        _fields.clear();
+        _tokenizer.reset(Contents);
+        _tokenizer.tokenize(_support,_fields);
+        
+        FedWireMessageParser.checkFields(_fields,_support.errorList);
+        
+        if (_message == null)
+            {
+            _message = new FedWireMessage(_fields);
+            _results = new MessageParseResults(_message,_fields,_support.errorList,MessageFormat.FEDWIRE);
+            }
+        else
+            _message.index(_fields);
+        _message.validate(_support.errorList);
+        return _results;
+        }
+    
+    
+    /** Tokenizes a FedWire message held in a byte buffer and indexes its
+     * fields, leaving the checks that FedWireMessageParser.validateMessage()
+     * runs, as FedWireMessageParser.parseMessageLazily() does.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessageLazily(ByteBuffer Buffer,int Offset,int Length)
+        {
+        if (_view == null)
+            _view = new ByteCharSequence(Buffer,Offset,Length);
+        else
+            _view.reset(Buffer,Offset,Length);
+        
+        _support.reset();
+        _fields.clear();
+        _tokenizer.reset(_view);
+        _tokenizer.tokenize(_support,_fields);
+        
+        if (_message == null)
+            {
+            _message = new FedWireMessage(_fields);
+            _results = new MessageParseResults(_message,_fields,_support.errorList,MessageFormat.FEDWIRE);
+            }
+        else
+            _message.index(_fields);
+        return _results;
+        }
+    }
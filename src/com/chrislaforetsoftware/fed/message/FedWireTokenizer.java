@@ -0,0 +1,238 @@
+/* FedWireTokenizer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.fed.message;
+ 
+import java.util.ArrayList;
+import java.util.List;
+ 
+import com.chrislaforetsoftware.fed.util.FedWireField;
+import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.ParseError;
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
+/** Splits a FedWire message into its {nnnn} tagged fields by walking
+ * the characters with an index rather than reading lines through a
+ * BufferedReader.  Lines end at CR, LF or CRLF just as they do for
+ * readLine(), a line that does not start with an open curly continues
+ * the field before it, and the message ends at the first blank line.
+ * <p>
+ * Continuation lines are joined with CRLF.  When the message itself uses
+ * CRLF that joined value is simply a span of the input, so the field
+ * keeps a view of the input instead of a copy.
+ */
+ 
+class FedWireTokenizer
+    {
+    private CharSequence _contents;
+    private int _length;
+    private int _position;
+    private StringBuilder _joined;
+     
+    // fields handed out for earlier messages, when the tokenizer is reused
+    private List<FedWireField> _spareFields;
+    private int _fieldsUsed;
+     
+    /** Creates a tokenizer over a complete message.
+     * 
+     * @param Contents the message characters.
+     */
+    FedWireTokenizer(CharSequence Contents)
+        {
+        reset(Contents);
+        }
+     
+     
+    /** Creates a tokenizer to be reset for each message.  It keeps its
+     * buffer for joining lines and the fields it has handed out, which it
+     * points at the next message instead of creating new ones, so the
+     * fields of one message are only valid until the next reset.
+     */
+    FedWireTokenizer()
+        {
+        _spareFields = new ArrayList<FedWireField>(32);
+        }
+     
+     
+    /** Starts on a new message.
+     * 
+     * @param Contents the message characters.
+     */
+    void reset(CharSequence Contents)
+        {
+        _contents = Contents;
+        _length = Contents.length();
+        _position = 0;
+        _fieldsUsed = 0;
+        }
+     
+     
+    /** Extracts all the fields of the message, numbering lines and
+     * recording errors in Support exactly as the line reader did.
+     * 
+     * @param Support the parse state holding the line number and error list.
+     * @param Fields the list to add the fields to.
+     */
+    void tokenize(ParseSupport Support,List<Field> Fields)
+        {
+        while (_position < _length)
+            {
+            int lineStart = _position;
+            int lineEnd = ParseSupport.findLineEnd(_contents,lineStart);
+            _position = ParseSupport.skipLineEnd(_contents,lineEnd);
+            ++Support.lineNumber;
+             
+            if (ParseSupport.trimStart(_contents,lineStart,lineEnd) == lineEnd)
+                break;
+             
+            Field field = extractField(lineStart,lineEnd,Support);
+            if (field != null)
+                Fields.add(field);
+            else
+                Support.errorList.add(ParseError.INVALID_FIELD,Support.lineNumber,lineStart);
+            }
+        }
+     
+     
+    /** Handles parsing the tag out of the current line and
+     * picks up any continuation lines that follow it.  It does not
+     * check for field legality.
+     * 
+     * @param LineStart the offset of the first character of the line.
+     * @param LineEnd the offset of the line terminator.
+     * @param Support the parse state holding the line number and error list.
+     * @return a Field object containing tag and field data or null if malformed line.
+     */
+    private Field extractField(int LineStart,int LineEnd,ParseSupport Support)
+        {
+        int offset = find('{',LineStart,LineEnd);
+        if (offset < 0)
+            {
+            Support.errorList.add(ParseError.FEDWIRE_MISSING_OPEN,Support.lineNumber,LineStart);
+            return null;
+            }
+        else if (offset > LineStart)
+            Support.errorList.add(ParseError.FEDWIRE_MISPLACED_OPEN,Support.lineNumber,LineStart);
+        int tagStart = offset + 1;
+         
+        offset = find('}',offset,LineEnd);
+        if (offset < 0)
+            {
+            Support.errorList.add(ParseError.FEDWIRE_MISSING_CLOSE,Support.lineNumber,LineStart);
+            return null;
+            }
+         
+        int tagLength = offset - tagStart;
+        if (tagLength != 4)
+            Support.errorList.add(ParseError.TAG_LENGTH,Support.lineNumber,LineStart,tagLength);
+        for (int index = tagStart; index < offset; index++)
+            {
+            if (!Character.isDigit(_contents.charAt(index)))
+                {
+                Support.errorList.add(ParseError.NON_NUMERIC_TAG,Support.lineNumber,LineStart);
+                break;
+                }
+            }
+         
+        int valueStart = offset + 1;
+        if (offset == LineEnd - 1)
+            Support.errorList.add(ParseError.EMPTY_VALUE,Support.lineNumber,LineStart);
+         
+        // continuation lines run up to the next line starting with an open curly
+        int valueEnd = LineEnd;
+        StringBuilder joined = null;
+        while (_position < _length && _contents.charAt(_position) != '{')
+            {
+            int lineStart = _position;
+            int lineEnd = ParseSupport.findLineEnd(_contents,lineStart);
+            _position = ParseSupport.skipLineEnd(_contents,lineEnd);
+            Support.lineNumber++;
+             
+            if (joined == null && !ParseSupport.isCRLF(_contents,valueEnd,lineStart))
+                {
+                if (_joined == null)
+                    _joined = new StringBuilder(256);
+                joined = _joined;
+                joined.setLength(0);
+                joined.append(_contents,valueStart,valueEnd);
+                }
+             
+            if (joined != null)
+                {
+                joined.append("\r\n");
+                joined.append(_contents,lineStart,lineEnd);
+                }
+            else
+                valueEnd = lineEnd;
+            }
+         
+        FedWireField field = nextField();
+        if (field == null)
+            {
+            if (joined != null)
+                field = new FedWireField(_contents,tagStart,offset,joined.toString());
+            else
+                field = new FedWireField(_contents,tagStart,offset,valueStart,valueEnd);
+            if (_spareFields != null)
+                {
+                _spareFields.add(field);
+                ++_fieldsUsed;
+                }
+            }
+        else if (joined != null)
+            field.reset(_contents,tagStart,offset,joined.toString());
+        else
+            field.reset(_contents,tagStart,offset,valueStart,valueEnd);
+        return field;
+        }
+     
+     
+    /** Takes the next field handed out for an earlier message.
+     * 
+     * @return the field to reuse or null if a new one is needed.
+     */
+    private FedWireField nextField()
+        {
+        if (_spareFields == null || _fieldsUsed >= _spareFields.size())
+            return null;
+        return _spareFields.get(_fieldsUsed++);
+        }
+     
+     
+    /** Finds a character within a line.
+     * 
+     * @return the offset of the character or -1 if it is not in the line.
+     */
+    private int find(char Ch,int From,int LineEnd)
+        {
+        for (int offset = From; offset < LineEnd; offset++)
+            {
+            if (_contents.charAt(offset) == Ch)
+                return offset;
+            }
+        return -1;
+        }
+    }
@@ -26,11 +26,40 @@
  
 package com.chrislaforetsoftware.fed.sanitytests;
  
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+ 
+import com.chrislaforetsoftware.fed.message.FedWireBatchReader;
+import com.chrislaforetsoftware.fed.message.FedWireFramer;
 import com.chrislaforetsoftware.fed.message.FedWireIdentifier;
 import com.chrislaforetsoftware.fed.message.FedWireMessage;
 import com.chrislaforetsoftware.fed.message.FedWireMessageParser;
+import com.chrislaforetsoftware.fed.message.FedWireParser;
+import com.chrislaforetsoftware.util.Amount;
+import com.chrislaforetsoftware.util.CodeTable;
+import com.chrislaforetsoftware.util.ErrorList;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageFileReader;
 import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.MessagePipeline;
+import com.chrislaforetsoftware.util.MessageSpliterator;
+import com.chrislaforetsoftware.util.ParseError;
+import com.chrislaforetsoftware.util.TagTable;
  
 import junit.framework.TestCase;
  
@@ -86,6 +115,35 @@ public class TestFedParser extends TestCase
         }
      
      
+    public void testTagCodes() throws Exception
+        {
+        MessageParseResults results = FedWireMessageParser.parseMessage(GoodFedMessage);
+        MessageParseResults again = FedWireMessageParser.parseMessage(GoodFedMessage);
+        for (int index = 0; index < results.fieldCount(); index++)
+            {
+            Field field = results.getFields().get(index);
+            assertEquals(field.getTagCode(),Integer.parseInt(field.getTag()));
+            assertTrue(field.getTag() == again.getFields().get(index).getTag());
+            assertTrue(field.tagEquals(again.getFields().get(index)));
+            }
+         
+        FedWireMessage message = (FedWireMessage)results.getMessage();
+        assertEquals(message.getFieldValue(1520),message.getFieldValue("1520"));
+        assertTrue(message.getField(3600) == message.getField("3600"));
+        assertTrue(message.getField(9999) == null);
+         
+        // tags that are not all digits or have leading zeros keep their own identity
+        results = FedWireMessageParser.parseMessageLazily("{1500}0222000212T\r\n{15X0}ABC\r\n{0150}DEF\r\n{150}GHI");
+        message = (FedWireMessage)results.getMessage();
+        assertEquals(results.getFields().get(1).getTagCode(),TagTable.NO_TAG_CODE);
+        assertEquals(message.getFieldValue("15X0"),"ABC");
+        assertEquals(message.getFieldValue("0150"),"DEF");
+        assertEquals(message.getFieldValue("150"),"GHI");
+        assertFalse(results.getFields().get(2).tagEquals(results.getFields().get(3)));
+        assertEquals(TagTable.tag(31,3),"031");
+        }
+     
+     
     public void testMessage() throws Exception
         {
         MessageParseResults results = FedWireMessageParser.parseMessage(GoodFedMessage);
@@ -103,6 +161,10 @@ public class TestFedParser extends TestCase
         assertEquals(message.getTypeAndSubtypeCode(),"1000");
         assertEquals(message.getIMAD(),"20101122I1B78A1R000002");
         assertEquals(message.getAmount(),"000000000100");
+        Amount amount = new Amount();
+        assertTrue(message.getAmount(amount));
+        assertEquals(amount.getMinorUnits(),100L);
+        assertEquals(amount.toString(),"USD 1.00");
         assertEquals(message.getSenderFI(),"999999999SOME BANKS INC");
         assertEquals(message.getSenderABA(),"999999999");
         assertEquals(message.getReceiverFI(),"888888888ANOTHER BANKCO NA");
@@ -137,5 +199,476 @@ public class TestFedParser extends TestCase
  
         assertEquals(message.toString(),GoodFedMessage);
         }
+         
+     
+    public void testCodeTables() throws Exception
+        {
+        assertEquals(FedWireMessage.lookupBusinessFunction("CTR"),"Customer Transfer (Beneficiary is a not a bank)");
+        assertEquals(FedWireMessage.lookupBusinessFunction("CTRCOV"),"Cover Payment");
+        assertEquals(FedWireMessage.lookupBusinessFunction("CT"),"");
+        assertEquals(FedWireMessage.lookupIDCode("B"),"S.W.I.F.T. Bank Identifier Code (BIC)");
+        assertEquals(FedWireMessage.lookupIDCode("Z"),"");
+        assertEquals(FedWireMessage.lookupIDCode(""),"");
+        assertEquals(FedWireMessage.lookupAdviceCode("WRE"),"Wire");
+        assertEquals(new FedWireIdentifier("D000000123456789").getCodeDescription(),"Demand Deposit Account (DDA) Number");
+         
+        // a loaded list, with codes whose String hashes collide
+        StringBuilder list = new StringBuilder("# full list\nAa=first\nBB=second\nC=single\n");
+        for (int code = 0; code < 500; code++)
+            list.append("X").append(code).append('=').append("Code ").append(code).append('\n');
+        CodeTable table = CodeTable.load(new StringReader(list.toString()));
+        assertEquals(table.size(),503);
+        assertEquals(table.getDescription("Aa"),"first");
+        assertEquals(table.getDescription("BB"),"second");
+        assertEquals(table.getDescription('C'),"single");
+        assertEquals(table.getDescription("ZC9",1,2),"single");
+        for (int code = 0; code < 500; code++)
+            assertEquals(table.getDescription("X" + code),"Code " + code);
+        assertTrue(table.getDescription("X500") == null);
+         
+        CodeTable builtIn = FedWireMessage.getIDCodes();
+        FedWireMessage.setIDCodes(table);
+        try
+            {
+            assertEquals(FedWireMessage.lookupIDCode("C"),"single");
+            assertEquals(FedWireMessage.lookupIDCode("B"),"");
+            }
+        finally
+            {
+            FedWireMessage.setIDCodes(builtIn);
+            }
+        }     
+     
+    public void testMalformedMessage() throws Exception
+        {
+        String malformed = 
+            "{1500}0222000212T\r\n" +
+            " {1510}1000\r\n" +
+            "{1520\r\n" +
+            "BADLINE\r\n" +
+            "{15X0}\n" +
+            "{2000}000000000100\rmore\r\n" +
+            "\r\n" +
+            "{3100}X";
+        MessageParseResults results = FedWireMessageParser.parseMessage(malformed);
+        String [] errors = 
+            {
+            "Line 3: Missing close curly (}) on tag number.",
+            "Line 3: Invalid field or malformed field tag",
+            "Line 4: Missing open curly ({) on tag number.",
+            "Line 4: Invalid field or malformed field tag",
+            "Line 5: Tag contains one or more invalid non-numeric characters.",
+            "Line 5: No data follows the tag...empty value field.",
+            "Malformed field: 1500 incorrect length.",
+            "Invalid field type: 15X0 found in list.",
+            "Malformed field: 2000 (Amount) incorrect length.",
+            "Malformed field: 3100 incorrect length.",
+            "Missing mandatory field: Field 1510.",
+            "Missing mandatory field: Field 1520.",
+            "Missing mandatory field: Field 3400.",
+            "Missing mandatory field: Field 3600.",
+            };
+        assertEquals(results.errorCount(),errors.length);
+        for (int index = 0; index < errors.length; index++)
+            assertEquals(results.getErrors().get(index),errors[index]);
+         
+        assertEquals(results.fieldCount(),4);
+        assertEquals(results.getFields().get(0).getValue(),"0222000212T\r\n {1510}1000");
+        assertEquals(results.getFields().get(1).getValue(),"");
+        assertEquals(results.getFields().get(2).getValue(),"000000000100\r\nmore\r\n");
+        assertEquals(results.getFields().get(3).getValue(),"X");
+        }
+     
+     
+    public void testErrorEntries() throws Exception
+        {
+        String malformed =
+            "{1500}0222000212T\r\n" +
+            " {1510}1000\r\n" +
+            "{1520\r\n" +
+            "BADLINE\r\n" +
+            "{15X0}\n" +
+            "{2000}000000000100\rmore\r\n" +
+            "\r\n";
+        MessageParseResults results = FedWireMessageParser.parseMessage(malformed);
+        assertTrue(results.getErrors() instanceof ErrorList);
+        ErrorList errors = (ErrorList)results.getErrors();
+         
+        assertEquals(errors.getCode(0),ParseError.FEDWIRE_MISSING_CLOSE);
+        assertEquals(errors.getLine(0),3);
+        assertEquals(errors.getOffset(0),32);
+        assertEquals(errors.getCode(2),ParseError.FEDWIRE_MISSING_OPEN);
+        assertEquals(errors.getOffset(2),39);
+        assertEquals(errors.getCode(6),ParseError.FIELD_LENGTH);
+        assertEquals(errors.getTagCode(6),1500);
+        assertEquals(errors.getOffset(6),ErrorList.NO_OFFSET);
+        assertEquals(errors.getCode(7),ParseError.INVALID_FIELD_TYPE);
+        assertEquals(errors.getTagCode(7),TagTable.NO_TAG_CODE);
+        assertEquals(errors.getTag(7),"15X0");
+        assertEquals(errors.getCode(9),ParseError.MISSING_FIELD);
+        assertEquals(errors.getTag(9),"1510");
+        assertEquals(errors.get(9),"Missing mandatory field: Field 1510.");
+         
+        // text can still be added anywhere and entries move with it
+        int size = errors.size();
+        errors.add(0,"Checked by hand.");
+        assertEquals(errors.size(),size + 1);
+        assertEquals(errors.getCode(0),ParseError.TEXT);
+        assertEquals(errors.get(0),"Checked by hand.");
+        assertEquals(errors.get(1),"Line 3: Missing close curly (}) on tag number.");
+        assertEquals(errors.getTag(8),"15X0");
+        assertEquals(errors.remove(0),"Checked by hand.");
+        assertEquals(errors.getLine(0),3);
+        assertEquals(errors.get(7),"Invalid field type: 15X0 found in list.");
+         
+        // a clean parse shares the empty list and leaves earlier errors alone
+        results = FedWireMessageParser.parseMessage(GoodFedMessage);
+        assertEquals(results.errorCount(),0);
+        assertTrue(FedWireMessageParser.parseMessage(GoodFedMessage).errorCount() == 0);
+        assertEquals(errors.get(9),"Missing mandatory field: Field 1510.");
+        assertSame(results.getErrors(),ErrorList.EMPTY);
+        results.getMutableErrors().add("Checked by hand.");
+        assertEquals(results.errorCount(),1);
+        assertTrue(results.getErrors() instanceof ErrorList);
+        }
+     
+     
+    public void testBufferSources() throws Exception
+        {
+        byte [] bytes = GoodFedMessage.getBytes("ISO-8859-1");
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+        direct.position(3);
+        direct.put(bytes);
+         
+        char [] chars = ("xx" + GoodFedMessage).toCharArray();
+         
+        MessageParseResults [] parsed = 
+            {
+            FedWireMessageParser.parseMessage(direct,3,bytes.length),
+            FedWireMessageParser.parseMessage(chars,2,chars.length - 2),
+            };
+        for (MessageParseResults results : parsed)
+            {
+            assertEquals(results.errorCount(),0);
+            assertEquals(results.fieldCount(),15);
+            FedWireMessage message = (FedWireMessage)results.getMessage();
+            assertEquals(message.getOriginator(),"D000000123456789\r\nFANCYTOWN ENERGY COMPANY L.P.\r\n200 S RAINER ST STE 1901\r\nLOS ANGELES          CA 90071-0192");
+            assertEquals(message.toString(),GoodFedMessage);
+            }
+        }
+         
+     
+    public void testFieldViews() throws Exception
+        {
+        MessageParseResults results = FedWireMessageParser.parseMessage(GoodFedMessage);
+        Field field = results.getFields().get(13);
+        assertTrue(field.tagEquals("5000"));
+        assertFalse(field.tagEquals("500"));
+        assertEquals(field.getValueLength(),field.getValue().length());
+        assertEquals(field.getValueCharAt(0),'D');
+        assertTrue(field.valueStartsWith("D000000123456789\r\nFANCYTOWN"));
+        assertFalse(field.valueStartsWith("F"));
+        assertEquals(field.getValueSequence().toString(),field.getValue());
+         
+        field = results.getFields().get(10);
+        assertTrue(field.valueEquals("CTR"));
+        assertFalse(field.valueEquals("CTRCOV"));
+        assertTrue(field.compareValueTo("CTRCOV") < 0);
+        assertTrue(field.compareValueTo("BTR") > 0);
+        assertEquals(field.compareValueTo("CTR"),0);
+        }
+         
+     
+    public void testLazyMessage() throws Exception
+        {
+        MessageParseResults results = FedWireMessageParser.parseMessageLazily(GoodFedMessage);
+        assertEquals(results.errorCount(),0);
+         
+        FedWireMessage message = (FedWireMessage)results.getMessage();
+        assertTrue(message.getField("3600").valueEquals("CTR"));
+        assertEquals(message.getAmount(),"000000000100");
+        assertEquals(message.getTypeAndSubtypeCode(),"1000");
+        assertNull(message.getField("4000"));
+        assertTrue(message.validate(results.getErrors()));
+        assertEquals(results.errorCount(),0);
+         
+        List<Field> fields = FedWireMessageParser.parseMessage(GoodFedMessage + "\r\n{3600}BTR\r\n{1500}X").getFields();
+        fields.remove(4);
+        List<String> errors = new ArrayList<String>();
+        message = new FedWireMessage(fields);
+        assertEquals(message.getBusinessFunctionCode(),"CTR");
+        assertEquals(message.getTypeCode(),"");
+        assertFalse(message.validate(errors));
+         
+        List<String> eagerErrors = new ArrayList<String>();
+        new FedWireMessage(fields,eagerErrors);
+        assertEquals(errors,eagerErrors);
+        assertEquals(errors.get(0),"Duplicate field: 3600 exists more than once.");
+        assertEquals(errors.get(1),"Duplicate field: 1500 exists more than once.");
+        assertEquals(errors.get(2),"Missing mandatory field: Field 1510.");
+        assertEquals(errors.size(),3);
+         
+        // validating a clean parse writes its errors to a list of their own
+        results = FedWireMessageParser.parseMessageLazily(GoodFedMessage);
+        FedWireMessageParser.validateMessage(results);
+        assertSame(results.getErrors(),ErrorList.EMPTY);
+        String noAmount = GoodFedMessage.replace("{2000}000000000100\r\n","");
+        results = FedWireMessageParser.parseMessageLazily(noAmount);
+        assertSame(results.getErrors(),ErrorList.EMPTY);
+        FedWireMessageParser.validateMessage(results);
+        assertEquals(results.getErrors(),FedWireMessageParser.parseMessage(noAmount).getErrors());
+        assertTrue(results.errorCount() > 0);
+        }
+         
+     
+    public void testBatchReader() throws Exception
+        {
+        String bad = "{1500}0222000212T\r\n{1520\r\n{2000}000000000100";
+        String [] messages = { GoodFedMessage, bad, GoodFedMessage.replace("\r\n","\n") };
+        String batch = "\r\n" + messages[0] + "\r\n\r\n" + messages[1] + "\r\n \r\n\r\n" + messages[2] + "\n";
+        byte [] bytes = batch.getBytes("ISO-8859-1");
+        long [] lines = new long[messages.length];
+        for (int index = 0; index < messages.length; index++)
+            lines[index] = batch.substring(0,batch.indexOf(messages[index])).split("\n",-1).length;
+         
+        File file = File.createTempFile("fed",".txt");
+        try
+            {
+            Files.write(file.toPath(),bytes);
+             
+            MessageFileReader [] readers = 
+                {
+                new FedWireBatchReader(file.toPath()),
+                new MessageFileReader(FileChannel.open(file.toPath()),new FedWireFramer(),64),
+                new MessageFileReader(new ByteArrayInputStream(bytes),new FedWireFramer(),50),
+                };
+            for (MessageFileReader reader : readers)
+                {
+                for (int index = 0; index < messages.length; index++)
+                    {
+                    assertTrue(reader.hasNext());
+                    MessageParseResults results = reader.next();
+                    assertEquals(reader.getMessageLine(),lines[index]);
+                    if (index != 1)
+                        {
+                        assertEquals(results.errorCount(),0);
+                        assertEquals(results.getMessage().toString(),GoodFedMessage);
+                        continue;
+                        }
+                     
+                    List<String> fileErrors = reader.getFileErrors(results);
+                    assertEquals(results.getErrors().get(0),"Line 2: Missing close curly (}) on tag number.");
+                    assertEquals(fileErrors.get(0),"Line " + (lines[1] + 1) + ": Missing close curly (}) on tag number.");
+                    assertTrue(fileErrors.contains("Message at line " + lines[1] + ": Missing mandatory field: Field 1510."));
+                    }
+                assertFalse(reader.hasNext());
+                reader.close();
+                }
+             
+            // messages over the maximum are skipped but the rest are still read
+            MessageFileReader reader = new MessageFileReader(new ByteArrayInputStream(bytes),new FedWireFramer(),32);
+            reader.setMaximumMessageLength(200);
+            for (int index = 0; index < messages.length; index++)
+                {
+                MessageParseResults results = reader.next();
+                assertEquals(reader.getMessageLine(),lines[index]);
+                if (index == 1)
+                    assertNotNull(results.getMessage());
+                else
+                    {
+                    assertNull(results.getMessage());
+                    assertEquals(results.getErrors().get(0),"Message is longer than the maximum of 200 bytes and was skipped.");
+                    }
+                }
+            assertFalse(reader.hasNext());
+            reader.close();
+             
+            // a reader that cannot be set up closes its channel
+            FileChannel channel = FileChannel.open(file.toPath());
+            try
+                {
+                new MessageFileReader(channel,new FedWireFramer(),0);
+                fail("Expected a window size of 0 to be refused.");
+                }
+            catch (IllegalArgumentException ee)
+                {
+                }
+            assertFalse(channel.isOpen());
+            }
+        finally
+            {
+            file.delete();
+            }
+        }
+     
+     
+    public void testPipeline() throws Exception
+        {
+        String [] kinds = 
+            { 
+            GoodFedMessage, 
+            "{1500}0222000212T\r\n{1520\r\n{2000}000000000100",
+            "{1500}0222000212T\r\n{15X0}\n{2000}000000000100\rmore\r\n{3100}X",
+            };
+        StringBuilder batch = new StringBuilder();
+        final String [] messages = new String[40];
+        for (int index = 0; index < messages.length; index++)
+            {
+            messages[index] = kinds[index % kinds.length];
+            batch.append(messages[index]).append("\r\n\r\n");
+            }
+        byte [] bytes = batch.toString().getBytes("ISO-8859-1");
+         
+        // the results belong to their slot, so copy out what is checked
+        final List<List<String>> handled = new ArrayList<List<String>>();
+        final List<Integer> fieldCounts = new ArrayList<Integer>();
+        final Set<MessageParseResults> slots = Collections.newSetFromMap(new IdentityHashMap<MessageParseResults,Boolean>());
+        MessagePipeline pipeline = new MessagePipeline(new FedWireFramer(),new MessagePipeline.Handler()
+            {
+            public void handle(MessageParseResults Results)
+                {
+                handled.add(new ArrayList<String>(Results.getErrors()));
+                fieldCounts.add(Results.fieldCount());
+                slots.add(Results);
+                }
+            },4);
+         
+        // a small ring wraps many times, the later runs reuse its slots and
+        // the last maps the file in windows shorter than a message
+        File file = File.createTempFile("fed",".txt");
+        try
+            {
+            Files.write(file.toPath(),bytes);
+            assertEquals(pipeline.run(ByteBuffer.wrap(bytes),0,bytes.length),messages.length);
+            assertEquals(pipeline.run(file.toPath()),messages.length);
+            assertEquals(pipeline.run(file.toPath(),300),messages.length);
+            }
+        finally
+            {
+            file.delete();
+            }
+         
+        // validating in its own stage gives the same errors as a full parse
+        assertEquals(handled.size(),messages.length * 3);
+        for (int index = 0; index < handled.size(); index++)
+            {
+            MessageParseResults expected = FedWireMessageParser.parseMessage(messages[index % messages.length]);
+            assertEquals(handled.get(index),expected.getErrors());
+            assertEquals((int)fieldCounts.get(index),expected.fieldCount());
+            }
+         
+        // each slot's results are reused for every message and every run
+        assertEquals(slots.size(),pipeline.getRingSize());
+        }
+     
+     
+    public void testSpliterator() throws Exception
+        {
+        // varied messages and separators, enough for the regions to be split many times
+        String bad = "{1500}0222000212T\r\n{1520\r\n{2000}000000000100";
+        String [] separators = { "\r\n\r\n", "\r\n \r\n\r\n", "\n\n" };
+        final String [] messages = new String[1500];
+        StringBuilder batch = new StringBuilder("\r\n");
+        for (int index = 0; index < messages.length; index++)
+            {
+            messages[index] = index % 7 == 3 ? bad : GoodFedMessage;
+            batch.append(messages[index]).append(separators[index % separators.length]);
+            }
+        byte [] bytes = batch.toString().getBytes("ISO-8859-1");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+         
+        Spliterator<MessageParseResults> indexed = MessageSpliterator.indexed(buffer,0,bytes.length,new FedWireFramer());
+        assertTrue(indexed.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+        assertEquals(indexed.estimateSize(),messages.length);
+        Spliterator<MessageParseResults> bySize = new MessageSpliterator(buffer,0,bytes.length,new FedWireFramer());
+        assertFalse(bySize.hasCharacteristics(Spliterator.SIZED));
+         
+        // splitting down to the smallest pieces loses and breaks no message
+        for (Spliterator<MessageParseResults> spliterator : Arrays.asList(indexed,bySize))
+            {
+            List<MessageParseResults> results = new ArrayList<MessageParseResults>();
+            splitAll(spliterator,results);
+            assertEquals(results.size(),messages.length);
+            for (int index = 0; index < messages.length; index++)
+                {
+                assertEquals(results.get(index).errorCount() > 0,index % 7 == 3);
+                assertEquals(results.get(index).fieldCount(),FedWireMessageParser.parseMessage(messages[index]).fieldCount());
+                }
+            }
+         
+        File file = File.createTempFile("fed",".txt");
+        try
+            {
+            Files.write(file.toPath(),bytes);
+            try (Stream<MessageParseResults> stream = FedWireMessageParser.streamAll(file.toPath(),true))
+                {
+                List<Integer> counts = stream.map(new Function<MessageParseResults,Integer>()
+                    {
+                    public Integer apply(MessageParseResults Results)
+                        {
+                        return Results.errorCount();
+                        }
+                    }).collect(Collectors.toList());
+                assertEquals(counts.size(),messages.length);
+                for (int index = 0; index < messages.length; index++)
+                    assertEquals(counts.get(index) > 0,index % 7 == 3);
+                }
+            }
+        finally
+            {
+            file.delete();
+            }
+        }
+     
+     
+    public void testReusableParser() throws Exception
+        {
+        // good, broken, longer and shorter messages in turn through one parser
+        String [] messages = 
+            {
+            GoodFedMessage,
+            "{1500}0222000212T\r\n{1520\r\n{2000}000000000100",
+            GoodFedMessage + "{6000}LINE ONE*LINE TWO*",
+            "{1500}0222000212T\r\n",
+            GoodFedMessage,
+            };
+        FedWireParser parser = FedWireParser.forCurrentThread();
+        assertTrue(parser == FedWireParser.forCurrentThread());
+        for (String message : messages)
+            {
+            MessageParseResults expected = FedWireMessageParser.parseMessage(message);
+            byte [] bytes = message.getBytes("ISO-8859-1");
+            for (MessageParseResults actual : Arrays.asList(parser.parseMessage(message),parser.parseMessage(ByteBuffer.wrap(bytes),0,bytes.length)))
+                {
+                assertEquals(actual.getErrors(),expected.getErrors());
+                assertEquals(actual.fieldCount(),expected.fieldCount());
+                for (int index = 0; index < expected.fieldCount(); index++)
+                    {
+                    assertEquals(actual.getFields().get(index).getTag(),expected.getFields().get(index).getTag());
+                    assertEquals(actual.getFields().get(index).getValue(),expected.getFields().get(index).getValue());
+                    }
+                FedWireMessage fed = (FedWireMessage)actual.getMessage();
+                assertEquals(fed.getIMAD(),((FedWireMessage)expected.getMessage()).getIMAD());
+                }
+            }
+        }     
+     
+    /** Splits a spliterator as far as it goes and collects its messages in order. */
+    static private void splitAll(Spliterator<MessageParseResults> Spliterator,final List<MessageParseResults> Results)
+        {
+        Spliterator<MessageParseResults> prefix = Spliterator.trySplit();
+        if (prefix != null)
+            {
+            splitAll(prefix,Results);
+            splitAll(Spliterator,Results);
+            return;
+            }
+        Spliterator.forEachRemaining(new Consumer<MessageParseResults>()
+            {
+            public void accept(MessageParseResults Message)
+                {
+                Results.add(Message);
+                }
+            });
+        }
     }
-    
\ No newline at end of file
@@ -41,6 +41,24 @@ public class FedWireField extends Field
         }
      
      
+    public FedWireField(String Tag,CharSequence Value)
+        {
+        super(Tag,Value);
+        }
+     
+     
+    public FedWireField(CharSequence Source,int TagStart,int TagEnd,int ValueStart,int ValueEnd)
+        {
+        super(Source,TagStart,TagEnd,ValueStart,ValueEnd);
+        }
+     
+     
+    public FedWireField(CharSequence Source,int TagStart,int TagEnd,String Value)
+        {
+        super(Source,TagStart,TagEnd,Value);
+        }
+     
+     
     /* (non-Javadoc)
      * @see com.wachovia.util.Field#getField()
      */
@@ -0,0 +1,225 @@
+/* SwiftBlock4Benchmark.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.benchmarks;
+ 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+ 
+import com.chrislaforetsoftware.swift.message.SwiftBlock4;
+import com.chrislaforetsoftware.swift.message.SwiftMessage;
+import com.chrislaforetsoftware.swift.message.SwiftMessageParser;
+import com.chrislaforetsoftware.swift.util.SwiftField;
+import com.chrislaforetsoftware.util.BenchmarkTimer;
+ 
+/** Compares looking up block 4 fields by scanning the field list, as
+ * getField() and getFields() used to, against the tag index.  Each
+ * message is parsed afresh for every round so that building the index is
+ * counted.  There are two cases: an MT103 payment looked up 16 times, as
+ * enrichment does, and an MT940 statement with a few hundred :61: and
+ * :86: lines that are walked in full.
+ * <p>
+ * Run with: java com.chrislaforetsoftware.swift.benchmarks.SwiftBlock4Benchmark [statement lines]
+ */
+ 
+public class SwiftBlock4Benchmark
+    {
+    static private String _payment = "{1:F01ABCDUS33AXXX0000000000}{2:I103MNOPGB2LXXXXN}{4:\r\n" +
+            ":20:101101012345678A\r\n" +
+            ":23B:CRED\r\n" +
+            ":32A:101101USD10100,50\r\n" +
+            ":33B:USD10100,50\r\n" +
+            ":50K:/12345678\r\n" +
+            "FANCYTOWN ENERGY COMPANY\r\n" +
+            "LOS ANGELES CA\r\n" +
+            ":52A:ABCDUS33XXX\r\n" +
+            ":53A:EFGHUS33XXX\r\n" +
+            ":56A:IJKLGB22XXX\r\n" +
+            ":57A:MNOPGB2LXXX\r\n" +
+            ":59:/GB29NWBK60161331926819\r\n" +
+            "SOME SUPPLIER LTD\r\n" +
+            "LONDON\r\n" +
+            ":70:INVOICE 2010-1101\r\n" +
+            ":71A:SHA\r\n" +
+            ":72:/ACC/PAY PROMPTLY\r\n" +
+            "-}";
+    
+    // the tags enrichment asks the payment for, some of them missing
+    static private String [] _paymentTags = 
+        { "20", "23B", "32A", "33B", "50A", "50F", "50K", "52A", "53A", "54A", "56A", "57A", "59", "70", "71A", "72" };
+    
+    /** Runs the benchmark.
+     * 
+     * @param args optionally the number of :61: lines in the statement.
+     * @throws Exception if a message cannot be parsed.
+     */
+    static public void main(String [] args) throws Exception
+        {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        final String statement = buildStatement(lines);
+        final int payments = 20000;
+        final int statements = Math.max(1,2000000 / (lines * 4));
+        
+        BenchmarkTimer.time("MT103 scanned lookups",payments,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (int count = 0; count < payments; count++)
+                    {
+                    List<SwiftField> fields = block4(_payment).getFields();
+                    for (String tag : _paymentTags)
+                        {
+                        String value = scanField(fields,tag);
+                        if (value != null)
+                            total += value.length();
+                        }
+                    }
+                return total;
+                }
+            });
+        
+        BenchmarkTimer.time("MT103 indexed lookups",payments,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (int count = 0; count < payments; count++)
+                    {
+                    SwiftBlock4 block = block4(_payment);
+                    for (String tag : _paymentTags)
+                        {
+                        String value = block.getField(tag);
+                        if (value != null)
+                            total += value.length();
+                        }
+                    }
+                return total;
+                }
+            });
+        
+        BenchmarkTimer.time("MT940 scanned :61: and :86: arrays",statements,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (int count = 0; count < statements; count++)
+                    {
+                    List<SwiftField> fields = block4(statement).getFields();
+                    total += scanFields(fields,"61").length + scanFields(fields,"86").length + scanField(fields,"62F").length();
+                    }
+                return total;
+                }
+            });
+        
+        BenchmarkTimer.time("MT940 indexed :61: and :86: arrays",statements,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (int count = 0; count < statements; count++)
+                    {
+                    SwiftBlock4 block = block4(statement);
+                    total += block.getFields("61").length + block.getFields("86").length + block.getField("62F").length();
+                    }
+                return total;
+                }
+            });
+        
+        BenchmarkTimer.time("MT940 indexed :61: walk",statements,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                long total = 0;
+                for (int count = 0; count < statements; count++)
+                    {
+                    SwiftBlock4 block = block4(statement);
+                    List<SwiftField> fields = block.getFields();
+                    for (int position = block.indexOf("61"); position >= 0; position = block.nextIndexOf(position))
+                        total += fields.get(position).getValueLength();
+                    }
+                return total;
+                }
+            });
+        }
+    
+    
+    /** Parses a message and returns its block 4. */
+    static private SwiftBlock4 block4(String Message) throws Exception
+        {
+        return ((SwiftMessage)SwiftMessageParser.parseMessage(Message).getMessage()).getBlock4();
+        }
+    
+    
+    /** Finds the first field with a tag the way getField() used to. */
+    static private String scanField(List<SwiftField> Fields,String Tag)
+        {
+        for (SwiftField field : Fields)
+            {
+            if (field.getTag().compareTo(Tag) == 0)
+                return field.getValue();
+            }
+        return null;
+        }
+    
+    
+    /** Finds every field with a tag the way getFields() used to. */
+    static private String [] scanFields(List<SwiftField> Fields,String Tag)
+        {
+        List<String> matches = new ArrayList<String>(4);
+        for (SwiftField field : Fields)
+            {
+            if (field.getTag().compareTo(Tag) == 0)
+                matches.add(field.getValue());
+            }
+        return matches.toArray(new String[matches.size()]);
+        }
+    
+    
+    /** Builds an MT940 statement with a :61: and an :86: for each line.
+     * 
+     * @param Lines the number of statement lines.
+     * @return the message.
+     */
+    static private String buildStatement(int Lines)
+        {
+        StringBuilder sb = new StringBuilder(Lines * 100 + 256);
+        sb.append("{1:F01ABCDUS33AXXX0000000000}{2:O9401200101101MNOPGB2LAXXX00000000001011011200N}{4:\r\n");
+        sb.append(":20:STMT101101\r\n");
+        sb.append(":25:12345678\r\n");
+        sb.append(":28C:101/1\r\n");
+        sb.append(":60F:C101031USD1000000,00\r\n");
+        for (int line = 0; line < Lines; line++)
+            {
+            sb.append(":61:1011011101").append(line % 2 == 0 ? "C" : "D").append(100 + line).append(",00NTRFREF").append(line).append("//BANKREF").append(line).append("\r\n");
+            sb.append(":86:PAYMENT ").append(line).append(" FOR INVOICE ").append(1000 + line).append("\r\n");
+            }
+        sb.append(":62F:C101101USD1000000,00\r\n");
+        sb.append("-}");
+        return sb.toString();
+        }
+    }
@@ -0,0 +1,188 @@
+/* SwiftDOSPCCBenchmark.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.benchmarks;
+ 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+ 
+import com.chrislaforetsoftware.swift.message.SwiftDOSPCCFramer;
+import com.chrislaforetsoftware.swift.message.SwiftDOSPCCReader;
+import com.chrislaforetsoftware.swift.message.SwiftMessage;
+import com.chrislaforetsoftware.util.BenchmarkTimer;
+import com.chrislaforetsoftware.util.MessageFileReader;
+ 
+/** Measures how fast SwiftDOSPCCReader reads a DOS-PCC file, both
+ * through memory-mapped windows and through an InputStream.  A file of
+ * MT202 and MT541 messages is written to the temporary directory first.
+ * <p>
+ * Run with: java com.chrislaforetsoftware.swift.benchmarks.SwiftDOSPCCBenchmark [messages]
+ */
+ 
+public class SwiftDOSPCCBenchmark
+    {
+    static private String [] _messages =
+        {
+        "{1:F01ABCDUS10AXXX0000000000}{2:I202MNOPUS40HXYZX}{4:\r\n" +
+            ":20:101101012345678A\r\n" +
+            ":21:A10112090QQ1-150\r\n" +
+            ":32A:101101USD10100,50\r\n" +
+            ":52A:ABCDCHAAXXX\r\n" +
+            ":58A:QRSTJP90MNO\r\n" +
+            ":72:/REC//DEDUCT/\r\n" +
+            "-}{5:{MAC:41720873}{CHK:123456789ABC}}",
+        "{1:F01ABCDUS20AXXX0000000000}{2:I541MNOPHK50XABCN}{3:{108:101101C9010F99}}{4:\r\n" +
+            ":16R:GENL\r\n" +
+            ":20C::SEME//101101C9010F99\r\n" +
+            ":23G:NEWM\r\n" +
+            ":16S:GENL\r\n" +
+            ":16R:TRADDET\r\n" +
+            ":98A::SETT//20101101\r\n" +
+            ":98A::TRAD//20101101\r\n" +
+            ":90A::DEAL//PRCT/96,571\r\n" +
+            ":35B:ISIN US100001AB10\r\n" +
+            "BLAH1 PROPERTY GROUP INC\r\n" +
+            ":16S:TRADDET\r\n" +
+            ":16R:FIAC\r\n" +
+            ":36B::SETT//FAMT/12345,\r\n" +
+            ":97A::SAFE//FUN03\r\n" +
+            ":16S:FIAC\r\n" +
+            ":16R:SETDET\r\n" +
+            ":22F::SETR//TRAD\r\n" +
+            ":16R:SETPRTY\r\n" +
+            ":95P::PSET//ABCDGBAA\r\n" +
+            ":16S:SETPRTY\r\n" +
+            ":16R:SETPRTY\r\n" +
+            ":95R::SELL/ECLR/11996\r\n" +
+            ":16S:SETPRTY\r\n" +
+            ":16R:AMT\r\n" +
+            ":19A::SETT//USD12345,98\r\n" +
+            ":16S:AMT\r\n" +
+            ":16S:SETDET\r\n" +
+            "-}",
+        };
+     
+    /** Runs the benchmark.
+     * 
+     * @param args optionally the number of messages to write to the file.
+     * @throws Exception if the file cannot be written or read.
+     */
+    static public void main(String [] args) throws Exception
+        {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final File file = File.createTempFile("benchmark",".dos");
+        file.deleteOnExit();
+        writeFile(file,count);
+        double megabytes = file.length() / (1024.0 * 1024.0);
+        System.out.println(String.format("%d messages, %.1f MB",count,megabytes));
+         
+        double mapped = BenchmarkTimer.time("SwiftDOSPCCReader mapped file",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                return readAll(new SwiftDOSPCCReader(file.toPath()),count);
+                }
+            });
+        System.out.println(String.format("%-50s %12.1f MB/s","  throughput",megabytes * 1e9 / (mapped * count)));
+         
+        double streamed = BenchmarkTimer.time("SwiftDOSPCCReader input stream",count,new Callable<Object>()
+            {
+            public Object call() throws Exception
+                {
+                return readAll(new SwiftDOSPCCReader(Files.newInputStream(file.toPath())),count);
+                }
+            });
+        System.out.println(String.format("%-50s %12.1f MB/s","  throughput",megabytes * 1e9 / (streamed * count)));
+        file.delete();
+        }
+     
+     
+    /** Reads every message in the file and checks the count.
+     * 
+     * @param Reader the reader to drain.
+     * @param Count the number of messages expected.
+     * @return a checksum of the message types read.
+     * @throws IOException if the file cannot be read.
+     */
+    static private long readAll(MessageFileReader Reader,int Count) throws IOException
+        {
+        long total = 0;
+        int read = 0;
+        try
+            {
+            while (Reader.hasNext())
+                {
+                total += ((SwiftMessage)Reader.next().getMessage()).getMT().charAt(0);
+                ++read;
+                }
+            }
+        finally
+            {
+            Reader.close();
+            }
+        if (read != Count)
+            throw new IOException("Read " + read + " messages instead of " + Count + ".");
+        return total;
+        }
+     
+     
+    /** Writes a DOS-PCC file, padding each message to a whole number of
+     * sectors.
+     * 
+     * @param File the file to write.
+     * @param Count the number of messages to write.
+     * @throws IOException if the file cannot be written.
+     */
+    static private void writeFile(File File,int Count) throws IOException
+        {
+        byte [][] messages = new byte[_messages.length][];
+        for (int index = 0; index < _messages.length; index++)
+            messages[index] = _messages[index].getBytes("ISO-8859-1");
+         
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(File),1 << 16);
+        try
+            {
+            for (int index = 0; index < Count; index++)
+                {
+                byte [] message = messages[index % messages.length];
+                out.write(SwiftDOSPCCFramer.START_OF_MESSAGE);
+                out.write(message);
+                out.write(SwiftDOSPCCFramer.END_OF_MESSAGE);
+                for (int pad = (message.length + 2) % SwiftDOSPCCFramer.SECTOR_SIZE; pad != 0 && pad < SwiftDOSPCCFramer.SECTOR_SIZE; pad++)
+                    out.write(' ');
+                }
+            }
+        finally
+            {
+            out.close();
+            }
+        }
+    }
@@ -0,0 +1,127 @@
+/* SwiftDateBenchmark.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.benchmarks;
+ 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.Callable;
+ 
+import com.chrislaforetsoftware.swift.message.SwiftBlock2Outbound;
+import com.chrislaforetsoftware.swift.message.SwiftMessage;
+import com.chrislaforetsoftware.swift.message.SwiftMessageParser;
+import com.chrislaforetsoftware.util.BenchmarkTimer;
+ 
+/** Compares decoding the :32A: value date and the block 2 output date
+ * and time through java.time, as consumers did, against the packed
+ * accessors.  Each message is parsed once beforehand and every round
+ * puts the value dates in weekly buckets and finds the latest output
+ * time, so only the decoding is measured.
+ * <p>
+ * Run with: java com.chrislaforetsoftware.swift.benchmarks.SwiftDateBenchmark [messages]
+ */
+ 
+public class SwiftDateBenchmark
+    {
+    /** Runs the benchmark.
+     * 
+     * @param args optionally the number of messages.
+     * @throws Exception if a message cannot be parsed.
+     */
+    static public void main(String [] args) throws Exception
+        {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        final SwiftMessage [] messages = buildMessages(count,new Random(20101130L));
+        final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyMMdd");
+        final DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HHmm");
+        
+        BenchmarkTimer.time("java.time value dates and output times",count,new Callable<Object>()
+            {
+            public Object call()
+                {
+                long buckets = 0;
+                long latest = Long.MIN_VALUE;
+                for (SwiftMessage message : messages)
+                    {
+                    LocalDate valueDate = LocalDate.parse(message.getBlock4().getField("32A").substring(0,6),dateFormat);
+                    buckets += valueDate.toEpochDay() / 7;
+                    
+                    SwiftBlock2Outbound block2 = message.getBlock2Outbound();
+                    LocalDate outputDate = LocalDate.parse(block2.getOutputDate(),dateFormat);
+                    LocalTime outputTime = LocalTime.parse(block2.getOutputTime(),timeFormat);
+                    latest = Math.max(latest,outputDate.toEpochDay() * 1440 + outputTime.toSecondOfDay() / 60);
+                    }
+                return buckets + latest;
+                }
+            });
+        
+        BenchmarkTimer.time("packed value dates and output times",count,new Callable<Object>()
+            {
+            public Object call()
+                {
+                long buckets = 0;
+                long latest = Long.MIN_VALUE;
+                for (SwiftMessage message : messages)
+                    {
+                    buckets += message.getBlock4().getValueDate("32A") / 7;
+                    latest = Math.max(latest,message.getBlock2Outbound().getOutputEpochMinute());
+                    }
+                return buckets + latest;
+                }
+            });
+        }
+    
+    
+    /** Builds and parses MT202 output messages with random dates and times.
+     * 
+     * @param Count the number of messages.
+     * @param Random the source of the dates.
+     * @return the parsed messages.
+     * @throws Exception if a message cannot be parsed.
+     */
+    static private SwiftMessage [] buildMessages(int Count,Random Random) throws Exception
+        {
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyMMdd");
+        LocalDate first = LocalDate.of(2010,1,1);
+        SwiftMessage [] messages = new SwiftMessage[Count];
+        for (int index = 0; index < Count; index++)
+            {
+            String valueDate = first.plusDays(Random.nextInt(3650)).format(dateFormat);
+            String outputDate = first.plusDays(Random.nextInt(3650)).format(dateFormat);
+            String outputTime = String.format("%02d%02d",Random.nextInt(24),Random.nextInt(60));
+            String text = "{1:F01MNOPUS10AXXX1684207429}{2:O2020953" + valueDate + "WXYZHK10AXXX3603000123" + outputDate + outputTime + "N}{4:\r\n" +
+                    ":20:REF" + index + "\r\n" +
+                    ":21:RELATED" + index + "\r\n" +
+                    ":32A:" + valueDate + "USD10100,50\r\n" +
+                    ":58A:QRSTJP90MNO\r\n" +
+                    "-}";
+            messages[index] = (SwiftMessage)SwiftMessageParser.parseMessage(text).getMessage();
+            }
+        return messages;
+        }
+    }
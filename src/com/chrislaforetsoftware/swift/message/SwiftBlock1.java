@@ -25,6 +25,8 @@
  
 package com.chrislaforetsoftware.swift.message;
  
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
 /** Contains a Swift message block 1.
  * 
  * @author Christopher Laforet
@@ -46,15 +48,15 @@ public class SwiftBlock1 implements ISwiftBlock
      * 
      * @param Contents
      */
-    SwiftBlock1(String Contents)
+    SwiftBlock1(CharSequence Contents)
         {
         _appID = Contents.charAt(0);
-        _serviceID = Contents.substring(1,3);
-        _bic = Contents.substring(3,11);
+        _serviceID = ParseSupport.substring(Contents,1,3);
+        _bic = ParseSupport.substring(Contents,3,11);
         _lt = Contents.charAt(11);
-        _branch = Contents.substring(12,15);
-        _sessionNo = Contents.substring(15,19);
-        _sequence = Contents.substring(19,25);
+        _branch = ParseSupport.substring(Contents,12,15);
+        _sessionNo = ParseSupport.substring(Contents,15,19);
+        _sequence = ParseSupport.substring(Contents,19,25);
         }
  
  
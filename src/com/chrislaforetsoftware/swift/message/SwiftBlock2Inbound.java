@@ -25,6 +25,8 @@
  
 package com.chrislaforetsoftware.swift.message;
  
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
 /** Contains a Swift Block 2 on Input to Swift.
  * 
  * @author Christopher Laforet
@@ -48,15 +50,21 @@ public class SwiftBlock2Inbound implements ISwiftBlock
      * 
      * @param Contents the contents in the 2 block.
      */
-    SwiftBlock2Inbound(String Contents)
+    SwiftBlock2Inbound(CharSequence Contents)
         {
-        while (Contents.length() < 18)
-            Contents = Contents + "X";
+        if (Contents.length() < 18)
+            {
+            StringBuilder padded = new StringBuilder(18);
+            padded.append(Contents);
+            while (padded.length() < 18)
+                padded.append('X');
+            Contents = padded.toString();
+            }
  
-        _mt = Contents.substring(1,4);
-        _bic = Contents.substring(4,12);
+        _mt = ParseSupport.substring(Contents,1,4);
+        _bic = ParseSupport.substring(Contents,4,12);
         _lt = Contents.charAt(12);
-        _branch = Contents.substring(13,16);
+        _branch = ParseSupport.substring(Contents,13,16);
         _priority = Contents.charAt(16);
  
         if (Contents.length() > 18)
@@ -66,7 +74,7 @@ public class SwiftBlock2Inbound implements ISwiftBlock
  
             if (Contents.length() >= 21)
                 {
-                _obsolescence = Contents.substring(18,21);
+                _obsolescence = ParseSupport.substring(Contents,18,21);
                 _hasObsolescence = true;
                 }
             else
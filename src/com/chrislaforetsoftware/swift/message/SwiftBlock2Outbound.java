@@ -25,6 +25,9 @@
  
 package com.chrislaforetsoftware.swift.message;
  
+import com.chrislaforetsoftware.util.PackedDates;
+import com.chrislaforetsoftware.util.ParseSupport;
+ 
 /** Contains a Swift Block 2 on Output from Swift.
  * 
  * @author Christopher Laforet
@@ -49,21 +52,27 @@ public class SwiftBlock2Outbound implements ISwiftBlock
     /// refers to the values omitting the braces and the 2:.
     /// </summary>
     /// <param name="Block2Contents"></param>
-    SwiftBlock2Outbound(String Contents)
+    SwiftBlock2Outbound(CharSequence Contents)
         {
-        while (Contents.length() < 47)
-            Contents = Contents + "X";
+        if (Contents.length() < 47)
+            {
+            StringBuilder padded = new StringBuilder(47);
+            padded.append(Contents);
+            while (padded.length() < 47)
+                padded.append('X');
+            Contents = padded.toString();
+            }
  
-        _mt = Contents.substring(1,4);
-        _inputTime = Contents.substring(4,8);
-        _inputDate = Contents.substring(8,14);
-        _bic = Contents.substring(14,22);
+        _mt = ParseSupport.substring(Contents,1,4);
+        _inputTime = ParseSupport.substring(Contents,4,8);
+        _inputDate = ParseSupport.substring(Contents,8,14);
+        _bic = ParseSupport.substring(Contents,14,22);
         _lt = Contents.charAt(22);
-        _branch = Contents.substring(23,26);
-        _sessionNumber = Contents.substring(26,30);
-        _sequence = Contents.substring(30,36);
-        _outputDate = Contents.substring(36,42);
-        _outputTime = Contents.substring(42,46);
+        _branch = ParseSupport.substring(Contents,23,26);
+        _sessionNumber = ParseSupport.substring(Contents,26,30);
+        _sequence = ParseSupport.substring(Contents,30,36);
+        _outputDate = ParseSupport.substring(Contents,36,42);
+        _outputTime = ParseSupport.substring(Contents,42,46);
         _priority = Contents.charAt(46);
         }
  
@@ -98,6 +107,37 @@ public class SwiftBlock2Outbound implements ISwiftBlock
         {
         return _inputDate;
         }
+     
+     
+    /** Decodes the input date without creating any objects.
+     * 
+     * @return the day since 1970-01-01 or PackedDates.NO_DATE if the date is not valid.
+     * @see PackedDates
+     */
+    public int getInputEpochDay()
+        {
+        return PackedDates.decodeDate(_inputDate,0);
+        }
+     
+     
+    /** Decodes the input time without creating any objects.
+     * 
+     * @return the minute of the day or PackedDates.NO_TIME if the time is not valid.
+     */
+    public int getInputMinuteOfDay()
+        {
+        return PackedDates.decodeTime(_inputTime,0);
+        }
+     
+     
+    /** Decodes the input date and time together.
+     * 
+     * @return the minute since 1970-01-01 00:00 or Long.MIN_VALUE if either is not valid.
+     */
+    public long getInputEpochMinute()
+        {
+        return PackedDates.toEpochMinute(getInputEpochDay(),getInputMinuteOfDay());
+        }
  
      
     /** Returns the 8-character BIC (Bank Identification Code). If the message is an O 
@@ -199,6 +239,36 @@ public class SwiftBlock2Outbound implements ISwiftBlock
         {
         return _outputDate;
         }
+     
+     
+    /** Decodes the output date without creating any objects.
+     * 
+     * @return the day since 1970-01-01 or PackedDates.NO_DATE if the date is not valid.
+     */
+    public int getOutputEpochDay()
+        {
+        return PackedDates.decodeDate(_outputDate,0);
+        }
+     
+     
+    /** Decodes the output time without creating any objects.
+     * 
+     * @return the minute of the day or PackedDates.NO_TIME if the time is not valid.
+     */
+    public int getOutputMinuteOfDay()
+        {
+        return PackedDates.decodeTime(_outputTime,0);
+        }
+     
+     
+    /** Decodes the output date and time together.
+     * 
+     * @return the minute since 1970-01-01 00:00 or Long.MIN_VALUE if either is not valid.
+     */
+    public long getOutputEpochMinute()
+        {
+        return PackedDates.toEpochMinute(getOutputEpochDay(),getOutputMinuteOfDay());
+        }
  
      
     /** Returns the priority of the FIN message. S is system, U is urgent, and N is normal.
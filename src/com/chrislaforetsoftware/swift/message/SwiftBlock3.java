@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.ArrayList;
  
 import com.chrislaforetsoftware.swift.util.SwiftField;
+import com.chrislaforetsoftware.util.ParseSupport;
  
 /** Contains a Swift Block 3.
  * 
@@ -45,36 +46,40 @@ public class SwiftBlock3 implements ISwiftBlock
      * 
      * @param Contents the block's contents
      */
-    SwiftBlock3(String Contents)
+    SwiftBlock3(CharSequence Contents)
         {
- 
-        String[] sections = Contents.split("\\{");
-        if (sections != null && sections.length > 0)
+        // each section runs from just after one open curly to the next
+        int length = Contents.length();
+        int sectionStart = 0;
+        while (sectionStart <= length)
             {
-            for (String part : sections)
-                {
-                String segment = part.trim();
-                if (segment.length() == 0)
-                    continue;
-                 
-                if (!segment.endsWith("}"))
-                    continue;
-                 
-                segment = segment.substring(0,segment.length() - 1).trim();
+            int sectionEnd = sectionStart;
+            while (sectionEnd < length && Contents.charAt(sectionEnd) != '{')
+                ++sectionEnd;
+            int nextSection = sectionEnd + 1;
  
-                int index = segment.indexOf(':');
-                if (index >= 0)
-                    {
-                    if (index == 0)
-                        _fields.add(new SwiftField("",segment.substring(1).trim()));
-                    else if (index == segment.length())
-                        _fields.add(new SwiftField(segment.substring(0,segment.length() - 1),""));
-                    else
-                        _fields.add(new SwiftField(segment.substring(0,index).trim(),segment.substring(index + 1).trim()));
-                    }
-                else
-                    _fields.add(new SwiftField(segment,""));
+            int start = ParseSupport.trimStart(Contents,sectionStart,sectionEnd);
+            int end = ParseSupport.trimEnd(Contents,start,sectionEnd);
+            sectionStart = nextSection;
+            if (start == end)
+                continue;
+             
+            if (Contents.charAt(end - 1) != '}')
+                continue;
+             
+            end = ParseSupport.trimEnd(Contents,start,end - 1);
+ 
+            int index = start;
+            while (index < end && Contents.charAt(index) != ':')
+                ++index;
+            if (index < end)
+                {
+                int tagEnd = ParseSupport.trimEnd(Contents,start,index);
+                int valueStart = ParseSupport.trimStart(Contents,index + 1,end);
+                _fields.add(new SwiftField(Contents,start,tagEnd,valueStart,end));
                 }
+            else
+                _fields.add(new SwiftField(Contents,start,end,end,end));
             }
         }
  
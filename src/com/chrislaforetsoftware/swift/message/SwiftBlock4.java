@@ -25,15 +25,21 @@
  
 package com.chrislaforetsoftware.swift.message;
  
-import java.io.BufferedReader;
-import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
  
 import com.chrislaforetsoftware.swift.util.SwiftField;
+import com.chrislaforetsoftware.util.Amount;
+import com.chrislaforetsoftware.util.PackedDates;
  
  
 /** Contains a Swift Block 4.
+ * <p>
+ * The first lookup by tag builds an index of where each tag is in the
+ * block, so later lookups do not scan the fields.  Repeated tags, such
+ * as the :61: lines of a statement, are chained in order and can be
+ * walked with indexOf() and nextIndexOf() without building a list.
  * 
  * @author Christopher Laforet
  */
@@ -41,69 +47,112 @@ import com.chrislaforetsoftware.swift.util.SwiftField;
 public class SwiftBlock4 implements ISwiftBlock
     {
     private List<SwiftField> _fields = new ArrayList<SwiftField>();
+    private List<SwiftField> _readOnlyFields;
+     
+    // built on the first lookup by tag, which is safe as the fields never change after parsing
+    private TagIndex _index;
      
     /** Package-private constructor that parses the fields out of the 
      * block 4 contents (excluding {4: and final -}).
      * 
      * @param Contents the contents of block 4.
      */
-    SwiftBlock4(String Contents)
+    SwiftBlock4(CharSequence Contents)
         {
         if (Contents.length() <= 4)
             return;
  
-        try
+        // Lines are split the way BufferedReader.readLine() splits them and
+        // continuation lines are joined with CRLF.  While the block itself
+        // uses CRLF the joined value is just a span of the contents, so it is
+        // only copied when some other line ending is found.
+        int length = Contents.length();
+        int tagStart = -1;
+        int tagEnd = 0;
+        int valueStart = 0;
+        int valueEnd = 0;
+        StringBuilder value = null;
+        int lineStart = 0;
+        while (lineStart < length)
             {
-            BufferedReader reader = new BufferedReader(new StringReader(Contents));
-            String tag = null;
-            StringBuilder value = new StringBuilder(1024);
-            while (true)
+            int lineEnd = lineStart;
+            while (lineEnd < length && Contents.charAt(lineEnd) != '\r' && Contents.charAt(lineEnd) != '\n')
+                ++lineEnd;
+            int nextLine = lineEnd;
+            if (nextLine < length && Contents.charAt(nextLine++) == '\r' && nextLine < length && Contents.charAt(nextLine) == '\n')
+                ++nextLine;
+             
+            if (Contents.charAt(lineStart) == ':')
                 {
-                String line = reader.readLine();
-                if (line == null)
-                    break;
+                if (tagStart >= 0)
+                    addField(Contents,tagStart,tagEnd,valueStart,valueEnd,value);
                  
-                if (line.startsWith(":"))
+                value = null;
+                int index = lineStart + 1;
+                while (index < lineEnd && Contents.charAt(index) != ':')
+                    ++index;
+                if (index >= lineEnd)
+                    tagStart = -1;
+                else
+                    {
+                    tagStart = lineStart + 1;
+                    tagEnd = index;
+                    valueStart = index + 1;
+                    valueEnd = lineEnd;
+                    }
+                }
+            else if (tagStart >= 0)
+                {
+                if (value == null && 
+                    (lineStart - valueEnd != 2 || Contents.charAt(valueEnd) != '\r' || Contents.charAt(valueEnd + 1) != '\n'))
                     {
-                    if (tag != null)
-                        _fields.add(new SwiftField(tag,value.toString()));
-                     
-                    line = line.substring(1);
                     value = new StringBuilder(1024);
- 
-                    int index = line.indexOf(":");
-                    if (index < 0)
-                        tag = null;
-                    else
-                        {
-                        tag = line.substring(0,index);
-                        if (index < line.length())
-                            value.append(line.substring(index + 1));
-                        }
+                    value.append(Contents,valueStart,valueEnd);
                     }
-                else
+                 
+                if (value != null)
                     {
                     value.append("\r\n");
-                    value.append(line);
+                    value.append(Contents,lineStart,lineEnd);
                     }
+                else
+                    valueEnd = lineEnd;
                 }
- 
-            if (tag != null)
-                _fields.add(new SwiftField(tag,value.toString()));
-            }
-        catch (Exception ee)
-            {
+             
+            lineStart = nextLine;
             }
+ 
+        if (tagStart >= 0)
+            addField(Contents,tagStart,tagEnd,valueStart,valueEnd,value);
+        }
+     
+     
+    /** Adds a parsed field, either as a span of the block contents or
+     * from the joined value when the lines had to be copied.
+     */
+    private void addField(CharSequence Contents,int TagStart,int TagEnd,int ValueStart,int ValueEnd,StringBuilder Value)
+        {
+        if (Value != null)
+            _fields.add(new SwiftField(Contents,TagStart,TagEnd,Value.toString()));
+        else
+            _fields.add(new SwiftField(Contents,TagStart,TagEnd,ValueStart,ValueEnd));
         }
      
      
-    /** Retrieves a list of all fields in the block.
+    /** Retrieves a list of all fields in the block.  The list cannot be
+     * changed, since the lookups by tag index it once.
      * 
-     * @return a list of the fields.
+     * @return a read-only list of the fields.
      */
     public List<SwiftField> getFields()
         {
-        return _fields;
+        List<SwiftField> fields = _readOnlyFields;
+        if (fields == null)
+            {
+            fields = Collections.unmodifiableList(_fields);
+            _readOnlyFields = fields;
+            }
+        return fields;
         }
      
      
@@ -114,12 +163,8 @@ public class SwiftBlock4 implements ISwiftBlock
      */
     public String getField(String FieldType)
         {
-        for (SwiftField field : _fields)
-            {
-            if (field.getTag().compareTo(FieldType) == 0)
-                return field.getValue();
-            }
-        return null;
+        int position = indexOf(FieldType);
+        return position < 0 ? null : _fields.get(position).getValue();
         }
  
  
@@ -131,14 +176,106 @@ public class SwiftBlock4 implements ISwiftBlock
      */
     public String[] getFields(String FieldType)
         {
-        List<String> matches = new ArrayList<String>(4);
-        for (SwiftField field : _fields)
+        String [] matches = new String[countFields(FieldType)];
+        int count = 0;
+        for (int position = indexOf(FieldType); position >= 0; position = nextIndexOf(position))
+            matches[count++] = _fields.get(position).getValue();
+        return matches;
+        }
+     
+     
+    /** Finds the position of the FIRST field matching the field type
+     * code.  Together with nextIndexOf() this walks repeated fields
+     * without allocating:
+     * <pre>
+     * for (int position = block.indexOf("61"); position >= 0; position = block.nextIndexOf(position))
+     *     post(block.getFields().get(position));
+     * </pre>
+     * 
+     * @param FieldType The type code for the field.
+     * @return The position of the field in getFields() or -1 if not found.
+     */
+    public int indexOf(CharSequence FieldType)
+        {
+        return tagIndex().find(_fields,FieldType);
+        }
+     
+     
+    /** Finds the position of the next field with the same tag as the
+     * field at Position.
+     * 
+     * @param Position the position of a field returned by indexOf() or nextIndexOf().
+     * @return The position of the next field with the tag or -1 if there are no more.
+     */
+    public int nextIndexOf(int Position)
+        {
+        return tagIndex()._next[Position] - 1;
+        }
+     
+     
+    /** Decodes the currency and amount of the FIRST field matching the
+     * field type code, such as 32A, 32B or 33B, without copying the field.
+     * 
+     * @param FieldType The type code for the field.
+     * @param Into the amount to fill in; it is cleared if the field is missing or malformed.
+     * @return true if the amount was decoded.
+     * @see Amount#decodeSwift(com.chrislaforetsoftware.util.Field)
+     */
+    public boolean getAmount(CharSequence FieldType,Amount Into)
+        {
+        int position = indexOf(FieldType);
+        if (position < 0)
             {
-            if (field.getTag().compareTo(FieldType) == 0)
-                matches.add(field.getValue());
+            Into.clear();
+            return false;
             }
- 
-        return matches.toArray(new String[matches.size()]);
+        return Into.decodeSwift(_fields.get(position));
+        }
+     
+     
+    /** Decodes the YYMMDD date that starts the FIRST field matching the
+     * field type code, such as the value date of 32A, without copying
+     * the field.
+     * 
+     * @param FieldType The type code for the field.
+     * @return the day since 1970-01-01 or PackedDates.NO_DATE if there is no field or no valid date.
+     * @see PackedDates
+     */
+    public int getValueDate(CharSequence FieldType)
+        {
+        int position = indexOf(FieldType);
+        return position < 0 ? PackedDates.NO_DATE : PackedDates.decodeDate(_fields.get(position),0);
+        }
+     
+     
+    /** Retrieves the tag index, building it on first use.
+     * 
+     * @return the index.
+     */
+    private TagIndex tagIndex()
+        {
+        TagIndex index = _index;
+        if (index == null)
+            {
+            // racing threads may both build the index, but the copies are equal
+            index = new TagIndex(_fields);
+            _index = index;
+            }
+        return index;
+        }
+     
+     
+    /** Counts the fields matching the field type code.
+     * 
+     * @param FieldType The type code for the field.
+     * @return The number of matching fields.
+     */
+    public int countFields(CharSequence FieldType)
+        {
+        int count = 0;
+        for (int position = indexOf(FieldType); position >= 0; position = nextIndexOf(position))
+            ++count;
+        return count;
         }
  
      
@@ -183,4 +320,70 @@ public class SwiftBlock4 implements ISwiftBlock
         sb.append("\r\n-}");
         return sb.toString();       
         }
+     
+     
+    /** Where each tag is in the block: an open-addressed table holding
+     * the position (plus one) of the first field with each tag, and for
+     * every field the position (plus one) of the next field with its tag.
+     * The arrays are final and never change once built, so the index is
+     * safe to share between threads.
+     */
+    static private final class TagIndex
+        {
+        private final int [] _first;
+        private final int [] _next;
+         
+        TagIndex(List<SwiftField> Fields)
+            {
+            int size = 8;
+            while (size < Fields.size() * 2)
+                size <<= 1;
+            _first = new int[size];
+            _next = new int[Fields.size()];
+            
+            // the last field seen with each tag, to chain the next one on to
+            int [] last = new int[size];
+            for (int position = 0; position < Fields.size(); position++)
+                {
+                SwiftField field = Fields.get(position);
+                int slot = slot(field.tagHashCode(),size);
+                while (_first[slot] != 0 && !Fields.get(_first[slot] - 1).tagEquals(field))
+                    slot = (slot + 1) & (size - 1);
+                if (_first[slot] == 0)
+                    _first[slot] = position + 1;
+                else
+                    _next[last[slot] - 1] = position + 1;
+                last[slot] = position + 1;
+                }
+            }
+         
+         
+        /** Finds the first field with a tag.
+         * 
+         * @return its position or -1 if not found.
+         */
+        int find(List<SwiftField> Fields,CharSequence Tag)
+            {
+            int hash = 0;
+            for (int index = 0; index < Tag.length(); index++)
+                hash = 31 * hash + Tag.charAt(index);
+             
+            int mask = _first.length - 1;
+            for (int slot = slot(hash,_first.length); _first[slot] != 0; slot = (slot + 1) & mask)
+                {
+                if (Fields.get(_first[slot] - 1).tagEquals(Tag))
+                    return _first[slot] - 1;
+                }
+            return -1;
+            }
+         
+         
+        /** Picks the first slot to probe for a tag hash, spreading the
+         * hash before it is masked.
+         */
+        static private int slot(int Hash,int Size)
+            {
+            return (Hash * 0x9E3779B9 >>> 16) & (Size - 1);
+            }
+        }
     }
\ No newline at end of file
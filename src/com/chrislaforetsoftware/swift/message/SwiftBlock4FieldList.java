@@ -0,0 +1,70 @@
+/* SwiftBlock4FieldList.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+import java.util.AbstractList;
+ 
+import com.chrislaforetsoftware.util.Field;
+ 
+/** The field list handed back by a lazy parse.  It is a read-only view
+ * of the fields in block 4 of the message, so block 4 is only decoded
+ * when the list is first used.
+ */
+ 
+class SwiftBlock4FieldList extends AbstractList<Field>
+    {
+    private SwiftMessage _message;
+     
+    /** Creates a view of the block 4 fields of a message.
+     * 
+     * @param Message the lazily parsed message.
+     */
+    SwiftBlock4FieldList(SwiftMessage Message)
+        {
+        _message = Message;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public Field get(int Index)
+        {
+        return _message.getBlock4().getFields().get(Index);
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size()
+        {
+        return _message.getBlock4().getFields().size();
+        }
+    }
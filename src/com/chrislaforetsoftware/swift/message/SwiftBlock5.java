@@ -34,7 +34,7 @@ package com.chrislaforetsoftware.swift.message;
  
 public class SwiftBlock5 extends SwiftBlock3
     {
-    SwiftBlock5(String Contents)
+    SwiftBlock5(CharSequence Contents)
         {
         super(Contents);
         }
@@ -0,0 +1,228 @@
+/* SwiftBlockScan.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+/** Records where the blocks of a SWIFT message are in a single pass
+ * over its characters.  The count, order and dash-curly checks in
+ * SwiftMessageParser all run from these results, so a message is
+ * scanned once rather than once per check.
+ * <p>
+ * Block headers ("{1:" through "{5:") are counted wherever they appear,
+ * just as a search of the whole message would count them.  The end of a
+ * block is taken from the close curly that brings the nesting depth back
+ * to where the block was opened.
+ */
+ 
+class SwiftBlockScan
+    {
+    private int [] _count = new int[6];
+    private int [] _start = new int[6];
+    private int [] _end = new int[6];
+    private int _secondBlock1 = -1;
+    private int _firstBrace = -1;
+    private int _dashCurly = -1;
+    private int _block4DashCurly = -1;
+    private int _block4NextBrace = -1;
+    private int _maxDepth = 0;
+     
+    // the block whose header opened each nesting level, or 0 for none
+    private int [] _openBlock = new int[8];
+     
+    /** Creates a scan to be filled in by scan().  One scan can be
+     * reused from message to message.
+     */
+    SwiftBlockScan()
+        {
+        }
+     
+     
+    /** Scans a message from Offset to its end, replacing the results
+     * of any earlier scan.
+     * 
+     * @param Contents the message to scan.
+     * @param Offset the index to start scanning from.
+     */
+    void scan(CharSequence Contents,int Offset)
+        {
+        for (int block = 0; block < _start.length; block++)
+            {
+            _count[block] = 0;
+            _start[block] = -1;
+            _end[block] = -1;
+            }
+        _secondBlock1 = -1;
+        _firstBrace = -1;
+        _dashCurly = -1;
+        _block4DashCurly = -1;
+        _block4NextBrace = -1;
+        _maxDepth = 0;
+         
+        int [] openBlock = _openBlock;
+        int depth = 0;
+        int length = Contents.length();
+        for (int offset = Offset; offset < length; offset++)
+            {
+            char ch = Contents.charAt(offset);
+            if (ch == '{')
+                {
+                if (_firstBrace < 0)
+                    _firstBrace = offset;
+                if (_block4NextBrace < 0 && _start[4] >= 0)
+                    _block4NextBrace = offset;
+                 
+                int block = 0;
+                if (offset + 2 < length && Contents.charAt(offset + 2) == ':')
+                    {
+                    char number = Contents.charAt(offset + 1);
+                    if (number >= '1' && number <= '5')
+                        {
+                        block = number - '0';
+                        if (++_count[block] == 1)
+                            _start[block] = offset;
+                        else if (block == 1 && _count[block] == 2)
+                            _secondBlock1 = offset;
+                        }
+                    }
+                 
+                if (depth == openBlock.length)
+                    {
+                    int [] deeper = new int[depth * 2];
+                    System.arraycopy(openBlock,0,deeper,0,depth);
+                    openBlock = deeper;
+                    _openBlock = deeper;
+                    }
+                openBlock[depth++] = block;
+                if (depth > _maxDepth)
+                    _maxDepth = depth;
+                }
+            else if (ch == '}')
+                {
+                if (offset > Offset && Contents.charAt(offset - 1) == '-')
+                    {
+                    if (_dashCurly < 0)
+                        _dashCurly = offset - 1;
+                    if (_block4DashCurly < 0 && _start[4] >= 0)
+                        _block4DashCurly = offset - 1;
+                    }
+                 
+                if (depth > 0)
+                    {
+                    int block = openBlock[--depth];
+                    if (block > 0 && _end[block] < 0 && _start[block] >= 0)
+                        _end[block] = offset + 1;
+                    }
+                }
+            }
+        }
+     
+     
+    /** Returns the number of times a block's header appears.
+     * 
+     * @param Block the block number (1 to 5).
+     * @return the number of occurrences.
+     */
+    int count(int Block)
+        {
+        return _count[Block];
+        }
+     
+     
+    /** Returns the offset of the first header for a block.
+     * 
+     * @param Block the block number (1 to 5).
+     * @return the offset of the open curly or -1 if the block is missing.
+     */
+    int start(int Block)
+        {
+        return _start[Block];
+        }
+     
+     
+    /** Returns the offset just past the close curly of the first
+     * occurrence of a block.
+     * 
+     * @param Block the block number (1 to 5).
+     * @return the end offset or -1 if the block is missing or never closed.
+     */
+    int end(int Block)
+        {
+        return _end[Block];
+        }
+     
+     
+    /** Returns the offset of the second block 1 header, which is where
+     * the message itself starts when it has an ACK/UAK header in front.
+     * 
+     * @return the offset or -1 if there is no second block 1.
+     */
+    int secondBlock1()
+        {
+        return _secondBlock1;
+        }
+     
+     
+    /** Returns the offset of the first dash-curly anywhere in the message.
+     * 
+     * @return the offset of the dash or -1 if there is none.
+     */
+    int dashCurly()
+        {
+        return _dashCurly;
+        }
+     
+     
+    /** Returns the offset of the first dash-curly after the first
+     * block 4 header.  Without a block 4 this is the first one anywhere.
+     * 
+     * @return the offset of the dash or -1 if there is none.
+     */
+    int block4DashCurly()
+        {
+        return _start[4] >= 0 ? _block4DashCurly : _dashCurly;
+        }
+     
+     
+    /** Returns the offset of the first open curly after the first
+     * block 4 header.  Without a block 4 this is the first one anywhere.
+     * 
+     * @return the offset of the curly or -1 if there is none.
+     */
+    int block4NextBrace()
+        {
+        return _start[4] >= 0 ? _block4NextBrace : _firstBrace;
+        }
+     
+     
+    /** Returns the deepest level of curly brace nesting seen.
+     * 
+     * @return the maximum nesting depth.
+     */
+    int maxDepth()
+        {
+        return _maxDepth;
+        }
+    }
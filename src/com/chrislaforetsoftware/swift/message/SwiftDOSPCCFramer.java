@@ -0,0 +1,198 @@
+/* SwiftDOSPCCFramer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+ 
+import com.chrislaforetsoftware.util.MessageFramer;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Frames the messages in a SWIFT DOS-PCC file.  Each message starts
+ * on a 512 byte sector with a 0x01, ends with a 0x03 and is padded out to
+ * the end of its last sector.  After a message the framer jumps straight
+ * to the next sector boundary, so the padding is never read.  If there is
+ * no 0x01 on that boundary, it looks for the next 0x01 from the end of the
+ * message instead, which copes with files that are not sector aligned.
+ * <p>
+ * A 0x01 never appears inside a message, so a message that has lost
+ * its 0x03 ends at the next 0x01 (normally on the next sector) or at the
+ * end of the input, and cannot swallow the messages after it.  Its span then keeps the opening 0x01, which tells
+ * parse() to report the missing 0x03; a message that ends properly never
+ * starts with one.
+ */
+ 
+public class SwiftDOSPCCFramer extends MessageFramer
+    {
+    static public final int SECTOR_SIZE = 512;
+    static public final byte START_OF_MESSAGE = 0x01;
+    static public final byte END_OF_MESSAGE = 0x03;
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#frame(java.nio.ByteBuffer, int, int, boolean, int[])
+     */
+    @Override
+    public int frame(ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,int [] Span)
+        {
+        int start = From;
+        while (start < Limit && Buffer.get(start) != START_OF_MESSAGE)
+            ++start;
+        if (start >= Limit)
+            {
+            // nothing but padding, which does not need to be kept
+            Span[0] = -1;
+            return Limit;
+            }
+         
+        int end = start + 1;
+        while (end < Limit && Buffer.get(end) != END_OF_MESSAGE)
+            {
+            if (Buffer.get(end) == START_OF_MESSAGE)
+                {
+                // the next message starts before this one ended
+                Span[0] = start;
+                Span[1] = end;
+                return end;
+                }
+            ++end;
+            }
+        if (end >= Limit && !EndOfInput)
+            {
+            Span[0] = start + 1;
+            return -1;
+            }
+         
+        if (end >= Limit)
+            {
+            Span[0] = start;
+            Span[1] = Limit;
+            return Limit;
+            }
+         
+        Span[0] = start + 1;
+        Span[1] = end;
+        int next = start + (end + SECTOR_SIZE - start) / SECTOR_SIZE * SECTOR_SIZE;
+        if (next >= Limit || Buffer.get(next) != START_OF_MESSAGE)
+            next = end + 1;
+        return next;
+        }
+     
+     
+    /** Skips to just after the next 0x03, or to the next 0x01 if one
+     * comes first, since that starts the following message.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#resync(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public int resync(ByteBuffer Buffer,int From,int Limit)
+        {
+        for (int index = From; index < Limit; index++)
+            {
+            byte value = Buffer.get(index);
+            if (value == END_OF_MESSAGE)
+                return index + 1;
+            else if (value == START_OF_MESSAGE)
+                return index;
+            }
+        return -1;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#getFormat()
+     */
+    @Override
+    public MessageFormat getFormat()
+        {
+        return MessageFormat.SWIFT;
+        }
+     
+     
+    /** Returns the limit that SwiftDOSPCCReader sets, so any reader of this
+     * format skips a run-on message rather than holding it in memory.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#getMaximumMessageLength()
+     */
+    @Override
+    public int getMaximumMessageLength()
+        {
+        return SwiftDOSPCCReader.MAXIMUM_MESSAGE_LENGTH;
+        }
+     
+     
+    /** Parses a message, reporting one that was framed without its
+     * 0x03.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#parse(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public MessageParseResults parse(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        if (!isCutOff(Buffer,Offset,Length))
+            return SwiftMessageParser.parseMessage(Buffer,Offset,Length);
+        return cutOff(SwiftMessageParser.parseMessage(Buffer,Offset + 1,Length - 1));
+        }
+     
+     
+    /** Returns a SwiftParser, which decodes every block of each message
+     * and reports a missing 0x03 as parse() does.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#newReusableParser()
+     */
+    @Override
+    public ReusableParser newReusableParser()
+        {
+        final SwiftParser parser = new SwiftParser();
+        return new ReusableParser()
+            {
+            public MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length)
+                {
+                if (!isCutOff(Buffer,Offset,Length))
+                    return parser.parseMessage(Buffer,Offset,Length);
+                return cutOff(parser.parseMessage(Buffer,Offset + 1,Length - 1));
+                }
+            };
+        }
+     
+     
+    /** Tells whether frame() ended a message without its 0x03, which it
+     * marks by keeping the opening 0x01.
+     */
+    static private boolean isCutOff(ByteBuffer Buffer,int Offset,int Length)
+        {
+        return Length > 0 && Buffer.get(Offset) == START_OF_MESSAGE;
+        }
+     
+     
+    /** Adds the error for a message that had no 0x03. */
+    static private MessageParseResults cutOff(MessageParseResults Results)
+        {
+        Results.getMutableErrors().add("SWIFT message is missing its end of message (0x03) and was cut off at the next message or the end of the file.");
+        return Results;
+        }
+    }
@@ -0,0 +1,81 @@
+/* SwiftDOSPCCReader.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+ 
+import com.chrislaforetsoftware.util.MessageFileReader;
+ 
+/** Reads the messages of a SWIFT DOS-PCC file one at a time.  A file
+ * is memory-mapped a window at a time, and each message is handed to
+ * SwiftMessageParser as a span of the mapping, without copying it or
+ * reading the sector padding.  Memory use stays the same however large the
+ * file is, as long as the caller does not keep every message it reads.  A
+ * message longer than MAXIMUM_MESSAGE_LENGTH, which only happens when its
+ * 0x03 and the sectors after it are damaged, is skipped and reported as
+ * an error.
+ */
+ 
+public class SwiftDOSPCCReader extends MessageFileReader
+    {
+    static public final int MAXIMUM_MESSAGE_LENGTH = 256 * 1024;
+     
+    /** Opens a DOS-PCC file and reads it through memory-mapped windows.
+     * 
+     * @param File the DOS-PCC file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public SwiftDOSPCCReader(Path File) throws IOException
+        {
+        super(File,new SwiftDOSPCCFramer());
+        }
+     
+     
+    /** Reads a DOS-PCC file from a channel through memory-mapped windows.
+     * The channel should be positioned on a sector boundary.
+     * 
+     * @param Channel the channel to read from its current position.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public SwiftDOSPCCReader(FileChannel Channel) throws IOException
+        {
+        super(Channel,new SwiftDOSPCCFramer(),DEFAULT_WINDOW_SIZE);
+        }
+     
+     
+    /** Reads a DOS-PCC file from a stream.
+     * 
+     * @param Stream the stream to read.
+     */
+    public SwiftDOSPCCReader(InputStream Stream)
+        {
+        super(Stream,new SwiftDOSPCCFramer());
+        }
+    }
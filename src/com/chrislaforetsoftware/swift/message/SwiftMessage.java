@@ -25,20 +25,28 @@
  
 package com.chrislaforetsoftware.swift.message;
  
+import java.util.concurrent.atomic.AtomicReferenceArray;
+ 
+import com.chrislaforetsoftware.util.CharSpan;
+import com.chrislaforetsoftware.util.ParseSupport;
  
 /** Contains a completely parsed Swift message.
+ * <p>
+ * A message may also be created lazily by the parser, in which case it
+ * only holds the span of each block within the raw message and decodes
+ * a block the first time it is asked for.  Each block is decoded at most
+ * once, under the message's lock, so a lazy message can be shared between
+ * threads.  The raw message must not change while a lazy message is in use.
  * 
  * @author Christopher Laforet
  */
  
 public class SwiftMessage
     {
-    private SwiftBlock1 _block1;
-    private SwiftBlock2Inbound _block2Inbound;
-    private SwiftBlock2Outbound _block2Outbound;
-    private SwiftBlock3 _block3;
-    private SwiftBlock4 _block4;
-    private SwiftBlock5 _block5;
+    private final AtomicReferenceArray<ISwiftBlock> _blocks = new AtomicReferenceArray<ISwiftBlock>(6);
+    private final char _direction;
+    private final CharSequence _contents;
+    private final int [] _spans;
      
     /** Creates a SWIFT message from the blocks passed in.
      * 
@@ -51,14 +59,103 @@ public class SwiftMessage
     public SwiftMessage(SwiftBlock1 Block1,ISwiftBlock Block2,SwiftBlock3 Block3,
         SwiftBlock4 Block4,SwiftBlock5 Block5)
         {
-        _block1 = Block1;
-        if (Block2 instanceof SwiftBlock2Inbound)
-            _block2Inbound = (SwiftBlock2Inbound)Block2;
-        else
-            _block2Outbound = (SwiftBlock2Outbound)Block2;
-        _block3 = Block3;
-        _block4 = Block4;
-        _block5 = Block5;
+        _blocks.set(1,Block1);
+        _blocks.set(2,Block2);
+        _blocks.set(3,Block3);
+        _blocks.set(4,Block4);
+        _blocks.set(5,Block5);
+        _direction = Block2 instanceof SwiftBlock2Inbound ? 'I' : 'O';
+        _contents = null;
+        _spans = null;
+        }
+     
+     
+    /** Package-private constructor for a lazy message whose blocks are
+     * decoded from the raw message on first access.
+     * 
+     * @param Contents the raw message.
+     * @param Spans the start and end of the contents of blocks 1 to 5 in 
+     * pairs, with a start of -1 for a block that is not present.
+     * @param Direction the I or O taken from block 2.
+     */
+    SwiftMessage(CharSequence Contents,int [] Spans,char Direction)
+        {
+        _contents = Contents;
+        _spans = Spans;
+        _direction = Direction;
+        }
+     
+     
+    /** Decodes every block that has not been decoded yet.  Unlike the
+     * block accessors this lets the original exception through so that
+     * the parser can report it.
+     */
+    synchronized void decodeAll()
+        {
+        for (int block = 1; block <= 5; block++)
+            {
+            if (_blocks.get(block) == null && _spans[2 * block - 2] >= 0)
+                _blocks.set(block,decode(block));
+            }
+        }
+     
+     
+    /** Returns a block, decoding it first if this is a lazy message and
+     * no thread has asked for it yet.
+     * 
+     * @param Block the block number (1 to 5).
+     * @return the block or null if the message does not have one.
+     * @throws IllegalStateException if the block cannot be decoded.
+     */
+    private ISwiftBlock getBlock(int Block)
+        {
+        ISwiftBlock block = _blocks.get(Block);
+        if (block == null && _spans != null && _spans[2 * Block - 2] >= 0)
+            {
+            synchronized (this)
+                {
+                block = _blocks.get(Block);
+                if (block == null)
+                    {
+                    try
+                        {
+                        block = decode(Block);
+                        }
+                    catch (RuntimeException ee)
+                        {
+                        throw new IllegalStateException(ParseSupport.sentence("SWIFT message has an invalid block " + Block + ": " + ee.getMessage()),ee);
+                        }
+                    _blocks.set(Block,block);
+                    }
+                }
+            }
+        return block;
+        }
+     
+     
+    /** Parses a block from its span of the raw message.
+     * 
+     * @param Block the block number (1 to 5).
+     * @return the decoded block.
+     */
+    private ISwiftBlock decode(int Block)
+        {
+        CharSequence contents = CharSpan.of(_contents,_spans[2 * Block - 2],_spans[2 * Block - 1]);
+        switch (Block)
+            {
+            case 1:
+                return new SwiftBlock1(contents);
+            case 2:
+                if (_direction == 'I')
+                    return new SwiftBlock2Inbound(contents);
+                return new SwiftBlock2Outbound(contents);
+            case 3:
+                return new SwiftBlock3(contents);
+            case 4:
+                return new SwiftBlock4(contents);
+            default:
+                return new SwiftBlock5(contents);
+            }
         }
      
      
@@ -68,9 +165,9 @@ public class SwiftMessage
      */
     public String getMT()
         {
-        if (_block2Inbound != null)
-            return  _block2Inbound.getMT();
-        return _block2Outbound.getMT();
+        if (_direction == 'I')
+            return getBlock2Inbound().getMT();
+        return getBlock2Outbound().getMT();
         }
      
      
@@ -80,7 +177,7 @@ public class SwiftMessage
      */
     public SwiftBlock1 getBlock1()
         {
-        return _block1;
+        return (SwiftBlock1)getBlock(1);
         }
      
      
@@ -90,7 +187,7 @@ public class SwiftMessage
      */
     public SwiftBlock2Inbound getBlock2Inbound()
         {
-        return _block2Inbound;
+        return _direction == 'I' ? (SwiftBlock2Inbound)getBlock(2) : null;
         }
      
      
@@ -100,7 +197,7 @@ public class SwiftMessage
      */
     public SwiftBlock2Outbound getBlock2Outbound()
         {
-        return _block2Outbound;
+        return _direction == 'O' ? (SwiftBlock2Outbound)getBlock(2) : null;
         }
      
      
@@ -110,7 +207,7 @@ public class SwiftMessage
      */
     public SwiftBlock3 getBlock3()
         {
-        return _block3;
+        return (SwiftBlock3)getBlock(3);
         }
      
      
@@ -120,7 +217,7 @@ public class SwiftMessage
      */
     public SwiftBlock4 getBlock4()
         {
-        return _block4;
+        return (SwiftBlock4)getBlock(4);
         }
      
      
@@ -130,7 +227,7 @@ public class SwiftMessage
      */
     public SwiftBlock5 getBlock5()
         {
-        return _block5;
+        return (SwiftBlock5)getBlock(5);
         }
      
      
@@ -140,7 +237,7 @@ public class SwiftMessage
      */
     public char getDirection()
         {
-        return _block2Inbound != null ? 'I' : 'O';
+        return _direction;
         }
  
  
@@ -151,10 +248,10 @@ public class SwiftMessage
     public String getSenderBIC12()
         {
         if (getDirection() == 'I')
-            return _block1.getBIC12();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBIC12();
-        return _block2Outbound.getBIC12();
+            return getBlock1().getBIC12();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBIC12();
+        return getBlock2Outbound().getBIC12();
         }
  
  
@@ -165,10 +262,10 @@ public class SwiftMessage
     public String getSenderBIC11()
         {
         if (getDirection() == 'I')
-            return _block1.getBIC11();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBIC11();
-        return _block2Outbound.getBIC11();
+            return getBlock1().getBIC11();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBIC11();
+        return getBlock2Outbound().getBIC11();
         }
  
  
@@ -179,10 +276,10 @@ public class SwiftMessage
     public String getSenderBIC8()
         {
         if (getDirection() == 'I')
-            return _block1.getBIC8();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBIC8();
-        return _block2Outbound.getBIC8();
+            return getBlock1().getBIC8();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBIC8();
+        return getBlock2Outbound().getBIC8();
         }
  
  
@@ -193,10 +290,10 @@ public class SwiftMessage
     public char getSenderLT()
         {
         if (getDirection() == 'I')
-            return _block1.getLT();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getLT();
-        return _block2Outbound.getLT();
+            return getBlock1().getLT();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getLT();
+        return getBlock2Outbound().getLT();
         }
  
  
@@ -207,10 +304,10 @@ public class SwiftMessage
     public String getSenderBranch()
         {
         if (getDirection() == 'I')
-            return _block1.getBranch();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBranch();
-        return _block2Outbound.getBranch();
+            return getBlock1().getBranch();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBranch();
+        return getBlock2Outbound().getBranch();
         }
  
  
@@ -221,10 +318,10 @@ public class SwiftMessage
     public String getReceiverBIC12()
         {
         if (getDirection() == 'O')
-            return _block1.getBIC12();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBIC12();
-        return _block2Outbound.getBIC12();
+            return getBlock1().getBIC12();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBIC12();
+        return getBlock2Outbound().getBIC12();
         }
  
  
@@ -235,10 +332,10 @@ public class SwiftMessage
     public String getReceiverBIC11()
         {
         if (getDirection() == 'O')
-            return _block1.getBIC11();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBIC11();
-        return _block2Outbound.getBIC11();
+            return getBlock1().getBIC11();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBIC11();
+        return getBlock2Outbound().getBIC11();
         }
  
  
@@ -249,10 +346,10 @@ public class SwiftMessage
     public String getReceiverBIC8()
         {
         if (getDirection() == 'O')
-            return _block1.getBIC8();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBIC8();
-        return _block2Outbound.getBIC8();
+            return getBlock1().getBIC8();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBIC8();
+        return getBlock2Outbound().getBIC8();
         }
  
  
@@ -263,10 +360,10 @@ public class SwiftMessage
     public char getReceiverLT()
         {
         if (getDirection() == 'O')
-            return _block1.getLT();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getLT();
-        return _block2Outbound.getLT();
+            return getBlock1().getLT();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getLT();
+        return getBlock2Outbound().getLT();
         }
  
  
@@ -277,10 +374,10 @@ public class SwiftMessage
     public String getReceiverBranch()
         {
         if (getDirection() == 'I')
-            return _block1.getBranch();
-        else if (_block2Inbound != null)
-            return _block2Inbound.getBranch();
-        return _block2Outbound.getBranch();
+            return getBlock1().getBranch();
+        else if (_direction == 'I')
+            return getBlock2Inbound().getBranch();
+        return getBlock2Outbound().getBranch();
         }
  
      
@@ -293,16 +390,12 @@ public class SwiftMessage
         {
         StringBuilder sb  = new StringBuilder(2048);
  
-        sb.append(_block1.toString());
-        if (_block2Inbound != null)
-            sb.append(_block2Inbound.toString());
-        else
-            sb.append(_block2Outbound.toString());
-        if (_block3 != null)
-            sb.append(_block3.toString());
-        sb.append(_block4.toString());
-        if (_block5 != null)
-            sb.append(_block5.toString());
+        for (int index = 1; index <= 5; index++)
+            {
+            ISwiftBlock block = getBlock(index);
+            if (block != null)
+                sb.append(block.toString());
+            }
          
         return sb.toString();
         }
@@ -26,16 +26,26 @@
 package com.chrislaforetsoftware.swift.message;
  
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
  
 import com.chrislaforetsoftware.swift.util.SwiftField;
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.ErrorList;
 import com.chrislaforetsoftware.util.Field;
+import com.chrislaforetsoftware.util.MessageBatchParser;
+import com.chrislaforetsoftware.util.MessageFormat;
 import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.MessageSpliterator;
+import com.chrislaforetsoftware.util.ParseSupport;
  
 /** Attempts to parse a SWIFT message into its components.
  * This does not split RJE or DOS-PCC files, it is expecting
- * a single message.  Also, this code does not handle the
+ * a single message; use SwiftRJEReader or SwiftDOSPCCReader to read
+ * the messages of those files.  Also, this code does not handle the
  * ACK/UAK header which can be prepended to SWIFT messages.
  * 
  * @author Christopher Laforet
@@ -52,10 +62,164 @@ public class SwiftMessageParser
      */
     static public MessageParseResults parseMessage(String Contents) throws IOException
         {
-        List<String> errorList = new ArrayList<String>();
+        return parseMessage((CharSequence)Contents);
+        }
+     
+     
+    /** Attempts to parse a SWIFT message held in a byte buffer without
+     * first decoding it into a String.  The buffer may be a heap or a
+     * direct buffer, and its position and limit are left alone.  The
+     * blocks and fields of the returned message are views of the buffer,
+     * so the region must not be overwritten while the message is in use.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return parseMessage(new ByteCharSequence(Buffer,Offset,Length));
+        }
+     
+     
+    /** Attempts to parse a SWIFT message from any character sequence,
+     * such as a CharBuffer wrapped around a char array.  Field values in
+     * the message refer back to the sequence rather than copying it.
+     * 
+     * @param Contents the characters of a SWIFT message.
+     * @return a parsed message if successful contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessage(CharSequence Contents) throws IOException
+        {
+        return parseMessage(Contents,false);
+        }
+     
+     
+    /** Checks the block structure of a SWIFT message but leaves the
+     * blocks themselves to be decoded when they are first asked for.
+     * This suits callers such as routers that only look at the MT and
+     * the BICs in blocks 1 and 2.  The field list in the results is
+     * a view of block 4, so block 4 is decoded the first time the list
+     * is used.
+     * <p>
+     * Problems inside a block are not reported in the error list of a
+     * lazy parse.  Instead, the block accessors on the message throw an
+     * IllegalStateException when a block cannot be decoded.
+     * 
+     * @param Contents the characters of a SWIFT message.
+     * @return a lazily decoded message if the structure is correct contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessageLazily(CharSequence Contents) throws IOException
+        {
+        return parseMessage(Contents,true);
+        }
+     
+     
+    /** Checks the block structure of a SWIFT message held in a byte buffer
+     * and leaves its blocks to be decoded on first access, as for
+     * parseMessageLazily(CharSequence).  The region of the buffer must not
+     * be overwritten while the message is in use.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return a lazily decoded message if the structure is correct contained in a MessageParseResults object.
+     * @throws IOException if an error occurs while parsing.
+     */
+    static public MessageParseResults parseMessageLazily(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return parseMessage(new ByteCharSequence(Buffer,Offset,Length),true);
+        }
+     
+     
+    /** Parses every message of a SWIFT RJE file held in a region of a
+     * buffer, splitting the region into messages and parsing them in
+     * parallel.  The messages of a DOS-PCC file can be parsed with
+     * MessageBatchParser and a SwiftDOSPCCFramer.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in input order.
+     * @throws IOException if an error occurs while parsing.
+     * @see MessageBatchParser
+     */
+    static public List<MessageParseResults> parseAll(ByteBuffer Buffer,int Offset,int Length,int Parallelism) throws IOException
+        {
+        return MessageBatchParser.parseAll(Buffer,Offset,Length,new SwiftRJEFramer(),Parallelism);
+        }
+     
+     
+    /** Parses every message of a SWIFT RJE file, splitting the file
+     * into messages and parsing them in parallel.
+     * 
+     * @param File the file to parse.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be read or an error occurs while parsing.
+     * @see MessageBatchParser
+     */
+    static public List<MessageParseResults> parseAll(Path File,int Parallelism) throws IOException
+        {
+        return MessageBatchParser.parseAll(File,new SwiftRJEFramer(),Parallelism);
+        }
+     
+     
+    /** Returns a stream over the messages of a SWIFT RJE file, which
+     * can be split at message boundaries for a parallel stream.  Each
+     * message is parsed when the stream reaches it.
+     * 
+     * @param File the file to read.
+     * @param Parallel true for a parallel stream.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be mapped.
+     * @see MessageSpliterator
+     */
+    static public Stream<MessageParseResults> streamAll(Path File,boolean Parallel) throws IOException
+        {
+        return MessageSpliterator.stream(File,new SwiftRJEFramer(),Parallel);
+        }
+     
+     
+    /** Runs the parse, either decoding every block or leaving the
+     * blocks to be decoded on first access.
+     * 
+     * @param Contents the characters of a SWIFT message.
+     * @param Lazy true to defer decoding the blocks.
+     * @return the results of the parse.
+     */
+    static private MessageParseResults parseMessage(CharSequence Contents,boolean Lazy)
+        {
+        ErrorList errors = ErrorList.scratch();
+        MessageParseResults results = parseMessage(Contents,Lazy,errors,new SwiftBlockScan(),null);
+        results.reset(results.getMessage(),results.getFields(),ErrorList.keep(errors));
+        return results;
+        }
+     
+     
+    /** Runs the parse with an error list, block scan and results
+     * supplied by the caller, so that SwiftParser can reuse them.
+     * 
+     * @param Contents the characters of a SWIFT message.
+     * @param Lazy true to defer decoding the blocks.
+     * @param ErrorList the empty list to add errors to.
+     * @param Scan the scan to record the blocks in.
+     * @param Results the results to reset and return, or null for new ones.
+     * @return the results of the parse.
+     */
+    static MessageParseResults parseMessage(CharSequence Contents,boolean Lazy,List<String> ErrorList,SwiftBlockScan Scan,MessageParseResults Results)
+        {
+        List<String> errorList = ErrorList;
          
-        String contents = Contents;
-        int block1Elements = findAndCountMatches(contents,"{1:");
+        CharSequence contents = Contents;
+        SwiftBlockScan scan = Scan;
+        scan.scan(contents,0);
+        int block1Elements = scan.count(1);
         if (block1Elements < 1)
             errorList.add("Missing block 1 in message.");
         else if (block1Elements > 1)
@@ -63,13 +227,14 @@ public class SwiftMessageParser
             errorList.add("Too many block 1 entries in message.  Does this have an ACK/UAK header?");
  
             // determine if we have an ACK/UAK then remove it
-            int index = contents.indexOf("{1:F01");
+            int index = scan.secondBlock1();
             if (block1Elements == 2 && 
-                (contents.startsWith("{1:F21") || contents.startsWith("{1:F31")) && 
-                index >= 0)
+                (ParseSupport.regionMatches(contents,0,"{1:F21") || ParseSupport.regionMatches(contents,0,"{1:F31")) && 
+                ParseSupport.regionMatches(contents,index,"{1:F01"))
                 {
-                contents = contents.substring(index);
-                block1Elements = findAndCountMatches(contents,"{1:");       // recount block 1s
+                // rescan from the message itself, leaving the header behind
+                scan.scan(contents,index);
+                block1Elements = scan.count(1);       // recount block 1s
  
                 if (block1Elements > 1)
                     errorList.add("SWIFT message contains more than one block 1 even after removing header.. Unable to parse.");
@@ -80,10 +245,10 @@ public class SwiftMessageParser
  
         if (block1Elements == 1)
             {
-            int block2Elements = findAndCountMatches(contents,"{2:");
-            int block3Elements = findAndCountMatches(contents,"{3:");
-            int block4Elements = findAndCountMatches(contents,"{4:");
-            int block5Elements = findAndCountMatches(contents,"{5:");
+            int block2Elements = scan.count(2);
+            int block3Elements = scan.count(3);
+            int block4Elements = scan.count(4);
+            int block5Elements = scan.count(5);
      
             boolean canParse = true;
             if (block2Elements < 1)
@@ -113,7 +278,7 @@ public class SwiftMessageParser
                 canParse = true;
                 }
      
-            if (contents.indexOf("-}") < 0)
+            if (scan.dashCurly() < 0)
                 {
                 errorList.add("SWIFT message is missing a dash-curly on message.");
                 canParse = true;
@@ -122,9 +287,8 @@ public class SwiftMessageParser
                 {
                 // make sure that block 4 is correctly started and ended without 
                 // intervening open curly brace
-                int block4 = contents.indexOf("{4:");
-                int dashCurly = contents.indexOf("-}",block4 + 1);
-                int nextBrace = contents.indexOf("{",block4 + 1);
+                int dashCurly = scan.block4DashCurly();
+                int nextBrace = scan.block4NextBrace();
                 if (dashCurly < 0 || (nextBrace >= 0 && dashCurly > nextBrace))
                     {
                     errorList.add("SWIFT message is missing a dash-curly on block 4.");
@@ -135,9 +299,9 @@ public class SwiftMessageParser
             // check order of blocks is correct (1, 2, 3, 4, 5)
             if (canParse)
                 {
-                int block1Offset = contents.indexOf("{1:");
-                int block2Offset = contents.indexOf("{2:");
-                int block4Offset = contents.indexOf("{4:");
+                int block1Offset = scan.start(1);
+                int block2Offset = scan.start(2);
+                int block4Offset = scan.start(4);
      
                 if (block1Offset > block2Offset)
                     {
@@ -157,7 +321,7 @@ public class SwiftMessageParser
      
                 if (block3Elements == 1)
                     {
-                    int block3Offset = contents.indexOf("{3:");
+                    int block3Offset = scan.start(3);
                     if (block1Offset > block3Offset)
                         {
                         errorList.add("SWIFT message's block 1 does not occur before block 3.");
@@ -176,7 +340,7 @@ public class SwiftMessageParser
                     }
                 if (block5Elements == 1)
                     {
-                    int block5Offset = contents.indexOf("{5:");
+                    int block5Offset = scan.start(5);
                     if (block1Offset > block5Offset)
                         {
                         errorList.add("SWIFT message's block 1 does not occur before block 5.");
@@ -199,91 +363,92 @@ public class SwiftMessageParser
             if (canParse)
                 {
                 // strip the parts
-                int offset1 = contents.indexOf("{1:");
-                int offset2 = contents.indexOf("{2:");
-                int offset3 = contents.indexOf("{3:");
-                int offset4 = contents.indexOf("{4:");
-                int offset5 = contents.indexOf("{5:");
-     
-                String block1Contents = contents.substring(offset1,offset2).trim();
-                String block2Contents = null;
-                String block3Contents = null;
-                if (offset3 >= 0)
-                    {
-                    block2Contents = contents.substring(offset2,offset3).trim();
-                    block3Contents = contents.substring(offset3,offset4).trim();
-                    }
-                else
-                    block2Contents = contents.substring(offset2,offset4).trim();
-                String block4Contents = null;
-                String block5Contents = null;
-                if (offset5 >= 0)
-                    {
-                    block4Contents = contents.substring(offset4,offset5).trim();
-                    block5Contents = contents.substring(offset5).trim();
-                    }
-                else
-                    block4Contents = contents.substring(offset4).trim();
+                int offset1 = scan.start(1);
+                int offset2 = scan.start(2);
+                int offset3 = scan.start(3);
+                int offset4 = scan.start(4);
+                int offset5 = scan.start(5);
      
                 try
                     {
-                    SwiftBlock1 block1 = new SwiftBlock1(block1Contents.substring(3,block1Contents.length() - 1));
+                    int [] spans = new int[10];
+                    blockSpan(contents,offset1,offset2,3,1,spans,1);
                      
-                    ISwiftBlock block2 = null;
-                    if (block2Contents.charAt(3) == 'I')
-                        block2 = new SwiftBlock2Inbound(block2Contents.substring(3,block2Contents.length() - 1));
-                    else if (block2Contents.charAt(3) == 'O')
-                        block2 = new SwiftBlock2Outbound(block2Contents.substring(3,block2Contents.length() - 1));
-                    else
+                    // block 2 runs up to block 3 if there is one, otherwise to block 4
+                    blockSpan(contents,offset2,offset3 >= 0 ? offset3 : offset4,3,1,spans,2);
+                    char direction = contents.charAt(spans[2]);
+                    if (direction != 'I' && direction != 'O')
                         throw new Exception("SWIFT message has an invalid block 2: Neither I nor O.");
                      
-                    SwiftBlock3 block3 = null;
-                    if (block3Contents != null)
-                        block3 = new SwiftBlock3(block3Contents.substring(3,block3Contents.length() - 1));
+                    spans[4] = -1;
+                    if (offset3 >= 0)
+                        blockSpan(contents,offset3,offset4,3,1,spans,3);
                      
-                    SwiftBlock4 block4 = new SwiftBlock4(block4Contents.substring(5,block4Contents.length() - 2));
+                    blockSpan(contents,offset4,offset5 >= 0 ? offset5 : contents.length(),5,2,spans,4);
                      
-                    SwiftBlock5 block5 = null;
-                    if (block5Contents != null)
-                        block5 = new SwiftBlock5(block5Contents.substring(3,block5Contents.length() - 1));
+                    spans[8] = -1;
+                    if (offset5 >= 0)
+                        blockSpan(contents,offset5,contents.length(),3,1,spans,5);
                      
-                    SwiftMessage msg = new SwiftMessage(block1,block2,block3,block4,block5);
+                    SwiftMessage msg = new SwiftMessage(contents,spans,direction);
+                    if (Lazy)
+                        return results(Results,msg,new SwiftBlock4FieldList(msg),errorList);
                      
+                    msg.decodeAll();
                     List<Field> fields = new ArrayList<Field>();
-                    for (SwiftField field : block4.getFields())
+                    for (SwiftField field : msg.getBlock4().getFields())
                         fields.add(field);
-                    return new MessageParseResults(msg,fields,errorList);
+                    return results(Results,msg,fields,errorList);
                     }
                 catch (Exception ee)
                     {
-                    errorList.add("SWIFT message parser failed with an exception: " + ee.getMessage() + ".");
+                    errorList.add(ParseSupport.sentence("SWIFT message parser failed with an exception: " + ee.getMessage()));
                     }
                 }
             }
          
 //FedWireMessage message = new FedWireMessage(fieldList,support.errorList);
-        return new MessageParseResults(null,new ArrayList<Field>(),errorList);
+        return results(Results,null,new ArrayList<Field>(),errorList);
         }
- 
      
-    /** Counts the number of occurrences of the needle pattern in the
-     * haystack.
+     
+    /** Fills in the results of a parse.
      * 
-     * @param Haystack the string to search.
-     * @param Needle the pattern to find.
-     * @return the total number of occurrences of the needle in the haystack.
+     * @param Results the results to reuse, or null to create them.
+     * @param Message the parsed message or null.
+     * @param Fields the fields of block 4.
+     * @param Errors the errors found.
+     * @return the results.
      */
-    static private int findAndCountMatches(String Haystack,String Needle)
+    static private MessageParseResults results(MessageParseResults Results,SwiftMessage Message,List<Field> Fields,List<String> Errors)
         {
-        int total = 0;
-        for (int offset = -1; offset < Haystack.length();)
-            {
-            offset = Haystack.indexOf(Needle,offset + 1);
-            if (offset < 0)
-                break;
-            ++total;
-            }
+        if (Results == null)
+            return new MessageParseResults(Message,Fields,Errors,MessageFormat.SWIFT);
+        Results.reset(Message,Fields,Errors);
+        return Results;
+        }
  
-        return total;
+     
+    /** Trims the whitespace around a block and then strips its header
+     * and trailer, recording where what is left starts and ends.
+     * 
+     * @param Contents the whole message.
+     * @param Start the offset of the block's open curly.
+     * @param End the offset where the next block starts.
+     * @param Header the number of header characters to strip (e.g. "{1:").
+     * @param Trailer the number of trailing characters to strip (e.g. "}").
+     * @param Spans the start and end pairs for blocks 1 to 5.
+     * @param Block the number of the block being recorded.
+     */
+    static private void blockSpan(CharSequence Contents,int Start,int End,int Header,int Trailer,int [] Spans,int Block)
+        {
+        if (End < Start)
+            throw new IndexOutOfBoundsException("SWIFT block at offset " + Start + " ends before it starts.");
+        int start = ParseSupport.trimStart(Contents,Start,End) + Header;
+        int end = ParseSupport.trimEnd(Contents,start - Header,End) - Trailer;
+        if (start > end)
+            throw new IndexOutOfBoundsException("SWIFT block at offset " + Start + " is too short.");
+        Spans[2 * Block - 2] = start;
+        Spans[2 * Block - 1] = end;
         }
     }
@@ -0,0 +1,148 @@
+/* SwiftParser.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+import java.nio.ByteBuffer;
+ 
+import com.chrislaforetsoftware.util.ByteCharSequence;
+import com.chrislaforetsoftware.util.ErrorList;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** A SWIFT parser object that keeps its working state from one message
+ * to the next.  It gives the same results as SwiftMessageParser, but the
+ * block scan, the error list, the results and the view over a byte buffer
+ * are created once and reset for each message.  The message and its blocks are still
+ * built for each message; parseMessageLazily() leaves the blocks to be
+ * decoded only when they are asked for, which is the cheapest way to
+ * route on blocks 1 and 2.  A lazy message from a byte buffer gets a view
+ * of its own, so it can be kept past the next call as long as the bytes
+ * it was parsed from do not change.
+ * <p>
+ * The results, and in particular the error list, belong to the parser and
+ * are only valid until the next call; copy out what must be kept.  A 
+ * parser is not thread-safe.  Use one per thread, for instance through
+ * forCurrentThread().
+ */
+ 
+public class SwiftParser
+    {
+    static private final ThreadLocal<SwiftParser> _perThread = new ThreadLocal<SwiftParser>()
+        {
+        @Override
+        protected SwiftParser initialValue()
+            {
+            return new SwiftParser();
+            }
+        };
+    
+    private ErrorList _errors = new ErrorList();
+    private SwiftBlockScan _scan = new SwiftBlockScan();
+    private ByteCharSequence _view;
+    private MessageParseResults _results = new MessageParseResults(null,null,null,MessageFormat.SWIFT);
+    
+    /** Returns the parser that belongs to the calling thread, creating
+     * it the first time.
+     * 
+     * @return this thread's parser.
+     */
+    static public SwiftParser forCurrentThread()
+        {
+        return _perThread.get();
+        }
+    
+    
+    /** Parses a SWIFT message held in a byte buffer, decoding every
+     * block.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessage(ByteBuffer Buffer,int Offset,int Length)
+        {
+        return parseMessage(view(Buffer,Offset,Length));
+        }
+    
+    
+    /** Parses a SWIFT message from any character sequence, decoding
+     * every block.
+     * 
+     * @param Contents the characters of a SWIFT message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessage(CharSequence Contents)
+        {
+        _errors.clear();
+        return SwiftMessageParser.parseMessage(Contents,false,_errors,_scan,_results);
+        }
+    
+    
+    /** Checks the block structure of a SWIFT message held in a byte
+     * buffer and leaves its blocks to be decoded on first access, as
+     * SwiftMessageParser.parseMessageLazily() does.  The message keeps
+     * the view it decodes its blocks from, so it is not the parser's
+     * reused view.
+     * 
+     * @param Buffer the buffer containing the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessageLazily(ByteBuffer Buffer,int Offset,int Length)
+        {
+        return parseMessageLazily(new ByteCharSequence(Buffer,Offset,Length));
+        }
+    
+    
+    /** Checks the block structure of a SWIFT message and leaves its
+     * blocks to be decoded on first access.
+     * 
+     * @param Contents the characters of a SWIFT message.
+     * @return the results, valid until the next call on this parser.
+     */
+    public MessageParseResults parseMessageLazily(CharSequence Contents)
+        {
+        _errors.clear();
+        return SwiftMessageParser.parseMessage(Contents,true,_errors,_scan,_results);
+        }
+    
+    
+    /** Moves the parser's view over to a new message.
+     * 
+     * @return the view.
+     */
+    private ByteCharSequence view(ByteBuffer Buffer,int Offset,int Length)
+        {
+        if (_view == null)
+            _view = new ByteCharSequence(Buffer,Offset,Length);
+        else
+            _view.reset(Buffer,Offset,Length);
+        return _view;
+        }
+    }
@@ -0,0 +1,135 @@
+/* SwiftRJEFramer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+ 
+import com.chrislaforetsoftware.util.MessageFramer;
+import com.chrislaforetsoftware.util.MessageFormat;
+import com.chrislaforetsoftware.util.MessageParseResults;
+ 
+/** Frames the messages in a SWIFT RJE file, where the messages are
+ * separated by a '$'.  A '$' is not in the SWIFT character set, so it
+ * cannot turn up inside a message.  White space around each message is
+ * dropped and empty messages, such as after a trailing '$', are skipped.
+ */
+ 
+public class SwiftRJEFramer extends MessageFramer
+    {
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#frame(java.nio.ByteBuffer, int, int, boolean, int[])
+     */
+    @Override
+    public int frame(ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,int [] Span)
+        {
+        int start = From;
+        while (start < Limit && isSpace(Buffer.get(start)))
+            ++start;
+        int index = start;
+        while (index < Limit && Buffer.get(index) != '$')
+            ++index;
+        if (index >= Limit && !EndOfInput)
+            {
+            Span[0] = start < Limit ? start : -1;
+            return -1;
+            }
+         
+        int end = index;
+        while (end > start && isSpace(Buffer.get(end - 1)))
+            --end;
+        Span[0] = end > start ? start : -1;
+        Span[1] = end;
+        return index < Limit ? index + 1 : Limit;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#resync(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public int resync(ByteBuffer Buffer,int From,int Limit)
+        {
+        for (int index = From; index < Limit; index++)
+            {
+            if (Buffer.get(index) == '$')
+                return index + 1;
+            }
+        return -1;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#getFormat()
+     */
+    @Override
+    public MessageFormat getFormat()
+        {
+        return MessageFormat.SWIFT;
+        }
+     
+     
+    /** Returns the limit that SwiftRJEReader sets, so any reader of this
+     * format skips a run-on message rather than holding it in memory.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#getMaximumMessageLength()
+     */
+    @Override
+    public int getMaximumMessageLength()
+        {
+        return SwiftRJEReader.MAXIMUM_MESSAGE_LENGTH;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#parse(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public MessageParseResults parse(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return SwiftMessageParser.parseMessage(Buffer,Offset,Length);
+        }
+     
+     
+    /** Returns a SwiftParser, which decodes every block of each message
+     * as parse() does.
+     * 
+     * @see com.chrislaforetsoftware.util.MessageFramer#newReusableParser()
+     */
+    @Override
+    public ReusableParser newReusableParser()
+        {
+        final SwiftParser parser = new SwiftParser();
+        return new ReusableParser()
+            {
+            public MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length)
+                {
+                return parser.parseMessage(Buffer,Offset,Length);
+                }
+            };
+        }
+    }
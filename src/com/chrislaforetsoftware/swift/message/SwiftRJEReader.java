@@ -0,0 +1,85 @@
+/* SwiftRJEReader.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.swift.message;
+ 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+ 
+import com.chrislaforetsoftware.util.MessageFileReader;
+ 
+/** Reads the messages of a SWIFT RJE file one at a time, without
+ * loading the file into memory.  Each call to next() returns the results
+ * of SwiftMessageParser.parseMessage() for one '$'-separated message.  A
+ * message longer than MAXIMUM_MESSAGE_LENGTH, such as one whose '$' was
+ * lost, is skipped and reported as an error, and reading picks up again
+ * after the next '$'.
+ * <pre>
+ * try (SwiftRJEReader reader = new SwiftRJEReader(path))
+ *     {
+ *     while (reader.hasNext())
+ *         route((SwiftMessage)reader.next().getMessage());
+ *     }
+ * </pre>
+ */
+ 
+public class SwiftRJEReader extends MessageFileReader
+    {
+    static public final int MAXIMUM_MESSAGE_LENGTH = 256 * 1024;
+     
+    /** Opens an RJE file and reads it through memory-mapped windows.
+     * 
+     * @param File the RJE file.
+     * @throws IOException if the file cannot be opened.
+     */
+    public SwiftRJEReader(Path File) throws IOException
+        {
+        super(File,new SwiftRJEFramer());
+        }
+     
+     
+    /** Reads an RJE file from a channel through memory-mapped windows.
+     * 
+     * @param Channel the channel to read from its current position.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public SwiftRJEReader(FileChannel Channel) throws IOException
+        {
+        super(Channel,new SwiftRJEFramer(),DEFAULT_WINDOW_SIZE);
+        }
+     
+     
+    /** Reads an RJE file from a stream.
+     * 
+     * @param Stream the stream to read.
+     */
+    public SwiftRJEReader(InputStream Stream)
+        {
+        super(Stream,new SwiftRJEFramer());
+        }
+    }
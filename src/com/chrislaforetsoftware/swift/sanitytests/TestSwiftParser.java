@@ -25,11 +25,37 @@
  
 package com.chrislaforetsoftware.swift.sanitytests;
  
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+ 
 import com.chrislaforetsoftware.swift.message.SwiftBlock2Inbound;
 import com.chrislaforetsoftware.swift.message.SwiftBlock2Outbound;
+import com.chrislaforetsoftware.swift.message.SwiftBlock4;
+import com.chrislaforetsoftware.swift.message.SwiftDOSPCCFramer;
+import com.chrislaforetsoftware.swift.message.SwiftDOSPCCReader;
 import com.chrislaforetsoftware.swift.message.SwiftMessage;
 import com.chrislaforetsoftware.swift.message.SwiftMessageParser;
+import com.chrislaforetsoftware.swift.message.SwiftParser;
+import com.chrislaforetsoftware.swift.message.SwiftRJEFramer;
+import com.chrislaforetsoftware.swift.message.SwiftRJEReader;
+import com.chrislaforetsoftware.swift.util.SwiftField;
+import com.chrislaforetsoftware.util.Amount;
+import com.chrislaforetsoftware.util.CurrencyCodes;
+import com.chrislaforetsoftware.util.MessageBatchParser;
+import com.chrislaforetsoftware.util.MessageFileReader;
 import com.chrislaforetsoftware.util.MessageParseResults;
+import com.chrislaforetsoftware.util.PackedDates;
  
 import junit.framework.TestCase;
  
@@ -119,6 +145,70 @@ public class TestSwiftParser extends TestCase
         assertEquals(message.getBlock4().getField("21"),"A10112090QQ1-150");
         assertEquals(message.getBlock4().getField("58A"),"QRSTJP90MNO");
         }
+     
+    public void testPackedDates() throws Exception
+        {
+        // every day of the two digit year window matches java.time
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyMMdd");
+        for (LocalDate date = LocalDate.of(1980,1,1); date.getYear() < 2080; date = date.plusDays(1))
+            assertEquals(PackedDates.decodeDate(date.format(format),0),date.toEpochDay());
+         
+        String [] invalid = { "100230", "090229", "101301", "101100", "10113", "1011X1", "" };
+        for (String date : invalid)
+            assertEquals(PackedDates.decodeDate(date,0),PackedDates.NO_DATE);
+        assertEquals(PackedDates.decodeDate("000229",0),LocalDate.of(2000,2,29).toEpochDay());
+        assertEquals(PackedDates.decodeTime("2359",0),23 * 60 + 59);
+        assertEquals(PackedDates.decodeTime("2400",0),PackedDates.NO_TIME);
+        assertEquals(PackedDates.decodeTime("1260",0),PackedDates.NO_TIME);
+         
+        SwiftMessage message = (SwiftMessage)SwiftMessageParser.parseMessage(GoodSwiftMT202Message).getMessage();
+        assertEquals(message.getBlock4().getValueDate("32A"),LocalDate.of(2010,11,1).toEpochDay());
+        assertEquals(message.getBlock4().getValueDate("58A"),PackedDates.NO_DATE);
+        assertEquals(message.getBlock4().getValueDate("30"),PackedDates.NO_DATE);
+        }
+     
+    public void testAmounts() throws Exception
+        {
+        SwiftMessage message = (SwiftMessage)SwiftMessageParser.parseMessage(GoodSwiftMT202Message).getMessage();
+        Amount amount = new Amount();
+        assertTrue(message.getBlock4().getAmount("32A",amount));
+        assertEquals(amount.getMinorUnits(),1010050L);
+        assertEquals(amount.getCurrency(),CurrencyCodes.USD);
+        assertEquals(amount.getScale(),2);
+        assertEquals(amount.toString(),"USD 10100.50");
+        assertFalse(message.getBlock4().getAmount("33B",amount));
+        assertEquals(amount.getCurrency(),CurrencyCodes.NO_CURRENCY);
+         
+        message = (SwiftMessage)SwiftMessageParser.parseMessage(GoodSwiftMT191Message).getMessage();
+        assertTrue(message.getBlock4().getAmount("32B",amount));
+        assertEquals(amount.getMinorUnits(),4500L);
+        assertEquals(CurrencyCodes.getCode(amount.getCurrency()),"USD");
+         
+        // scaled to the currency's minor unit
+        String [][] cases = 
+            {
+            { "JPY1000,", "1000", "0" },
+            { "JPY1000,00", "1000", "0" },
+            { "BHD1,5", "1500", "3" },
+            { "101101EUR0,07", "7", "2" },
+            { "USD1,234", null, null },
+            { "USD,50", null, null },
+            { "USD100", null, null },
+            { "US100,", null, null },
+            { "1011USD1,", null, null },
+            { "USD1,2,3", null, null },
+            { "USD9999999999999999999,", null, null },
+            };
+        for (String [] test : cases)
+            {
+            assertEquals(amount.decodeSwift(new SwiftField("32B",test[0])),test[1] != null);
+            if (test[1] != null)
+                {
+                assertEquals(amount.getMinorUnits(),Long.parseLong(test[1]));
+                assertEquals(amount.getScale(),Integer.parseInt(test[2]));
+                }
+            }
+        }
  
     public void testMT541() throws Exception
         {
@@ -141,6 +231,14 @@ public class TestSwiftParser extends TestCase
         assertEquals(block2.getBIC8(),"MNOPHK50");
 //----------------      
         assertEquals(message.getBlock4().getFields().size(),29);
+        try
+            {
+            message.getBlock4().getFields().remove(0);
+            fail("The fields of block 4 could be changed under its tag index.");
+            }
+        catch (UnsupportedOperationException ee)
+            {
+            }
          
         assertEquals(GoodSwiftMT541Message,message.toString());
      
@@ -152,6 +250,20 @@ public class TestSwiftParser extends TestCase
         assertEquals(fields[1],"TRADDET");
         assertEquals(fields[5],"SETPRTY");
         assertEquals(fields[7],"AMT");
+         
+        // the tag index walks repeated fields in order
+        SwiftBlock4 block = message.getBlock4();
+        assertEquals(block.countFields("16R"),8);
+        assertEquals(block.countFields("98A"),2);
+        assertEquals(block.countFields("99Z"),0);
+        assertEquals(block.getFields("99Z").length,0);
+        assertEquals(block.indexOf("99Z"),-1);
+        int count = 0;
+        for (int position = block.indexOf("16R"); position >= 0; position = block.nextIndexOf(position))
+            assertEquals(block.getFields().get(position).getValue(),fields[count++]);
+        assertEquals(count,8);
+        assertEquals(block.getFields().get(block.indexOf("36B")).getValue(),":SETT//FAMT/12345,");
+        assertTrue(block.getField("16") == null);
         }
  
     public void testMT191() throws Exception
@@ -178,6 +290,10 @@ public class TestSwiftParser extends TestCase
         assertEquals(block2.getOutputDate(),"101130");
         assertEquals(block2.getInputTime(),"0953");
         assertEquals(block2.getSessionNo(),"3603");
+        assertEquals(block2.getOutputEpochDay(),LocalDate.of(2010,11,30).toEpochDay());
+        assertEquals(block2.getInputMinuteOfDay(),9 * 60 + 53);
+        assertEquals(block2.getInputEpochMinute(),LocalDateTime.of(2010,11,30,9,53).toEpochSecond(ZoneOffset.UTC) / 60);
+        assertEquals(block2.getOutputEpochMinute(),LocalDateTime.of(2010,11,30,0,45).toEpochSecond(ZoneOffset.UTC) / 60);
  
         assertEquals(message.getBlock4().getFields().size(),5);
          
@@ -187,4 +303,340 @@ public class TestSwiftParser extends TestCase
         assertEquals(message.getBlock4().getField("21"),"2010113000000199");
         assertEquals(message.getBlock4().getField("32B"),"USD45,");
         }
-    }
\ No newline at end of file
+    
+    public void testByteBuffer() throws Exception
+        {
+        byte [] bytes = GoodSwiftMT541Message.getBytes("ISO-8859-1");
+        ByteBuffer heap = ByteBuffer.allocate(bytes.length + 16);
+        heap.position(7);
+        heap.put(bytes);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 16);
+        direct.position(7);
+        direct.put(bytes);
+         
+        for (ByteBuffer buffer : new ByteBuffer [] { heap, direct })
+            {
+            MessageParseResults results = SwiftMessageParser.parseMessage(buffer,7,bytes.length);
+            assertNotNull(results.getMessage());
+            assertEquals(results.errorCount(),0);
+            assertEquals(buffer.position(),7 + bytes.length);
+             
+            SwiftMessage message = (SwiftMessage)results.getMessage();
+            assertEquals(message.getMT(),"541");
+            assertEquals(message.getBlock1().getBIC12(),"ABCDUS20AXXX");
+            assertEquals(message.getBlock3().getContents(),"{108:101101C9010F99}");
+            assertEquals(message.getBlock4().getFields().size(),29);
+             
+            SwiftField field = message.getBlock4().getFields().get(8);
+            assertEquals(field.getTag(),"35B");
+            assertFalse(field.getValueSequence() instanceof String);
+            assertEquals(field.getValue(),"ISIN US100001AB10\r\nBLAH1 PROPERTY GROUP INC");
+             
+            assertEquals(GoodSwiftMT541Message,message.toString());
+            }
+        }
+         
+    public void testAckHeader() throws Exception
+        {
+        String ack = "{1:F21ABCDUS10AXXX0000000000}{4:{177:1011011200}{451:0}}";
+        MessageParseResults results = SwiftMessageParser.parseMessage(ack + GoodSwiftMT202Message);
+        assertNotNull(results.getMessage());
+        assertEquals(results.errorCount(),1);
+        assertEquals(results.getErrors().get(0),"Too many block 1 entries in message.  Does this have an ACK/UAK header?");
+         
+        SwiftMessage message = (SwiftMessage)results.getMessage();
+        assertEquals(message.getMT(),"202");
+        assertEquals(GoodSwiftMT202Message,message.toString());
+        }
+     
+    public void testBlockChecks() throws Exception
+        {
+        String noDashCurly = GoodSwiftMT202Message.replace("-}{5:","}{5:");
+        MessageParseResults results = SwiftMessageParser.parseMessage(noDashCurly);
+        assertTrue(results.getErrors().contains("SWIFT message is missing a dash-curly on message."));
+         
+        String outOfOrder = "{2:I202MNOPUS40HXYZX}{1:F01ABCDUS10AXXX0000000000}{4:\r\n:20:X\r\n-}";
+        results = SwiftMessageParser.parseMessage(outOfOrder);
+        assertTrue(results.getErrors().contains("SWIFT message's block 1 does not occur before block 2."));
+         
+        // an exception's own period is not doubled in the error
+        results = SwiftMessageParser.parseMessage("{1:{2:I202MNOPUS40HXYZX}{4:\r\n:20:X\r\n-}");
+        assertTrue(results.getErrors().contains("SWIFT message parser failed with an exception: SWIFT block at offset 0 is too short."));
+         
+        results = SwiftMessageParser.parseMessage("{1:F01ABCDUS10AXXX0000000000}");
+        assertTrue(results.getErrors().contains("SWIFT message is missing a block 2."));
+        assertTrue(results.getErrors().contains("SWIFT message is missing a block 4."));
+        assertNull(results.getMessage());
+        }
+         
+    public void testLazyParse() throws Exception
+        {
+        MessageParseResults results = SwiftMessageParser.parseMessageLazily(GoodSwiftMT541Message);
+        assertNotNull(results.getMessage());
+        assertEquals(results.errorCount(),0);
+         
+        final SwiftMessage message = (SwiftMessage)results.getMessage();
+        assertEquals(message.getMT(),"541");
+        assertEquals(message.getDirection(),'I');
+        assertEquals(message.getSenderBIC12(),"ABCDUS20AXXX");
+        assertNull(message.getBlock2Outbound());
+         
+        // the first callers race to decode block 4 but all see the same one
+        final SwiftBlock4 [] seen = new SwiftBlock4[8];
+        Thread [] threads = new Thread[seen.length];
+        for (int index = 0; index < threads.length; index++)
+            {
+            final int slot = index;
+            threads[index] = new Thread(new Runnable()
+                {
+                public void run()
+                    {
+                    seen[slot] = message.getBlock4();
+                    }
+                });
+            threads[index].start();
+            }
+        for (Thread thread : threads)
+            thread.join();
+        for (SwiftBlock4 block4 : seen)
+            assertSame(block4,seen[0]);
+         
+        assertEquals(results.fieldCount(),29);
+        assertEquals(results.getFields().get(8).getValue(),"ISIN US100001AB10\r\nBLAH1 PROPERTY GROUP INC");
+        assertEquals(GoodSwiftMT541Message,message.toString());
+         
+        results = SwiftMessageParser.parseMessageLazily(GoodSwiftMT202Message.replace("{1:F01ABCDUS","{1:F01ABC"));
+        assertEquals(results.errorCount(),0);
+        assertEquals(((SwiftMessage)results.getMessage()).getMT(),"202");
+        try
+            {
+            ((SwiftMessage)results.getMessage()).getBlock1();
+            fail("Expected block 1 to be too short to decode.");
+            }
+        catch (IllegalStateException ee)
+            {
+            }
+         
+        // a lazy message from a reused parser keeps its own view of its bytes
+        SwiftParser parser = new SwiftParser();
+        ByteBuffer first = ByteBuffer.wrap(GoodSwiftMT541Message.getBytes("ISO-8859-1"));
+        ByteBuffer second = ByteBuffer.wrap(GoodSwiftMT202Message.getBytes("ISO-8859-1"));
+        SwiftMessage kept = (SwiftMessage)parser.parseMessageLazily(first,0,first.limit()).getMessage();
+        SwiftMessage next = (SwiftMessage)parser.parseMessageLazily(second,0,second.limit()).getMessage();
+        assertEquals(next.getBlock4().getField("20"),"101101012345678A");
+        assertEquals(kept.getMT(),"541");
+        assertEquals(kept.getBlock4().getField("20"),((SwiftMessage)SwiftMessageParser.parseMessage(GoodSwiftMT541Message).getMessage()).getBlock4().getField("20"));
+        assertEquals(kept.getBlock4().getFields().size(),29);
+        assertEquals(GoodSwiftMT541Message,kept.toString());
+        }
+         
+    public void testRJEReader() throws Exception
+        {
+        String [] messages = { GoodSwiftMT202Message, GoodSwiftMT541Message, GoodSwiftMT191Message };
+        String rje = "\r\n" + messages[0] + "$" + messages[1] + "\r\n$\r\n" + messages[2] + "$\r\n";
+        byte [] bytes = rje.getBytes("ISO-8859-1");
+         
+        File file = File.createTempFile("rje",".txt");
+        try
+            {
+            Files.write(file.toPath(),bytes);
+             
+            // small windows and chunks make the readers remap, grow and compact
+            MessageFileReader [] readers = 
+                {
+                new SwiftRJEReader(file.toPath()),
+                new MessageFileReader(FileChannel.open(file.toPath()),new SwiftRJEFramer(),256),
+                new SwiftRJEReader(new ByteArrayInputStream(bytes)),
+                new MessageFileReader(new ByteArrayInputStream(bytes),new SwiftRJEFramer(),100),
+                };
+            for (MessageFileReader reader : readers)
+                {
+                for (String message : messages)
+                    {
+                    assertTrue(reader.hasNext());
+                    MessageParseResults results = reader.next();
+                    assertEquals(results.errorCount(),0);
+                    assertEquals(results.getMessage().toString(),message);
+                    assertEquals(reader.getMessagePosition(),rje.indexOf(message));
+                    }
+                assertFalse(reader.hasNext());
+                reader.close();
+                }
+            }
+        finally
+            {
+            file.delete();
+            }
+         
+        // a run with no '$' is skipped once it passes the maximum, not buffered to the end
+        StringBuilder runOn = new StringBuilder();
+        while (runOn.length() < SwiftRJEReader.MAXIMUM_MESSAGE_LENGTH * 2)
+            runOn.append(messages[1]);
+        SwiftRJEReader reader = new SwiftRJEReader(new ByteArrayInputStream((runOn + "$" + messages[0] + "$").getBytes("ISO-8859-1")));
+        assertTrue(reader.hasNext());
+        assertEquals(reader.next().getErrors().get(0),"Message is longer than the maximum of " + SwiftRJEReader.MAXIMUM_MESSAGE_LENGTH + " bytes and was skipped.");
+        assertTrue(reader.hasNext());
+        assertEquals(reader.next().getMessage().toString(),messages[0]);
+        assertFalse(reader.hasNext());
+        reader.close();
+        }
+         
+    public void testParseAll() throws Exception
+        {
+        // enough messages for the batch to be split across tasks, with a bad one every so often
+        String [] messages = new String[300];
+        StringBuilder rje = new StringBuilder();
+        for (int index = 0; index < messages.length; index++)
+            {
+            if (index % 50 == 7)
+                messages[index] = "{1:F01ABCDUS10AXXX0000000000}{4:\r\n:20:BROKEN";
+            else
+                messages[index] = new String [] { GoodSwiftMT202Message, GoodSwiftMT541Message, GoodSwiftMT191Message }[index % 3];
+            rje.append(messages[index]).append("$\r\n");
+            }
+        byte [] bytes = rje.toString().getBytes("ISO-8859-1");
+         
+        File file = File.createTempFile("rje",".txt");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+            {
+            Files.write(file.toPath(),bytes);
+             
+            // a small window makes the file be framed and parsed in many pieces
+            List<List<MessageParseResults>> batches = new ArrayList<List<MessageParseResults>>();
+            batches.add(SwiftMessageParser.parseAll(ByteBuffer.wrap(bytes),0,bytes.length,4));
+            batches.add(SwiftMessageParser.parseAll(file.toPath(),4));
+            batches.add(MessageBatchParser.parseAll(file.toPath(),new SwiftRJEFramer(),pool,1000));
+            for (List<MessageParseResults> batch : batches)
+                {
+                assertEquals(batch.size(),messages.length);
+                for (int index = 0; index < messages.length; index++)
+                    {
+                    MessageParseResults results = batch.get(index);
+                    if (index % 50 == 7)
+                        assertTrue(results.errorCount() > 0);
+                    else
+                        {
+                        assertEquals(results.errorCount(),0);
+                        assertEquals(results.getMessage().toString(),messages[index]);
+                        }
+                    }
+                }
+            }
+        finally
+            {
+            pool.shutdown();
+            file.delete();
+            }
+        }
+         
+    public void testDOSPCCReader() throws Exception
+        {
+        String [] messages = { GoodSwiftMT541Message, GoodSwiftMT202Message, GoodSwiftMT191Message };
+        ByteArrayOutputStream pcc = new ByteArrayOutputStream();
+        long [] positions = new long[messages.length];
+        for (int index = 0; index < messages.length; index++)
+            {
+            positions[index] = pcc.size() + 1;
+            pcc.write(SwiftDOSPCCFramer.START_OF_MESSAGE);
+            pcc.write(messages[index].getBytes("ISO-8859-1"));
+            pcc.write(SwiftDOSPCCFramer.END_OF_MESSAGE);
+            while (index < messages.length - 1 && pcc.size() % SwiftDOSPCCFramer.SECTOR_SIZE != 0)
+                pcc.write(' ');
+            }
+        byte [] bytes = pcc.toByteArray();
+         
+        File file = File.createTempFile("pcc",".dos");
+        try
+            {
+            Files.write(file.toPath(),bytes);
+             
+            MessageFileReader [] readers = 
+                {
+                new SwiftDOSPCCReader(file.toPath()),
+                new MessageFileReader(FileChannel.open(file.toPath()),new SwiftDOSPCCFramer(),SwiftDOSPCCFramer.SECTOR_SIZE),
+                new MessageFileReader(new ByteArrayInputStream(bytes),new SwiftDOSPCCFramer(),700),
+                };
+            for (MessageFileReader reader : readers)
+                {
+                for (int index = 0; index < messages.length; index++)
+                    {
+                    assertTrue(reader.hasNext());
+                    MessageParseResults results = reader.next();
+                    assertEquals(results.errorCount(),0);
+                    assertEquals(results.getMessage().toString(),messages[index]);
+                    assertEquals(reader.getMessagePosition(),positions[index]);
+                    }
+                assertFalse(reader.hasNext());
+                reader.close();
+                }
+            }
+        finally
+            {
+            file.delete();
+            }
+        }
+     
+     
+    public void testDOSPCCMissingEnd() throws Exception
+        {
+        String [] messages = { GoodSwiftMT541Message, GoodSwiftMT202Message, GoodSwiftMT191Message, GoodSwiftMT202Message, GoodSwiftMT541Message };
+        ByteArrayOutputStream pcc = new ByteArrayOutputStream();
+        for (int index = 0; index < messages.length; index++)
+            {
+            pcc.write(SwiftDOSPCCFramer.START_OF_MESSAGE);
+            pcc.write(messages[index].getBytes("ISO-8859-1"));
+            if (index != 0)
+                pcc.write(SwiftDOSPCCFramer.END_OF_MESSAGE);
+            while (pcc.size() % SwiftDOSPCCFramer.SECTOR_SIZE != 0)
+                pcc.write(' ');
+            }
+        byte [] bytes = pcc.toByteArray();
+         
+        MessageFileReader [] readers = 
+            {
+            new SwiftDOSPCCReader(new ByteArrayInputStream(bytes)),
+            new MessageFileReader(new ByteArrayInputStream(bytes),new SwiftDOSPCCFramer(),700),
+            };
+        for (MessageFileReader reader : readers)
+            {
+            for (int index = 0; index < messages.length; index++)
+                {
+                assertTrue(reader.hasNext());
+                MessageParseResults results = reader.next();
+                if (index == 0)
+                    {
+                    assertTrue(results.errorCount() > 0);
+                    assertTrue(results.getErrors().get(results.errorCount() - 1).startsWith("SWIFT message is missing its end of message (0x03)"));
+                    }
+                else
+                    {
+                    assertEquals(results.errorCount(),0);
+                    assertEquals(results.getMessage().toString(),messages[index]);
+                    }
+                }
+            assertFalse(reader.hasNext());
+            reader.close();
+            }
+         
+        // with neither a 0x03 nor a 0x01 the message is skipped once it is too long
+        pcc = new ByteArrayOutputStream();
+        pcc.write(SwiftDOSPCCFramer.START_OF_MESSAGE);
+        for (int index = 0; index < SwiftDOSPCCReader.MAXIMUM_MESSAGE_LENGTH * 2; index++)
+            pcc.write('X');
+        pcc.write(SwiftDOSPCCFramer.START_OF_MESSAGE);
+        pcc.write(GoodSwiftMT202Message.getBytes("ISO-8859-1"));
+        pcc.write(SwiftDOSPCCFramer.END_OF_MESSAGE);
+         
+        SwiftDOSPCCReader reader = new SwiftDOSPCCReader(new ByteArrayInputStream(pcc.toByteArray()));
+        assertTrue(reader.hasNext());
+        MessageParseResults results = reader.next();
+        assertEquals(results.getErrors().get(0),"Message is longer than the maximum of " + SwiftDOSPCCReader.MAXIMUM_MESSAGE_LENGTH + " bytes and was skipped.");
+        assertTrue(reader.hasNext());
+        results = reader.next();
+        assertEquals(results.errorCount(),0);
+        assertEquals(results.getMessage().toString(),GoodSwiftMT202Message);
+        assertFalse(reader.hasNext());
+        reader.close();
+        }
+    }
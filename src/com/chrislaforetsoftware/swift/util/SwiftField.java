@@ -40,6 +40,24 @@ public class SwiftField extends Field
         }
      
      
+    public SwiftField(String Tag,CharSequence Value)
+        {
+        super(Tag,Value);
+        }
+     
+     
+    public SwiftField(CharSequence Source,int TagStart,int TagEnd,int ValueStart,int ValueEnd)
+        {
+        super(Source,TagStart,TagEnd,ValueStart,ValueEnd);
+        }
+     
+     
+    public SwiftField(CharSequence Source,int TagStart,int TagEnd,String Value)
+        {
+        super(Source,TagStart,TagEnd,Value);
+        }
+     
+     
     /* (non-Javadoc)
      * @see com.chrislaforetsoftware.util.Field#getFormattedField()
      */
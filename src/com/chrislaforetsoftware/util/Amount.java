@@ -0,0 +1,227 @@
+/* Amount.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+/** An amount of money as a whole number of minor units (cents for USD)
+ * with its currency index (see CurrencyCodes) and the number of minor
+ * unit digits.  The decode methods read the characters of a field in
+ * place, so an Amount reused from message to message lets totals and
+ * limit checks run without allocating or going through BigDecimal.
+ * <pre>
+ * Amount amount = new Amount();
+ * if (message.getAmount(amount) &amp;&amp; amount.getMinorUnits() &gt; limit)
+ *     hold(message);
+ * </pre>
+ * An Amount is not thread-safe.
+ */
+ 
+public class Amount
+    {
+    // the most digits a long always holds
+    static private final int MAXIMUM_DIGITS = 18;
+    
+    private long _minorUnits;
+    private int _currency = CurrencyCodes.NO_CURRENCY;
+    private int _scale;
+    
+    /** Retrieves the amount in minor units, so USD 10100,50 is 1010050.
+     * 
+     * @return the minor units.
+     */
+    public long getMinorUnits()
+        {
+        return _minorUnits;
+        }
+    
+    
+    /** Retrieves the currency.
+     * 
+     * @return the currency index or CurrencyCodes.NO_CURRENCY if nothing was decoded.
+     */
+    public int getCurrency()
+        {
+        return _currency;
+        }
+    
+    
+    /** Retrieves the number of minor unit digits the amount is held in,
+     * which is the currency's number of digits when the currency is known.
+     * 
+     * @return the number of digits after the decimal point.
+     */
+    public int getScale()
+        {
+        return _scale;
+        }
+    
+    
+    /** Decodes an amount made only of digits with an implied decimal
+     * point, such as the 12 digit FedWire {2000} and CHIPS [260] amounts.
+     * Trailing spaces are ignored.
+     * 
+     * @param Source the field holding the amount.
+     * @param Scale the number of implied decimal digits.
+     * @param Currency the currency index of the amount.
+     * @return true if the amount was decoded; false, with the amount cleared, if it is empty, too long or not all digits.
+     */
+    public boolean decodeImplied(Field Source,int Scale,int Currency)
+        {
+        clear();
+        int end = Source.getValueLength();
+        while (end > 0 && Source.getValueCharAt(end - 1) == ' ')
+            --end;
+        if (end == 0 || end > MAXIMUM_DIGITS)
+            return false;
+        
+        long units = 0;
+        for (int index = 0; index < end; index++)
+            {
+            int digit = Source.getValueCharAt(index) - '0';
+            if (digit < 0 || digit > 9)
+                return false;
+            units = units * 10 + digit;
+            }
+        return set(units,Currency,Scale);
+        }
+    
+    
+    /** Decodes a SWIFT currency and amount, such as USD45, in :32B: or
+     * 101101USD10100,50 in :32A:.  A leading six digit date is skipped.
+     * The amount is scaled to the currency's minor unit, so USD45, and
+     * USD45,00 are both 4500 and JPY1000, is 1000; for a currency with no
+     * known minor unit the decimals written are kept.
+     * 
+     * @param Source the field holding the amount.
+     * @return true if the amount was decoded; false, with the amount cleared, if it is malformed or has more decimals than the currency allows.
+     */
+    public boolean decodeSwift(Field Source)
+        {
+        clear();
+        int length = Source.getValueLength();
+        int position = 0;
+        if (length > 0 && Source.getValueCharAt(0) >= '0' && Source.getValueCharAt(0) <= '9')
+            {
+            for ( ; position < 6; position++)
+                {
+                if (position >= length || Source.getValueCharAt(position) < '0' || Source.getValueCharAt(position) > '9')
+                    return false;
+                }
+            }
+        if (position + 4 > length)
+            return false;
+        
+        int currency = CurrencyCodes.index(Source.getValueCharAt(position),Source.getValueCharAt(position + 1),Source.getValueCharAt(position + 2));
+        if (currency == CurrencyCodes.NO_CURRENCY)
+            return false;
+        position += 3;
+        
+        // the whole units, then the decimals after the comma
+        long units = 0;
+        int digits = 0;
+        int decimals = -1;
+        for ( ; position < length; position++)
+            {
+            char ch = Source.getValueCharAt(position);
+            if (ch == ',' && decimals < 0 && digits > 0)
+                decimals = 0;
+            else if (ch >= '0' && ch <= '9')
+                {
+                if (++digits > MAXIMUM_DIGITS)
+                    return false;
+                units = units * 10 + (ch - '0');
+                if (decimals >= 0)
+                    ++decimals;
+                }
+            else
+                return false;
+            }
+        if (decimals < 0)
+            return false;
+        
+        int scale = CurrencyCodes.getMinorDigits(currency);
+        if (scale < 0)
+            scale = decimals;
+        for ( ; decimals > scale; decimals--)
+            {
+            if (units % 10 != 0)
+                return false;
+            units /= 10;
+            --digits;
+            }
+        for ( ; decimals < scale; decimals++)
+            {
+            if (++digits > MAXIMUM_DIGITS)
+                return false;
+            units *= 10;
+            }
+        return set(units,currency,scale);
+        }
+    
+    
+    /** Empties the amount. */
+    public void clear()
+        {
+        _minorUnits = 0;
+        _currency = CurrencyCodes.NO_CURRENCY;
+        _scale = 0;
+        }
+    
+    
+    /** Fills in a decoded amount.
+     * 
+     * @return true.
+     */
+    private boolean set(long MinorUnits,int Currency,int Scale)
+        {
+        _minorUnits = MinorUnits;
+        _currency = Currency;
+        _scale = Scale;
+        return true;
+        }
+    
+    
+    /** Formats the amount for display, such as USD 10100.50.
+     * 
+     * @return the formatted amount.
+     */
+    @Override
+    public String toString()
+        {
+        StringBuilder sb = new StringBuilder(24);
+        String code = CurrencyCodes.getCode(_currency);
+        if (code != null)
+            sb.append(code).append(' ');
+        
+        String units = Long.toString(_minorUnits);
+        while (units.length() <= _scale)
+            units = "0" + units;
+        sb.append(units,0,units.length() - _scale);
+        if (_scale > 0)
+            sb.append('.').append(units,units.length() - _scale,units.length());
+        return sb.toString();
+        }
+    }
@@ -0,0 +1,71 @@
+/* BenchmarkTimer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+ 
+/** Shared timing loop for the benchmark programs.  A task is run for
+ * a few warm-up rounds so the JIT has compiled it, then timed over a
+ * number of rounds, and the median time per operation is printed.
+ */
+ 
+public class BenchmarkTimer
+    {
+    static private final int WARMUP_ROUNDS = 5;
+    static private final int TIMED_ROUNDS = 11;
+     
+    // results are stored here so the JIT cannot discard the work
+    static private volatile Object _sink;
+     
+    /** Times a task and prints the median nanoseconds per operation.
+     * 
+     * @param Name the label to print.
+     * @param Operations the number of operations one call of the task performs.
+     * @param Task the work to time.  Its result is kept so it cannot be optimized away.
+     * @return the median nanoseconds per operation.
+     * @throws Exception if the task fails.
+     */
+    static public double time(String Name,int Operations,Callable<?> Task) throws Exception
+        {
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+            _sink = Task.call();
+         
+        long [] elapsed = new long[TIMED_ROUNDS];
+        for (int round = 0; round < TIMED_ROUNDS; round++)
+            {
+            long start = System.nanoTime();
+            _sink = Task.call();
+            elapsed[round] = System.nanoTime() - start;
+            }
+        Arrays.sort(elapsed);
+         
+        double perOperation = (double)elapsed[TIMED_ROUNDS / 2] / Operations;
+        System.out.println(String.format("%-50s %12.1f ns/op",Name,perOperation));
+        return perOperation;
+        }
+    }
@@ -0,0 +1,180 @@
+/* BlankLineFramer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.nio.ByteBuffer;
+ 
+/** Frames files of messages that are separated by one or more blank
+ * lines, as FedWire and CHIPS download files are.  A blank line is one
+ * holding nothing but white space, and lines end with CR, LF or CRLF in
+ * the same way as for the message parsers.  The line break before the
+ * blank line is not part of the message.
+ */
+ 
+public abstract class BlankLineFramer extends MessageFramer
+    {
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#frame(java.nio.ByteBuffer, int, int, boolean, int[])
+     */
+    @Override
+    public int frame(ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,int [] Span)
+        {
+        // skip whole blank lines before the message
+        int start = From;
+        while (true)
+            {
+            int lineEnd = findLineEnd(Buffer,start,Limit);
+            if (!isBlank(Buffer,start,lineEnd))
+                break;
+            int next = skipLineEnd(Buffer,lineEnd,Limit,EndOfInput);
+            if (next < 0 || next >= Limit)
+                {
+                if (next < 0 && start == From)
+                    {
+                    Span[0] = -1;
+                    return -1;
+                    }
+                Span[0] = -1;
+                return next < 0 ? start : Limit;
+                }
+            start = next;
+            }
+         
+        // the message runs up to the next blank line or the end of the input
+        int line = start;
+        int end = -1;
+        int next = -1;
+        while (end < 0)
+            {
+            int lineEnd = findLineEnd(Buffer,line,Limit);
+            if (lineEnd >= Limit && !EndOfInput)
+                break;
+            if (line > start && isBlank(Buffer,line,lineEnd))
+                {
+                next = skipLineEnd(Buffer,lineEnd,Limit,EndOfInput);
+                if (next < 0)
+                    break;
+                end = line;
+                }
+            else
+                {
+                line = skipLineEnd(Buffer,lineEnd,Limit,EndOfInput);
+                if (line < 0 || (line >= Limit && !EndOfInput))
+                    break;
+                if (line >= Limit)
+                    end = next = Limit;
+                }
+            }
+        if (end < 0)
+            {
+            Span[0] = start;
+            return -1;
+            }
+         
+        while (end > start && (Buffer.get(end - 1) == '\r' || Buffer.get(end - 1) == '\n'))
+            --end;
+        Span[0] = start;
+        Span[1] = end;
+        return next;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#resync(java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public int resync(ByteBuffer Buffer,int From,int Limit)
+        {
+        // From is never at the start of a blank line that ends the message,
+        // so the rest of its line is passed over first
+        int line = skipLineEnd(Buffer,findLineEnd(Buffer,From,Limit),Limit,false);
+        while (line >= 0 && line < Limit)
+            {
+            int lineEnd = findLineEnd(Buffer,line,Limit);
+            int next = skipLineEnd(Buffer,lineEnd,Limit,false);
+            if (next >= 0 && isBlank(Buffer,line,lineEnd))
+                return next;
+            line = next;
+            }
+        return -1;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see com.chrislaforetsoftware.util.MessageFramer#countsLines()
+     */
+    @Override
+    public boolean countsLines()
+        {
+        return true;
+        }
+     
+     
+    /** Finds the CR or LF that ends the line starting at From.
+     * 
+     * @return the index of the line break or Limit if there is none.
+     */
+    static private int findLineEnd(ByteBuffer Buffer,int From,int Limit)
+        {
+        int index = From;
+        while (index < Limit && Buffer.get(index) != '\r' && Buffer.get(index) != '\n')
+            ++index;
+        return index;
+        }
+     
+     
+    /** Steps over the line break at LineEnd.
+     * 
+     * @return the start of the next line, or -1 if more data is needed to
+     * know where it starts.
+     */
+    static private int skipLineEnd(ByteBuffer Buffer,int LineEnd,int Limit,boolean EndOfInput)
+        {
+        if (LineEnd >= Limit)
+            return EndOfInput ? Limit : -1;
+        if (Buffer.get(LineEnd) == '\n')
+            return LineEnd + 1;
+        if (LineEnd + 1 < Limit)
+            return Buffer.get(LineEnd + 1) == '\n' ? LineEnd + 2 : LineEnd + 1;
+        return EndOfInput ? Limit : -1;
+        }
+     
+     
+    /** Determines if a line holds nothing but white space.
+     * 
+     * @return true if every byte up to the line break is white space.
+     */
+    static private boolean isBlank(ByteBuffer Buffer,int Start,int LineEnd)
+        {
+        for (int index = Start; index < LineEnd; index++)
+            {
+            if ((Buffer.get(index) & 0xFF) > ' ')
+                return false;
+            }
+        return true;
+        }
+    }
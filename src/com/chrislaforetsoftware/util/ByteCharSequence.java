@@ -0,0 +1,174 @@
+/* ByteCharSequence.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+ 
+/** A read-only character view over a region of a ByteBuffer.  Each
+ * byte is taken as a single ISO-8859-1 character, which covers the
+ * character sets used by SWIFT, FedWire and CHIPS, so nothing is decoded
+ * or copied until toString() is called.  Heap and direct buffers are
+ * both supported.
+ * <p>
+ * The view uses absolute reads and never moves the buffer's position or
+ * limit, but it does not own the bytes: anything built on the view (such
+ * as a parsed message) is only valid while the caller leaves that region
+ * of the buffer untouched.
+ */
+ 
+public class ByteCharSequence implements CharSequence
+    {
+    private ByteBuffer _buffer;
+    private int _offset;
+    private int _length;
+     
+    /** Creates a view of Length bytes starting at the absolute
+     * position Offset in the buffer.
+     * 
+     * @param Buffer the buffer holding the characters.
+     * @param Offset the absolute index of the first byte.
+     * @param Length the number of bytes in the view.
+     * @throws IndexOutOfBoundsException if the region is not inside the buffer's limit.
+     */
+    public ByteCharSequence(ByteBuffer Buffer,int Offset,int Length)
+        {
+        if (Offset < 0 || Length < 0 || Offset > Buffer.limit() - Length)
+            throw new IndexOutOfBoundsException("Region " + Offset + "+" + Length + " is outside the buffer limit of " + Buffer.limit() + ".");
+         
+        _buffer = Buffer;
+        _offset = Offset;
+        _length = Length;
+        }
+     
+     
+    /** Moves the view to another region, for a parser that reuses one
+     * view from message to message.  Anything built on the view, such
+     * as the fields of the last message, then sees the new region.
+     * 
+     * @param Buffer the buffer holding the characters.
+     * @param Offset the absolute index of the first byte.
+     * @param Length the number of bytes in the view.
+     * @throws IndexOutOfBoundsException if the region is not inside the buffer's limit.
+     */
+    public void reset(ByteBuffer Buffer,int Offset,int Length)
+        {
+        if (Offset < 0 || Length < 0 || Offset > Buffer.limit() - Length)
+            throw new IndexOutOfBoundsException("Region " + Offset + "+" + Length + " is outside the buffer limit of " + Buffer.limit() + ".");
+         
+        _buffer = Buffer;
+        _offset = Offset;
+        _length = Length;
+        }
+     
+     
+    /** Retrieves the buffer behind this view.
+     * 
+     * @return the backing buffer.
+     */
+    public ByteBuffer getBuffer()
+        {
+        return _buffer;
+        }
+     
+     
+    /** Retrieves the absolute index in the buffer of the first
+     * character of this view.
+     * 
+     * @return the buffer offset.
+     */
+    public int getOffset()
+        {
+        return _offset;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#length()
+     */
+    public int length()
+        {
+        return _length;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#charAt(int)
+     */
+    public char charAt(int Index)
+        {
+        if (Index < 0 || Index >= _length)
+            throw new IndexOutOfBoundsException("Index " + Index + " is outside a view of length " + _length + ".");
+        return (char)(_buffer.get(_offset + Index) & 0xFF);
+        }
+     
+     
+    /** Returns a view of part of this view.  The bytes are shared,
+     * not copied.
+     * 
+     * @see java.lang.CharSequence#subSequence(int, int)
+     */
+    public ByteCharSequence subSequence(int Start,int End)
+        {
+        if (Start < 0 || End > _length || Start > End)
+            throw new IndexOutOfBoundsException("Range " + Start + "-" + End + " is outside a view of length " + _length + ".");
+        return new ByteCharSequence(_buffer,_offset + Start,End - Start);
+        }
+     
+     
+    /** Decodes part of the view into a String without creating an
+     * intermediate view.
+     * 
+     * @param Start the first character to decode.
+     * @param End the index after the last character to decode.
+     * @return the characters as a String.
+     */
+    public String toString(int Start,int End)
+        {
+        if (Start < 0 || End > _length || Start > End)
+            throw new IndexOutOfBoundsException("Range " + Start + "-" + End + " is outside a view of length " + _length + ".");
+         
+        if (_buffer.hasArray())
+            return new String(_buffer.array(),_buffer.arrayOffset() + _offset + Start,End - Start,StandardCharsets.ISO_8859_1);
+         
+        byte [] bytes = new byte[End - Start];
+        for (int index = 0; index < bytes.length; index++)
+            bytes[index] = _buffer.get(_offset + Start + index);
+        return new String(bytes,StandardCharsets.ISO_8859_1);
+        }
+     
+     
+    /** Decodes the whole view into a String.
+     * 
+     * @return the characters in the view.
+     */
+    @Override
+    public String toString()
+        {
+        return toString(0,_length);
+        }
+    }
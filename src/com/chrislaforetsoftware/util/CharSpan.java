@@ -0,0 +1,114 @@
+/* CharSpan.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+/** A read-only view of a range of another character sequence.  Unlike
+ * String.subSequence() it never copies the characters.
+ */
+ 
+public class CharSpan implements CharSequence
+    {
+    private CharSequence _source;
+    private int _start;
+    private int _end;
+     
+    /** Creates a view of Source from Start up to, but not including, End.
+     * 
+     * @param Source the characters being viewed.
+     * @param Start the first character of the view.
+     * @param End the index after the last character of the view.
+     */
+    public CharSpan(CharSequence Source,int Start,int End)
+        {
+        if (Start < 0 || End > Source.length() || Start > End)
+            throw new IndexOutOfBoundsException("Range " + Start + "-" + End + " is outside a sequence of length " + Source.length() + ".");
+         
+        _source = Source;
+        _start = Start;
+        _end = End;
+        }
+     
+     
+    /** Returns a view of a range of Source, using the source's own
+     * view when it is a buffer and a CharSpan otherwise.
+     * 
+     * @param Source the characters being viewed.
+     * @param Start the first character of the view.
+     * @param End the index after the last character of the view.
+     * @return a view of the range.
+     */
+    static public CharSequence of(CharSequence Source,int Start,int End)
+        {
+        if (Source instanceof ByteCharSequence)
+            return ((ByteCharSequence)Source).subSequence(Start,End);
+        if (Start == 0 && End == Source.length())
+            return Source;
+        return new CharSpan(Source,Start,End);
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#length()
+     */
+    public int length()
+        {
+        return _end - _start;
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#charAt(int)
+     */
+    public char charAt(int Index)
+        {
+        if (Index < 0 || Index >= _end - _start)
+            throw new IndexOutOfBoundsException("Index " + Index + " is outside a view of length " + (_end - _start) + ".");
+        return _source.charAt(_start + Index);
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.lang.CharSequence#subSequence(int, int)
+     */
+    public CharSequence subSequence(int Start,int End)
+        {
+        if (Start < 0 || End > _end - _start || Start > End)
+            throw new IndexOutOfBoundsException("Range " + Start + "-" + End + " is outside a view of length " + (_end - _start) + ".");
+        return new CharSpan(_source,_start + Start,_start + End);
+        }
+     
+     
+    /** Copies the viewed characters into a String.
+     * 
+     * @return the characters in the view.
+     */
+    @Override
+    public String toString()
+        {
+        return ParseSupport.substring(_source,_start,_end);
+        }
+    }
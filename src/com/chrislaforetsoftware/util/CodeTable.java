@@ -0,0 +1,290 @@
+/* CodeTable.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+ 
+/** A set of codes and their descriptions compiled for constant-time
+ * lookup.  Single character codes, such as the identifier types, are
+ * held in an array indexed by the character.  Longer codes, such as the
+ * three letter business function codes, are placed in a table by a hash
+ * chosen when the table is built so that no two codes share a slot; a
+ * lookup is then one hash, one probe and one compare.  (Should no such
+ * hash be found, as when two codes have the same String hash, codes that
+ * collide go in the next free slot and are found by probing.)
+ * <p>
+ * A table is built from CodeLookup entries or loaded from a properties
+ * file of code=description lines, so a full code list can be kept
+ * outside the code.  Tables never change once built and may be shared
+ * between threads.
+ */
+ 
+public class CodeTable
+    {
+    // descriptions of single character codes, indexed by the character
+    private String [] _single = new String[128];
+    
+    // codes and descriptions of longer codes, by hash slot
+    private String [] _codes;
+    private String [] _descriptions;
+    private int _multiplier;
+    private int _shift;
+    private int _size;
+    
+    /** Compiles a table from lookup entries.  When a code is repeated
+     * the first entry is the one used, as it was for a linear scan.
+     * 
+     * @param Lookups the codes and their descriptions.
+     */
+    public CodeTable(CodeLookup [] Lookups)
+        {
+        List<CodeLookup> longer = new ArrayList<CodeLookup>(Lookups.length);
+        for (CodeLookup lookup : Lookups)
+            {
+            String code = lookup.getCode();
+            if (code.length() == 1 && code.charAt(0) < _single.length)
+                {
+                if (_single[code.charAt(0)] == null)
+                    {
+                    _single[code.charAt(0)] = lookup.getDescription();
+                    ++_size;
+                    }
+                }
+            else if (!contains(longer,code))
+                {
+                longer.add(lookup);
+                ++_size;
+                }
+            }
+        compile(longer);
+        }
+    
+    
+    /** Loads a table from a properties file in UTF-8, one code=description
+     * per line.
+     * 
+     * @param File the file to load.
+     * @return the compiled table.
+     * @throws IOException if the file cannot be read.
+     */
+    static public CodeTable load(Path File) throws IOException
+        {
+        try (Reader reader = Files.newBufferedReader(File,StandardCharsets.UTF_8))
+            {
+            return load(reader);
+            }
+        }
+    
+    
+    /** Loads a table from properties text, one code=description per line.
+     * 
+     * @param Source the text to read; it is not closed.
+     * @return the compiled table.
+     * @throws IOException if the text cannot be read.
+     */
+    static public CodeTable load(Reader Source) throws IOException
+        {
+        Properties properties = new Properties();
+        properties.load(Source);
+        
+        List<CodeLookup> lookups = new ArrayList<CodeLookup>(properties.size());
+        for (String code : properties.stringPropertyNames())
+            lookups.add(new CodeLookup(code,properties.getProperty(code)));
+        return new CodeTable(lookups.toArray(new CodeLookup[lookups.size()]));
+        }
+    
+    
+    /** Returns the number of codes in the table.
+     * 
+     * @return the number of codes.
+     */
+    public int size()
+        {
+        return _size;
+        }
+    
+    
+    /** Looks up a single character code.
+     * 
+     * @param Code the code.
+     * @return the description or null if the code is not in the table.
+     */
+    public String getDescription(char Code)
+        {
+        if (Code < _single.length)
+            return _single[Code];
+        return find(String.valueOf(Code),0,1);
+        }
+    
+    
+    /** Looks up a code.
+     * 
+     * @param Code the code.
+     * @return the description or null if the code is not in the table.
+     */
+    public String getDescription(CharSequence Code)
+        {
+        return getDescription(Code,0,Code.length());
+        }
+    
+    
+    /** Looks up a code held in part of a larger sequence, such as the
+     * type character at the start of an identifier field, without
+     * copying it.
+     * 
+     * @param Source the characters holding the code.
+     * @param Start the offset of the first character of the code.
+     * @param End the offset after the last character of the code.
+     * @return the description or null if the code is not in the table.
+     */
+    public String getDescription(CharSequence Source,int Start,int End)
+        {
+        if (End - Start == 1 && Source.charAt(Start) < _single.length)
+            return _single[Source.charAt(Start)];
+        return find(Source,Start,End);
+        }
+    
+    
+    /** Probes the hash table for a code.
+     * 
+     * @return the description or null if the code is not in the table.
+     */
+    private String find(CharSequence Source,int Start,int End)
+        {
+        int mask = _codes.length - 1;
+        for (int slot = slot(hash(Source,Start,End)); _codes[slot] != null; slot = (slot + 1) & mask)
+            {
+            if (matches(_codes[slot],Source,Start,End))
+                return _descriptions[slot];
+            }
+        return null;
+        }
+    
+    
+    /** Compares a code with a range of characters. */
+    static private boolean matches(String Code,CharSequence Source,int Start,int End)
+        {
+        if (Code.length() != End - Start)
+            return false;
+        for (int index = 0; index < Code.length(); index++)
+            {
+            if (Code.charAt(index) != Source.charAt(Start + index))
+                return false;
+            }
+        return true;
+        }
+    
+    
+    /** Finds a multiplier for which every code lands in its own slot,
+     * trying a table of twice the size if none works at the smaller one.
+     * The table is always at least twice the number of codes, so it has
+     * empty slots to end a probe.
+     * 
+     * @param Lookups the codes longer than one character.
+     */
+    private void compile(List<CodeLookup> Lookups)
+        {
+        int [] hashes = new int[Lookups.size()];
+        for (int index = 0; index < hashes.length; index++)
+            {
+            String code = Lookups.get(index).getCode();
+            hashes[index] = hash(code,0,code.length());
+            }
+        
+        int bits = 1;
+        while ((1 << bits) < Lookups.size() * 2)
+            ++bits;
+        for (int tries = 0; tries < 128; tries++)
+            {
+            _shift = 32 - (bits + tries / 64);
+            _multiplier = 0x9E3779B9 + tries * 0x61C88646 * 2;
+            if (place(Lookups,hashes,false))
+                return;
+            }
+        place(Lookups,hashes,true);
+        }
+    
+    
+    /** Fills the table using the current multiplier.
+     * 
+     * @param Probe true to put colliding codes in the next free slot, false to give up on a collision.
+     * @return true if every code was placed.
+     */
+    private boolean place(List<CodeLookup> Lookups,int [] Hashes,boolean Probe)
+        {
+        _codes = new String[1 << (32 - _shift)];
+        _descriptions = new String[_codes.length];
+        int mask = _codes.length - 1;
+        for (int index = 0; index < Hashes.length; index++)
+            {
+            int slot = slot(Hashes[index]);
+            if (_codes[slot] != null && !Probe)
+                return false;
+            while (_codes[slot] != null)
+                slot = (slot + 1) & mask;
+            _codes[slot] = Lookups.get(index).getCode();
+            _descriptions[slot] = Lookups.get(index).getDescription();
+            }
+        return true;
+        }
+    
+    
+    /** Maps a hash to its slot with the chosen multiplier. */
+    private int slot(int Hash)
+        {
+        return (Hash * _multiplier) >>> _shift;
+        }
+    
+    
+    /** Computes String.hashCode() for a range of characters. */
+    static private int hash(CharSequence Source,int Start,int End)
+        {
+        int hash = 0;
+        for (int index = Start; index < End; index++)
+            hash = 31 * hash + Source.charAt(index);
+        return hash;
+        }
+    
+    
+    /** Determines if a code is already in the list. */
+    static private boolean contains(List<CodeLookup> Lookups,String Code)
+        {
+        for (CodeLookup lookup : Lookups)
+            {
+            if (lookup.getCode().equals(Code))
+                return true;
+            }
+        return false;
+        }
+    }
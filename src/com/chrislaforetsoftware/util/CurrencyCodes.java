@@ -0,0 +1,116 @@
+/* CurrencyCodes.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.util.Arrays;
+import java.util.Currency;
+ 
+/** ISO 4217 currency codes as small ints.  The index of a code is its
+ * three letters read as a base 26 number, so AAA is 0 and ZZZ is 17575,
+ * and it is worked out from the characters of a message with no lookup
+ * or allocation.  The number of minor unit digits of each currency the
+ * platform knows is read from java.util.Currency once.
+ */
+ 
+public class CurrencyCodes
+    {
+    /** The index of something that is not three capital letters. */
+    static public final int NO_CURRENCY = -1;
+    
+    /** The number of possible indexes. */
+    static public final int COUNT = 26 * 26 * 26;
+    
+    /** The index of US dollars, the currency of FedWire and CHIPS. */
+    static public final int USD = index("USD",0);
+    
+    // minor unit digits by index; -1 where the currency is unknown or has none
+    static private final byte [] _minorDigits = new byte[COUNT];
+    
+    static
+        {
+        Arrays.fill(_minorDigits,(byte)-1);
+        for (Currency currency : Currency.getAvailableCurrencies())
+            {
+            int index = index(currency.getCurrencyCode(),0);
+            if (index != NO_CURRENCY)
+                _minorDigits[index] = (byte)currency.getDefaultFractionDigits();
+            }
+        }
+    
+    /** Works out the index of the three letter code starting at Start.
+     * 
+     * @param Source the characters holding the code.
+     * @param Start the offset of the first letter.
+     * @return the index or NO_CURRENCY if there are not three capital letters there.
+     */
+    static public int index(CharSequence Source,int Start)
+        {
+        if (Start < 0 || Start + 3 > Source.length())
+            return NO_CURRENCY;
+        
+        return index(Source.charAt(Start),Source.charAt(Start + 1),Source.charAt(Start + 2));
+        }
+    
+    
+    /** Works out the index of a code from its three letters.
+     * 
+     * @return the index or NO_CURRENCY if they are not all capital letters.
+     */
+    static public int index(char First,char Second,char Third)
+        {
+        if (First < 'A' || First > 'Z' || Second < 'A' || Second > 'Z' || Third < 'A' || Third > 'Z')
+            return NO_CURRENCY;
+        return ((First - 'A') * 26 + (Second - 'A')) * 26 + (Third - 'A');
+        }
+    
+    
+    /** Retrieves the number of minor unit digits of a currency, such as
+     * 2 for USD and 0 for JPY.
+     * 
+     * @param Index the currency index.
+     * @return the digits or -1 if the currency is unknown or has no minor unit.
+     */
+    static public int getMinorDigits(int Index)
+        {
+        if (Index < 0 || Index >= COUNT)
+            return -1;
+        return _minorDigits[Index];
+        }
+    
+    
+    /** Spells out the code of a currency index.
+     * 
+     * @param Index the currency index.
+     * @return the three letter code or null for NO_CURRENCY.
+     */
+    static public String getCode(int Index)
+        {
+        if (Index < 0 || Index >= COUNT)
+            return null;
+        return new String(new char[] { (char)('A' + Index / 676), (char)('A' + Index / 26 % 26), (char)('A' + Index % 26) });
+        }
+    }
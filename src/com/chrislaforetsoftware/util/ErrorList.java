@@ -0,0 +1,457 @@
+/* ErrorList.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+ 
+/** The errors found in a message, kept as compact entries rather than
+ * as text.  Each entry is a ParseError code with the line, the offset in
+ * the message, the tag and a number, held in one int array; the text is
+ * only put together when get() asks for it, and is then kept.  Nothing
+ * is allocated until the first error is added, so a clean message costs
+ * no more than the empty list.
+ * <p>
+ * To the rest of the code this is a List&lt;String&gt; whose text is
+ * exactly what the parsers used to add, and any text can still be added
+ * with add(String).  The structured getters let a caller act on errors
+ * without parsing their text.
+ */
+ 
+public class ErrorList extends AbstractList<String>
+    {
+    /** The offset of an error that was not found at a known place. */
+    static public final int NO_OFFSET = -1;
+    
+    // the ints making up one entry: code, line, offset, tag code, tag width and number
+    static private final int STRIDE = 6;
+    static private final int CODE = 0;
+    static private final int LINE = 1;
+    static private final int OFFSET = 2;
+    static private final int TAG_CODE = 3;
+    static private final int TAG_WIDTH = 4;
+    static private final int NUMBER = 5;
+    
+    static private final ParseError [] _codes = ParseError.values();
+     
+    /** The errors of a clean parse, shared by every such result.  It
+     * cannot be changed; MessageParseResults.getMutableErrors() swaps it
+     * for an ErrorList when a later check needs to add to it.
+     */
+    static public final List<String> EMPTY = Collections.emptyList();
+     
+    static private final ThreadLocal<ErrorList> _scratch = new ThreadLocal<ErrorList>()
+        {
+        @Override
+        protected ErrorList initialValue()
+            {
+            return new ErrorList();
+            }
+        };
+    
+    private int [] _entries;
+    private String [] _texts;
+    private String [] _tags;
+    private int _size;
+    
+    /** Creates an empty list. */
+    public ErrorList()
+        {
+        }
+     
+     
+    /** Copies the entries of another list, with any text it has already
+     * put together, into arrays just large enough for them. */
+    private ErrorList(ErrorList Other)
+        {
+        _size = Other._size;
+        _entries = Arrays.copyOf(Other._entries,_size * STRIDE);
+        if (Other._texts != null)
+            _texts = Arrays.copyOf(Other._texts,_size);
+        if (Other._tags != null)
+            _tags = Arrays.copyOf(Other._tags,_size);
+        }
+     
+     
+    /** Returns the calling thread's scratch list, emptied, for a parse
+     * that does not know yet whether it will find any errors.  What is
+     * recorded in it must be handed on with keep(), as the next parse on
+     * the thread empties it again.
+     * 
+     * @return this thread's empty scratch list.
+     */
+    static public ErrorList scratch()
+        {
+        ErrorList errors = _scratch.get();
+        errors.clear();
+        return errors;
+        }
+     
+     
+    /** Returns the errors to keep from a scratch list: EMPTY if there
+     * are none, so a clean parse allocates nothing for them, otherwise a
+     * copy of the entries.
+     * 
+     * @param Scratch the list from scratch().
+     * @return the errors for the results of the parse.
+     */
+    static public List<String> keep(ErrorList Scratch)
+        {
+        return Scratch._size == 0 ? EMPTY : new ErrorList(Scratch);
+        }
+     
+     
+    /** Records an error found on a line of the message.
+     * 
+     * @param Code the error.
+     * @param Line the line number.
+     * @param Offset the offset of the start of the line in the message.
+     */
+    public void add(ParseError Code,int Line,int Offset)
+        {
+        add(Code,Line,Offset,TagTable.NO_TAG_CODE,0,0);
+        }
+    
+    
+    /** Records an error found on a line of the message that carries a
+     * number, such as the length of a bad tag.
+     * 
+     * @param Code the error.
+     * @param Line the line number.
+     * @param Offset the offset of the start of the line in the message.
+     * @param Number the number shown in the text.
+     */
+    public void add(ParseError Code,int Line,int Offset,int Number)
+        {
+        add(Code,Line,Offset,TagTable.NO_TAG_CODE,0,Number);
+        }
+    
+    
+    /** Records an error in a field.  A tag that is not all digits is
+     * copied, so only such errors allocate.
+     * 
+     * @param Code the error.
+     * @param Tagged the field the error is about.
+     */
+    public void add(ParseError Code,Field Tagged)
+        {
+        int code = Tagged.getTagCode();
+        if (code != TagTable.NO_TAG_CODE)
+            add(Code,0,NO_OFFSET,code,Tagged.getTagLength(),0);
+        else
+            {
+            add(Code,0,NO_OFFSET,TagTable.NO_TAG_CODE,0,0);
+            if (_tags == null)
+                _tags = new String[_entries.length / STRIDE];
+            _tags[_size - 1] = Tagged.getTag();
+            }
+        }
+    
+    
+    /** Records an error about a numeric tag, such as a missing field.
+     * 
+     * @param Code the error.
+     * @param TagCode the tag code.
+     * @param TagWidth the number of digits in the tag.
+     */
+    public void addTag(ParseError Code,int TagCode,int TagWidth)
+        {
+        add(Code,0,NO_OFFSET,TagCode,TagWidth,0);
+        }
+    
+    
+    /** Records an error in a field in any list of errors: as an entry
+     * if it is an ErrorList and as text otherwise.
+     * 
+     * @param Errors the list to add to.
+     * @param Code the error.
+     * @param Tagged the field the error is about.
+     */
+    static public void add(List<String> Errors,ParseError Code,Field Tagged)
+        {
+        if (Errors instanceof ErrorList)
+            ((ErrorList)Errors).add(Code,Tagged);
+        else
+            Errors.add(Code.format(0,Tagged.getTag(),0));
+        }
+    
+    
+    /** Records an error about a numeric tag in any list of errors.
+     * 
+     * @param Errors the list to add to.
+     * @param Code the error.
+     * @param TagCode the tag code.
+     * @param TagWidth the number of digits in the tag.
+     */
+    static public void addTag(List<String> Errors,ParseError Code,int TagCode,int TagWidth)
+        {
+        if (Errors instanceof ErrorList)
+            ((ErrorList)Errors).addTag(Code,TagCode,TagWidth);
+        else
+            Errors.add(Code.format(0,tag(TagCode,TagWidth),0));
+        }
+    
+    
+    /** Adds an error given as text.
+     * 
+     * @see java.util.AbstractList#add(java.lang.Object)
+     */
+    @Override
+    public boolean add(String Text)
+        {
+        add(_size,Text);
+        return true;
+        }
+    
+    
+    /** Inserts an error given as text.
+     * 
+     * @see java.util.AbstractList#add(int, java.lang.Object)
+     */
+    @Override
+    public void add(int Index,String Text)
+        {
+        if (Index < 0 || Index > _size)
+            throw new IndexOutOfBoundsException("Index " + Index + " is outside a list of " + _size + ".");
+        add(ParseError.TEXT,0,NO_OFFSET,TagTable.NO_TAG_CODE,0,0);
+        if (_texts == null)
+            _texts = new String[_entries.length / STRIDE];
+        if (Index < _size - 1)
+            {
+            System.arraycopy(_entries,Index * STRIDE,_entries,(Index + 1) * STRIDE,(_size - 1 - Index) * STRIDE);
+            System.arraycopy(_texts,Index,_texts,Index + 1,_size - 1 - Index);
+            if (_tags != null)
+                System.arraycopy(_tags,Index,_tags,Index + 1,_size - 1 - Index);
+            Arrays.fill(_entries,Index * STRIDE,(Index + 1) * STRIDE,0);
+            _entries[Index * STRIDE + CODE] = ParseError.TEXT.ordinal();
+            _entries[Index * STRIDE + OFFSET] = NO_OFFSET;
+            _entries[Index * STRIDE + TAG_CODE] = TagTable.NO_TAG_CODE;
+            if (_tags != null)
+                _tags[Index] = null;
+            }
+        _texts[Index] = Text;
+        ++modCount;
+        }
+    
+    
+    /** Returns the text of an error, putting it together the first time.
+     * 
+     * @see java.util.AbstractList#get(int)
+     */
+    @Override
+    public String get(int Index)
+        {
+        check(Index);
+        if (_texts != null && _texts[Index] != null)
+            return _texts[Index];
+        
+        int entry = Index * STRIDE;
+        String text = getCode(Index).format(_entries[entry + LINE],getTag(Index),_entries[entry + NUMBER]);
+        if (_texts == null)
+            _texts = new String[_entries.length / STRIDE];
+        _texts[Index] = text;
+        return text;
+        }
+    
+    
+    /** Removes an error.
+     * 
+     * @see java.util.AbstractList#remove(int)
+     */
+    @Override
+    public String remove(int Index)
+        {
+        String text = get(Index);
+        int following = _size - 1 - Index;
+        System.arraycopy(_entries,(Index + 1) * STRIDE,_entries,Index * STRIDE,following * STRIDE);
+        System.arraycopy(_texts,Index + 1,_texts,Index,following);
+        _texts[_size - 1] = null;
+        if (_tags != null)
+            {
+            System.arraycopy(_tags,Index + 1,_tags,Index,following);
+            _tags[_size - 1] = null;
+            }
+        --_size;
+        ++modCount;
+        return text;
+        }
+    
+    
+    /** Empties the list, keeping its arrays for the next message.
+     * 
+     * @see java.util.AbstractList#clear()
+     */
+    @Override
+    public void clear()
+        {
+        if (_texts != null)
+            Arrays.fill(_texts,0,_size,null);
+        if (_tags != null)
+            Arrays.fill(_tags,0,_size,null);
+        _size = 0;
+        ++modCount;
+        }
+    
+    
+    /* (non-Javadoc)
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size()
+        {
+        return _size;
+        }
+    
+    
+    /** Retrieves the code of an error.
+     * 
+     * @param Index the error.
+     * @return the code; TEXT for an error added as text.
+     */
+    public ParseError getCode(int Index)
+        {
+        check(Index);
+        return _codes[_entries[Index * STRIDE + CODE]];
+        }
+    
+    
+    /** Retrieves the line an error was found on.
+     * 
+     * @param Index the error.
+     * @return the line number or 0 if the error is not about a line.
+     */
+    public int getLine(int Index)
+        {
+        check(Index);
+        return _entries[Index * STRIDE + LINE];
+        }
+    
+    
+    /** Retrieves where in the message an error was found.
+     * 
+     * @param Index the error.
+     * @return the offset of the start of the line or NO_OFFSET.
+     */
+    public int getOffset(int Index)
+        {
+        check(Index);
+        return _entries[Index * STRIDE + OFFSET];
+        }
+    
+    
+    /** Retrieves the code of the tag an error is about.
+     * 
+     * @param Index the error.
+     * @return the tag code or TagTable.NO_TAG_CODE if there is none or it is not numeric.
+     */
+    public int getTagCode(int Index)
+        {
+        check(Index);
+        return _entries[Index * STRIDE + TAG_CODE];
+        }
+    
+    
+    /** Retrieves the tag an error is about.
+     * 
+     * @param Index the error.
+     * @return the tag or null if the error is not about a field.
+     */
+    public String getTag(int Index)
+        {
+        check(Index);
+        if (_tags != null && _tags[Index] != null)
+            return _tags[Index];
+        int entry = Index * STRIDE;
+        return tag(_entries[entry + TAG_CODE],_entries[entry + TAG_WIDTH]);
+        }
+    
+    
+    /** Retrieves the number recorded with an error, such as the length
+     * of a bad tag.
+     * 
+     * @param Index the error.
+     * @return the number or 0 if the error has none.
+     */
+    public int getNumber(int Index)
+        {
+        check(Index);
+        return _entries[Index * STRIDE + NUMBER];
+        }
+     
+     
+    /** Appends an entry, growing the arrays as needed. */
+    private void add(ParseError Code,int Line,int Offset,int TagCode,int TagWidth,int Number)
+        {
+        if (_entries == null)
+            _entries = new int[8 * STRIDE];
+        else if ((_size + 1) * STRIDE > _entries.length)
+            {
+            _entries = Arrays.copyOf(_entries,_entries.length * 2);
+            if (_texts != null)
+                _texts = Arrays.copyOf(_texts,_entries.length / STRIDE);
+            if (_tags != null)
+                _tags = Arrays.copyOf(_tags,_entries.length / STRIDE);
+            }
+        
+        int entry = _size * STRIDE;
+        _entries[entry + CODE] = Code.ordinal();
+        _entries[entry + LINE] = Line;
+        _entries[entry + OFFSET] = Offset;
+        _entries[entry + TAG_CODE] = TagCode;
+        _entries[entry + TAG_WIDTH] = TagWidth;
+        _entries[entry + NUMBER] = Number;
+        ++_size;
+        ++modCount;
+        }
+    
+    
+    /** Spells out a numeric tag, keeping its leading zeros. */
+    static private String tag(int TagCode,int TagWidth)
+        {
+        if (TagCode == TagTable.NO_TAG_CODE)
+            return null;
+        String tag = TagTable.tag(TagCode,TagWidth);
+        if (tag != null)
+            return tag;
+        
+        StringBuilder sb = new StringBuilder(TagWidth);
+        String digits = Integer.toString(TagCode);
+        for (int pad = digits.length(); pad < TagWidth; pad++)
+            sb.append('0');
+        return sb.append(digits).toString();
+        }
+    
+    
+    /** Checks that an index is inside the list. */
+    private void check(int Index)
+        {
+        if (Index < 0 || Index >= _size)
+            throw new IndexOutOfBoundsException("Index " + Index + " is outside a list of " + _size + ".");
+        }
+    }
@@ -27,6 +27,19 @@
 package com.chrislaforetsoftware.util;
  
 /** Container for a field code and its contents.
+ * <p>
+ * A field may hold its tag and value as Strings, or it may be a
+ * flyweight that only keeps the message it was parsed from and the
+ * offsets of the tag and value within it.  A flyweight copies the tag or
+ * value into a String the first time getTag() or getValue() is called;
+ * the length, charAt, compare and startsWith methods read the message
+ * in place and never allocate.  A parser that is reused from message to
+ * message may also reuse its flyweights through reset().
+ * <p>
+ * A tag made only of digits is also decoded once, when the field is
+ * created, into an int code (see TagTable).  Such a tag is handed out as
+ * the shared String from the tag table rather than a copy, and tags are
+ * compared by code.
  * 
  * @author Christopher Laforet
  */
@@ -35,21 +48,161 @@ public abstract class Field
     {
     private String _tag;
     private String _value;
+    private int _tagCode;
+    private CharSequence _source;
+    private int _tagStart;
+    private int _tagEnd;
+    private int _valueStart;
+    private int _valueEnd;
      
     public Field(String Tag,String Value)
         {
         _tag = Tag;
+        _tagCode = Tag == null ? TagTable.NO_TAG_CODE : TagTable.code(Tag);
         _value = Value;
         }
      
      
+    /** Creates a field whose value is a view of the message it was
+     * parsed from, such as a ByteCharSequence over the receive buffer.
+     * 
+     * @param Tag the field tag.
+     * @param Value the field contents.
+     */
+    public Field(String Tag,CharSequence Value)
+        {
+        _tag = Tag;
+        _tagCode = Tag == null ? TagTable.NO_TAG_CODE : TagTable.code(Tag);
+        if (Value instanceof String)
+            _value = (String)Value;
+        else
+            {
+            _source = Value;
+            _valueStart = 0;
+            _valueEnd = Value.length();
+            }
+        }
+     
+     
+    /** Creates a flyweight field over the message it was parsed from.
+     * 
+     * @param Source the message text.
+     * @param TagStart the offset of the first character of the tag.
+     * @param TagEnd the offset after the last character of the tag.
+     * @param ValueStart the offset of the first character of the value.
+     * @param ValueEnd the offset after the last character of the value.
+     */
+    public Field(CharSequence Source,int TagStart,int TagEnd,int ValueStart,int ValueEnd)
+        {
+        _source = Source;
+        _tagStart = TagStart;
+        _tagEnd = TagEnd;
+        _tagCode = TagTable.code(Source,TagStart,TagEnd);
+        _valueStart = ValueStart;
+        _valueEnd = ValueEnd;
+        }
+     
+     
+    /** Creates a field whose tag is a span of the message it was parsed
+     * from but whose value had to be assembled, for instance by joining
+     * lines with CRLF.
+     * 
+     * @param Source the message text.
+     * @param TagStart the offset of the first character of the tag.
+     * @param TagEnd the offset after the last character of the tag.
+     * @param Value the field contents.
+     */
+    public Field(CharSequence Source,int TagStart,int TagEnd,String Value)
+        {
+        _source = Source;
+        _tagStart = TagStart;
+        _tagEnd = TagEnd;
+        _tagCode = TagTable.code(Source,TagStart,TagEnd);
+        _value = Value;
+        }
+     
+     
+    /** Points a flyweight field at a new message, so that a parser that
+     * is reused from message to message can reuse its fields as well.
+     * Anything copied from the previous message is dropped.
+     * 
+     * @param Source the message text.
+     * @param TagStart the offset of the first character of the tag.
+     * @param TagEnd the offset after the last character of the tag.
+     * @param ValueStart the offset of the first character of the value.
+     * @param ValueEnd the offset after the last character of the value.
+     */
+    public void reset(CharSequence Source,int TagStart,int TagEnd,int ValueStart,int ValueEnd)
+        {
+        _tag = null;
+        _value = null;
+        _source = Source;
+        _tagStart = TagStart;
+        _tagEnd = TagEnd;
+        _tagCode = TagTable.code(Source,TagStart,TagEnd);
+        _valueStart = ValueStart;
+        _valueEnd = ValueEnd;
+        }
+     
+     
+    /** Points a field at a new message with a value that had to be
+     * assembled, as for the matching constructor.
+     * 
+     * @param Source the message text.
+     * @param TagStart the offset of the first character of the tag.
+     * @param TagEnd the offset after the last character of the tag.
+     * @param Value the field contents.
+     */
+    public void reset(CharSequence Source,int TagStart,int TagEnd,String Value)
+        {
+        _tag = null;
+        _value = Value;
+        _source = Source;
+        _tagStart = TagStart;
+        _tagEnd = TagEnd;
+        _tagCode = TagTable.code(Source,TagStart,TagEnd);
+        }
+     
+     
     /** Retrieves the tag for the field without the curly braces.
      * 
      * @return the tag for the field.
      */
     public String getTag()
         {
-        return _tag;
+        // racing threads may both copy the tag, but the copies are equal
+        String tag = _tag;
+        if (tag == null && _source != null)
+            {
+            if (_tagCode != TagTable.NO_TAG_CODE)
+                tag = TagTable.tag(_tagCode,_tagEnd - _tagStart);
+            if (tag == null)
+                tag = ParseSupport.substring(_source,_tagStart,_tagEnd);
+            _tag = tag;
+            }
+        return tag;
+        }
+     
+     
+    /** Retrieves the tag as decoded when the field was created.
+     * 
+     * @return the tag code or TagTable.NO_TAG_CODE if the tag is not made only of digits.
+     */
+    public int getTagCode()
+        {
+        return _tagCode;
+        }
+     
+     
+    /** Determines if the tag is the numeric tag passed in.
+     * 
+     * @param TagCode the tag code.
+     * @param Width the number of digits in the tag, counting leading zeros.
+     * @return true if the tags are the same.
+     */
+    public boolean tagEquals(int TagCode,int Width)
+        {
+        return _tagCode == TagCode && TagCode != TagTable.NO_TAG_CODE && getTagLength() == Width;
         }
      
      
@@ -59,7 +212,188 @@ public abstract class Field
      */
     public String getValue()
         {
-        return _value;
+        String value = _value;
+        if (value == null && _source != null)
+            {
+            value = ParseSupport.substring(_source,_valueStart,_valueEnd);
+            _value = value;
+            }
+        return value;
+        }
+     
+     
+    /** Retrieves the value without copying its characters.  For a
+     * flyweight this is a view of the message, which for a buffer is only
+     * valid while the buffer is unchanged.
+     * 
+     * @return the value as a character sequence.
+     */
+    public CharSequence getValueSequence()
+        {
+        if (_value != null || _source == null)
+            return _value;
+        return CharSpan.of(_source,_valueStart,_valueEnd);
+        }
+     
+     
+    /** Returns the number of characters in the value.
+     * 
+     * @return the value length.
+     */
+    public int getValueLength()
+        {
+        if (_value != null || _source == null)
+            return _value == null ? 0 : _value.length();
+        return _valueEnd - _valueStart;
+        }
+     
+     
+    /** Returns a single character of the value.
+     * 
+     * @param Index the index of the character within the value.
+     * @return the character.
+     */
+    public char getValueCharAt(int Index)
+        {
+        if (_value != null || _source == null)
+            return _value.charAt(Index);
+        if (Index < 0 || Index >= _valueEnd - _valueStart)
+            throw new IndexOutOfBoundsException("Index " + Index + " is outside a value of length " + (_valueEnd - _valueStart) + ".");
+        return _source.charAt(_valueStart + Index);
+        }
+     
+     
+    /** Determines if the tag matches the one passed in.
+     * 
+     * @param Tag the tag to compare against.
+     * @return true if the tags are the same.
+     */
+    public boolean tagEquals(CharSequence Tag)
+        {
+        if (_tag != null || _source == null)
+            return _tag != null && compare(_tag,0,_tag.length(),Tag,false) == 0;
+        return compare(_source,_tagStart,_tagEnd,Tag,false) == 0;
+        }
+     
+     
+    /** Returns the number of characters in the tag.
+     * 
+     * @return the tag length.
+     */
+    public int getTagLength()
+        {
+        if (_tag != null || _source == null)
+            return _tag == null ? 0 : _tag.length();
+        return _tagEnd - _tagStart;
+        }
+     
+     
+    /** Returns a single character of the tag.
+     * 
+     * @param Index the index of the character within the tag.
+     * @return the character.
+     */
+    public char getTagCharAt(int Index)
+        {
+        if (_tag != null || _source == null)
+            return _tag.charAt(Index);
+        if (Index < 0 || Index >= _tagEnd - _tagStart)
+            throw new IndexOutOfBoundsException("Index " + Index + " is outside a tag of length " + (_tagEnd - _tagStart) + ".");
+        return _source.charAt(_tagStart + Index);
+        }
+     
+     
+    /** Computes the same hash code as getTag().hashCode() without 
+     * copying the tag.
+     * 
+     * @return the hash code of the tag.
+     */
+    public int tagHashCode()
+        {
+        int hash = 0;
+        int length = getTagLength();
+        for (int index = 0; index < length; index++)
+            hash = 31 * hash + getTagCharAt(index);
+        return hash;
+        }
+     
+     
+    /** Determines if this field has the same tag as another field.
+     * 
+     * @param Other the field to compare against.
+     * @return true if the tags are the same.
+     */
+    public boolean tagEquals(Field Other)
+        {
+        int length = getTagLength();
+        if (Other.getTagLength() != length)
+            return false;
+        if (_tagCode != TagTable.NO_TAG_CODE || Other._tagCode != TagTable.NO_TAG_CODE)
+            return _tagCode == Other._tagCode;
+        for (int index = 0; index < length; index++)
+            {
+            if (getTagCharAt(index) != Other.getTagCharAt(index))
+                return false;
+            }
+        return true;
+        }
+     
+     
+    /** Determines if the value matches the characters passed in.
+     * 
+     * @param Other the characters to compare against.
+     * @return true if the value is the same.
+     */
+    public boolean valueEquals(CharSequence Other)
+        {
+        return getValueLength() == Other.length() && compareValueTo(Other) == 0;
+        }
+     
+     
+    /** Determines if the value starts with the characters passed in.
+     * 
+     * @param Prefix the characters to look for.
+     * @return true if the value starts with the prefix.
+     */
+    public boolean valueStartsWith(CharSequence Prefix)
+        {
+        if (_value != null || _source == null)
+            return _value != null && compare(_value,0,_value.length(),Prefix,true) == 0;
+        return compare(_source,_valueStart,_valueEnd,Prefix,true) == 0;
+        }
+     
+     
+    /** Compares the value with the characters passed in, in the same
+     * order as String.compareTo().
+     * 
+     * @param Other the characters to compare against.
+     * @return less than, equal to or greater than zero as the value sorts before, with or after Other.
+     */
+    public int compareValueTo(CharSequence Other)
+        {
+        if (_value != null || _source == null)
+            return compare(_value == null ? "" : _value,0,getValueLength(),Other,false);
+        return compare(_source,_valueStart,_valueEnd,Other,false);
+        }
+     
+     
+    /** Compares a range of Source with Other character by character.
+     * With Prefix set only the length of Other is compared.
+     */
+    static private int compare(CharSequence Source,int Start,int End,CharSequence Other,boolean Prefix)
+        {
+        int length = End - Start;
+        int otherLength = Other.length();
+        if (Prefix && otherLength > length)
+            return -1;
+        int common = Math.min(length,otherLength);
+        for (int index = 0; index < common; index++)
+            {
+            int diff = Source.charAt(Start + index) - Other.charAt(index);
+            if (diff != 0)
+                return diff;
+            }
+        return Prefix ? 0 : length - otherLength;
         }
      
      
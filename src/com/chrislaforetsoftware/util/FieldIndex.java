@@ -0,0 +1,206 @@
+/* FieldIndex.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.util.Arrays;
+import java.util.List;
+ 
+/** Finds the fields of a message by tag.  The index is an open-addressed
+ * table of fields keyed by tag code (see TagTable), sized to twice the
+ * number of fields, so building it costs one array at most and a lookup
+ * is a multiply, a mask and usually a single compare.  Tags that are not
+ * all digits are keyed by their hash and still found.
+ * <p>
+ * When a tag is repeated the first field with it is the one indexed, and
+ * each later one is kept as a duplicate, in message order, so that the
+ * message can report them without a second pass.  An index may be
+ * rebuilt for another message, keeping its arrays when they are big
+ * enough.
+ */
+ 
+public class FieldIndex
+    {
+    private int _tagWidth;
+    private Field [] _table = new Field[8];
+    private Field [] _duplicates = new Field[0];
+    private int _duplicateCount;
+    
+    /** Creates an empty index.
+     * 
+     * @param TagWidth the number of digits in the tags of the message format, used by get(int).
+     */
+    public FieldIndex(int TagWidth)
+        {
+        _tagWidth = TagWidth;
+        }
+    
+    
+    /** Indexes a new list of fields, replacing whatever was indexed.
+     * 
+     * @param Fields the fields of the message.
+     */
+    public void index(List<Field> Fields)
+        {
+        int size = 8;
+        while (size < Fields.size() * 2)
+            size <<= 1;
+        if (_table.length < size)
+            _table = new Field[size];
+        else
+            {
+            size = _table.length;
+            Arrays.fill(_table,null);
+            }
+        _duplicateCount = 0;
+        
+        for (int position = 0; position < Fields.size(); position++)
+            {
+            Field field = Fields.get(position);
+            int slot = slot(key(field),size);
+            while (_table[slot] != null && !_table[slot].tagEquals(field))
+                slot = (slot + 1) & (size - 1);
+            if (_table[slot] == null)
+                _table[slot] = field;
+            else
+                {
+                if (_duplicateCount == _duplicates.length)
+                    _duplicates = Arrays.copyOf(_duplicates,Math.max(4,_duplicateCount * 2));
+                _duplicates[_duplicateCount++] = field;
+                }
+            }
+        }
+    
+    
+    /** Retrieves the first field with a tag of the format's width.
+     * 
+     * @param TagCode the tag code (e.g. 3600).
+     * @return the field or null if it does not exist.
+     */
+    public Field get(int TagCode)
+        {
+        return get(TagCode,_tagWidth);
+        }
+    
+    
+    /** Retrieves the first field with a numeric tag.
+     * 
+     * @param TagCode the tag code.
+     * @param Width the number of digits in the tag, counting leading zeros.
+     * @return the field or null if it does not exist.
+     */
+    public Field get(int TagCode,int Width)
+        {
+        if (TagCode == TagTable.NO_TAG_CODE)
+            return null;
+        
+        int mask = _table.length - 1;
+        for (int slot = slot(TagCode,_table.length); _table[slot] != null; slot = (slot + 1) & mask)
+            {
+            if (_table[slot].tagEquals(TagCode,Width))
+                return _table[slot];
+            }
+        return null;
+        }
+    
+    
+    /** Retrieves the first field with any tag.
+     * 
+     * @param Tag the tag.
+     * @return the field or null if it does not exist.
+     */
+    public Field get(CharSequence Tag)
+        {
+        int code = TagTable.code(Tag);
+        if (code != TagTable.NO_TAG_CODE)
+            return get(code,Tag.length());
+        
+        int hash = Tag.hashCode();
+        if (!(Tag instanceof String))
+            {
+            hash = 0;
+            for (int index = 0; index < Tag.length(); index++)
+                hash = 31 * hash + Tag.charAt(index);
+            }
+        int mask = _table.length - 1;
+        for (int slot = slot(hash,_table.length); _table[slot] != null; slot = (slot + 1) & mask)
+            {
+            if (_table[slot].tagEquals(Tag))
+                return _table[slot];
+            }
+        return null;
+        }
+    
+    
+    /** Returns how many fields repeated a tag seen earlier in the message.
+     * 
+     * @return the number of duplicates.
+     */
+    public int getDuplicateCount()
+        {
+        return _duplicateCount;
+        }
+    
+    
+    /** Retrieves a field that repeated a tag seen earlier in the message.
+     * 
+     * @param Index the duplicate to return, in message order.
+     * @return the field.
+     */
+    public Field getDuplicate(int Index)
+        {
+        if (Index < 0 || Index >= _duplicateCount)
+            throw new IndexOutOfBoundsException("Duplicate " + Index + " of " + _duplicateCount + ".");
+        return _duplicates[Index];
+        }
+    
+    
+    /** Picks the key a field is indexed under: its tag code, or the
+     * hash of its tag when the tag is not all digits.
+     * 
+     * @param Tagged the field.
+     * @return the key.
+     */
+    static private int key(Field Tagged)
+        {
+        int code = Tagged.getTagCode();
+        return code != TagTable.NO_TAG_CODE ? code : Tagged.tagHashCode();
+        }
+    
+    
+    /** Picks the first slot to probe for a key.  Tag codes are close
+     * together and their low bits repeat, so the key is spread before it
+     * is masked.
+     * 
+     * @param Key the key of the tag.
+     * @param Size the size of the table, a power of two.
+     * @return the slot.
+     */
+    static private int slot(int Key,int Size)
+        {
+        return (Key * 0x9E3779B9 >>> 16) & (Size - 1);
+        }
+    }
@@ -0,0 +1,329 @@
+/* MessageBatchParser.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+ 
+/** Parses every message of a buffer or file in parallel.  The input is
+ * first split into message spans by a MessageFramer, which only looks for
+ * the separators, and the spans are then parsed on a ForkJoinPool.  The
+ * results come back in the order the messages appear in the input, one
+ * per message, each with its own errors.  A message that makes its parser
+ * throw is reported as a result with no message, as with MessageFileReader.
+ * <p>
+ * A file is memory-mapped a window at a time.  The spans of each window are
+ * handed to the pool as soon as they are found, so the next window is 
+ * framed while the last one is being parsed.  The messages are parsed 
+ * straight from the mapped bytes, and all of the results are held until
+ * the call returns, so for very large files where the results are not all
+ * needed at once MessageFileReader is the better choice.
+ * 
+ * @see MessageFileReader
+ */
+ 
+public class MessageBatchParser
+    {
+    static public final int DEFAULT_WINDOW_SIZE = MessageFileReader.DEFAULT_WINDOW_SIZE;
+    
+    static private final int SPLIT_THRESHOLD = 64;     // messages parsed by one task without splitting
+    
+    /** Parses the messages of a region of a buffer on a pool of its own.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Framer the framer for the messages' format.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in input order.
+     * @throws IOException if a parser reports an I/O problem.
+     */
+    static public List<MessageParseResults> parseAll(ByteBuffer Buffer,int Offset,int Length,MessageFramer Framer,int Parallelism) throws IOException
+        {
+        ForkJoinPool pool = new ForkJoinPool(Parallelism);
+        try
+            {
+            return parseAll(Buffer,Offset,Length,Framer,pool);
+            }
+        finally
+            {
+            pool.shutdown();
+            }
+        }
+    
+    
+    /** Parses the messages of a region of a buffer on the given pool.
+     * The buffer's position and limit are left alone and the messages
+     * refer to the buffer, so the region must not be overwritten while
+     * they are in use.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Framer the framer for the messages' format.
+     * @param Pool the pool to parse on.
+     * @return the results of each message in input order.
+     * @throws IOException if a parser reports an I/O problem.
+     */
+    static public List<MessageParseResults> parseAll(ByteBuffer Buffer,int Offset,int Length,MessageFramer Framer,ForkJoinPool Pool) throws IOException
+        {
+        if (Offset < 0 || Length < 0 || Offset > Buffer.limit() - Length)
+            throw new IndexOutOfBoundsException("Region " + Offset + "+" + Length + " is outside the buffer limit of " + Buffer.limit() + ".");
+        
+        Spans spans = new Spans();
+        frameAll(Framer,Buffer,Offset,Offset + Length,true,spans);
+        ParseTask task = new ParseTask(Framer,Buffer,spans);
+        try
+            {
+            Pool.invoke(task);
+            }
+        catch (UncheckedIOException ee)
+            {
+            throw ee.getCause();
+            }
+        return Arrays.asList(task._results);
+        }
+    
+    
+    /** Parses the messages of a file on a pool of its own.
+     * 
+     * @param File the file to parse.
+     * @param Framer the framer for the file's format.
+     * @param Parallelism the number of threads to parse with.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be read or a parser reports an I/O problem.
+     */
+    static public List<MessageParseResults> parseAll(Path File,MessageFramer Framer,int Parallelism) throws IOException
+        {
+        ForkJoinPool pool = new ForkJoinPool(Parallelism);
+        try
+            {
+            return parseAll(File,Framer,pool);
+            }
+        finally
+            {
+            pool.shutdown();
+            }
+        }
+    
+    
+    /** Parses the messages of a file on the given pool, mapping the file
+     * in windows of the default size.
+     * 
+     * @param File the file to parse.
+     * @param Framer the framer for the file's format.
+     * @param Pool the pool to parse on.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be read or a parser reports an I/O problem.
+     */
+    static public List<MessageParseResults> parseAll(Path File,MessageFramer Framer,ForkJoinPool Pool) throws IOException
+        {
+        return parseAll(File,Framer,Pool,DEFAULT_WINDOW_SIZE);
+        }
+    
+    
+    /** Parses the messages of a file on the given pool, mapping the file
+     * a window at a time.  A window is doubled when a single message does
+     * not fit in it.
+     * 
+     * @param File the file to parse.
+     * @param Framer the framer for the file's format.
+     * @param Pool the pool to parse on.
+     * @param WindowSize the number of bytes to map at a time.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be read or a parser reports an I/O problem.
+     */
+    static public List<MessageParseResults> parseAll(Path File,MessageFramer Framer,ForkJoinPool Pool,int WindowSize) throws IOException
+        {
+        if (WindowSize <= 0)
+            throw new IllegalArgumentException("Window size must be positive.");
+        
+        List<ParseTask> tasks = new ArrayList<ParseTask>();
+        try (FileChannel channel = FileChannel.open(File,StandardOpenOption.READ))
+            {
+            long size = channel.size();
+            long base = 0;
+            int windowSize = WindowSize;
+            while (base < size)
+                {
+                int length = (int)Math.min(windowSize,size - base);
+                boolean endOfInput = base + length >= size;
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,base,length);
+                Spans spans = new Spans();
+                int stop = frameAll(Framer,window,0,length,endOfInput,spans);
+                if (spans._count > 0)
+                    {
+                    ParseTask task = new ParseTask(Framer,window,spans);
+                    Pool.execute(task);
+                    tasks.add(task);
+                    }
+                if (endOfInput)
+                    break;
+                
+                if (stop == 0)
+                    {
+                    if (windowSize >= Integer.MAX_VALUE / 2)
+                        throw new IOException("Message at position " + base + " is larger than " + windowSize + " bytes.");
+                    windowSize *= 2;
+                    }
+                base += stop;
+                }
+            
+            int count = 0;
+            for (ParseTask task : tasks)
+                {
+                task.join();
+                count += task._results.length;
+                }
+            List<MessageParseResults> results = new ArrayList<MessageParseResults>(count);
+            for (ParseTask task : tasks)
+                results.addAll(Arrays.asList(task._results));
+            return results;
+            }
+        catch (UncheckedIOException ee)
+            {
+            throw ee.getCause();
+            }
+        finally
+            {
+            for (ParseTask task : tasks)
+                task.cancel(false);
+            }
+        }
+    
+    
+    /** Frames the messages between From and Limit.
+     * 
+     * @return where the first message that does not end before Limit
+     * starts, or Limit if every message was framed.
+     */
+    static int frameAll(MessageFramer Framer,ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,Spans Spans)
+        {
+        int [] span = new int[2];
+        int position = From;
+        while (position < Limit)
+            {
+            int next = Framer.frame(Buffer,position,Limit,EndOfInput,span);
+            if (next < 0)
+                return span[0] >= 0 ? span[0] : position;
+            if (span[0] >= 0)
+                Spans.add(span[0],span[1]);
+            position = next;
+            }
+        return position;
+        }
+    
+    
+    /** A growing list of the start and end of each message found,
+     * shared with MessageSpliterator.
+     */
+    static class Spans
+        {
+        int [] _spans = new int[256];
+        int _count;
+        
+        void add(int Start,int End)
+            {
+            if (_count * 2 == _spans.length)
+                _spans = Arrays.copyOf(_spans,_spans.length * 2);
+            _spans[_count * 2] = Start;
+            _spans[_count * 2 + 1] = End;
+            ++_count;
+            }
+        }
+    
+    
+    /** Parses a range of the spans of one buffer, splitting the range in
+     * half until it is small enough to parse directly.  Each result is
+     * stored at the index of its span, which keeps the input order.
+     */
+    static private class ParseTask extends RecursiveAction
+        {
+        static private final long serialVersionUID = 1L;
+        
+        private final MessageFramer _framer;
+        private final ByteBuffer _buffer;
+        private final int [] _spans;
+        private final MessageParseResults [] _results;
+        private final int _from;
+        private final int _to;
+        
+        private ParseTask(MessageFramer Framer,ByteBuffer Buffer,Spans Spans)
+            {
+            this(Framer,Buffer,Spans._spans,new MessageParseResults[Spans._count],0,Spans._count);
+            }
+        
+        
+        private ParseTask(MessageFramer Framer,ByteBuffer Buffer,int [] Spans,MessageParseResults [] Results,int From,int To)
+            {
+            _framer = Framer;
+            _buffer = Buffer;
+            _spans = Spans;
+            _results = Results;
+            _from = From;
+            _to = To;
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute()
+            {
+            if (_to - _from > SPLIT_THRESHOLD)
+                {
+                int middle = (_from + _to) >>> 1;
+                invokeAll(new ParseTask(_framer,_buffer,_spans,_results,_from,middle),
+                        new ParseTask(_framer,_buffer,_spans,_results,middle,_to));
+                return;
+                }
+            
+            try
+                {
+                for (int index = _from; index < _to; index++)
+                    {
+                    int start = _spans[index * 2];
+                    _results[index] = _framer.parseSafely(_buffer,start,_spans[index * 2 + 1] - start);
+                    }
+                }
+            catch (IOException ee)
+                {
+                throw new UncheckedIOException(ee);
+                }
+            }
+        }
+    }
@@ -0,0 +1,547 @@
+/* MessageFileReader.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+ 
+/** Reads a file holding many messages one message at a time, using a
+ * MessageFramer to find where each message starts and ends.
+ * <p>
+ * A FileChannel is memory-mapped a window at a time and each message is
+ * parsed straight from the mapped bytes, so the results refer to the
+ * mapping rather than to a copy.  A message that runs past the end of a
+ * window starts a new window, which is made larger only when one message
+ * does not fit in a whole window.  An InputStream is read in chunks and each
+ * message is copied out of the chunk before it is parsed, so in both cases 
+ * only the current window or chunk is held beyond the messages the caller
+ * keeps.
+ * <p>
+ * A maximum message length keeps the memory used bounded even for bad
+ * input.  It starts as the framer's getMaximumMessageLength() and can be
+ * changed with setMaximumMessageLength().  A message that grows past it
+ * is skipped up to the next place the framer finds a message could
+ * start, and next() returns a result with no message and a single error
+ * in its place.  For formats
+ * where lines matter the reader also counts the line each message starts
+ * on, so errors can be reported against the file as well as the message.
+ * A message that makes its parser throw is reported the same way, as a
+ * result with no message, and reading carries on with the next message.
+ * <p>
+ * The reader is an Iterator, so an IOException while reading is thrown as
+ * an UncheckedIOException.  It is not thread-safe.  For reactive consumers,
+ * publisher() adapts it to a Flow.Publisher that only reads as fast as the
+ * subscriber asks for messages.
+ */
+ 
+public class MessageFileReader implements Iterator<MessageParseResults>,Closeable
+    {
+    static public final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    static public final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+     
+    private MessageFramer _framer;
+    private Closeable _source;
+    private FileChannel _channel;
+    private InputStream _stream;
+    private long _size;
+    private int _windowSize;
+    private int _maximumMessageLength;
+    private boolean _countLines;
+     
+    private ByteBuffer _window;
+    private long _windowBase;       // position in the input of index 0 of the window
+    private int _position;          // where to look for the next message
+    private int _limit;             // end of the data in the window
+    private boolean _endOfInput;
+    private int [] _span = new int[2];
+    private boolean _skipping;
+    private long _line = 1;         // line number at the current position
+     
+    private MessageParseResults _next;
+    private long _nextPosition;
+    private long _nextLine;
+    private long _messagePosition = -1;
+    private long _messageLine = -1;
+    private boolean _finished;
+     
+    /** Opens a file and reads its messages through memory-mapped windows.
+     * 
+     * @param File the file to read.
+     * @param Framer the framer for the file's format.
+     * @throws IOException if the file cannot be opened.
+     */
+    public MessageFileReader(Path File,MessageFramer Framer) throws IOException
+        {
+        this(FileChannel.open(File,StandardOpenOption.READ),Framer,DEFAULT_WINDOW_SIZE);
+        }
+     
+     
+    /** Reads the messages of a channel from its current position through
+     * memory-mapped windows.  The channel is closed with the reader, or
+     * straight away if the reader cannot be set up.
+     * 
+     * @param Channel the channel to read.
+     * @param Framer the framer for the file's format.
+     * @param WindowSize the number of bytes to map at a time.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public MessageFileReader(FileChannel Channel,MessageFramer Framer,int WindowSize) throws IOException
+        {
+        _source = Channel;
+        _channel = Channel;
+        try
+            {
+            if (WindowSize <= 0)
+                throw new IllegalArgumentException("Window size must be positive.");
+             
+            _framer = Framer;
+            _countLines = Framer.countsLines();
+            _maximumMessageLength = Framer.getMaximumMessageLength();
+            _size = Channel.size();
+            _windowSize = WindowSize;
+            _windowBase = Channel.position();
+            mapWindow();
+            }
+        catch (IOException | RuntimeException | Error ee)
+            {
+            // the Path constructor opened the channel, so no one else can close it
+            try
+                {
+                Channel.close();
+                }
+            catch (IOException closing)
+                {
+                ee.addSuppressed(closing);
+                }
+            throw ee;
+            }
+        }
+     
+     
+    /** Reads the messages of a stream in chunks of the default size.
+     * The stream is closed with the reader.
+     * 
+     * @param Stream the stream to read.
+     * @param Framer the framer for the stream's format.
+     */
+    public MessageFileReader(InputStream Stream,MessageFramer Framer)
+        {
+        this(Stream,Framer,DEFAULT_CHUNK_SIZE);
+        }
+     
+     
+    /** Reads the messages of a stream in chunks.  The stream is closed
+     * with the reader.
+     * 
+     * @param Stream the stream to read.
+     * @param Framer the framer for the stream's format.
+     * @param ChunkSize the number of bytes to read at a time.
+     */
+    public MessageFileReader(InputStream Stream,MessageFramer Framer,int ChunkSize)
+        {
+        if (ChunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive.");
+         
+        _framer = Framer;
+        _countLines = Framer.countsLines();
+        _maximumMessageLength = Framer.getMaximumMessageLength();
+        _source = Stream;
+        _stream = Stream;
+        _window = ByteBuffer.allocate(ChunkSize);
+        }
+     
+     
+    /* (non-Javadoc)
+     * @see java.util.Iterator#hasNext()
+     */
+    public boolean hasNext()
+        {
+        if (_next == null && !_finished)
+            {
+            try
+                {
+                _next = readMessage();
+                }
+            catch (IOException ee)
+                {
+                throw new UncheckedIOException(ee);
+                }
+            _finished = _next == null;
+            }
+        return _next != null;
+        }
+     
+     
+    /** Returns the results of parsing the next message.
+     * 
+     * @see java.util.Iterator#next()
+     */
+    public MessageParseResults next()
+        {
+        if (!hasNext())
+            throw new NoSuchElementException("No more messages in the input.");
+         
+        MessageParseResults results = _next;
+        _next = null;
+        _messagePosition = _nextPosition;
+        _messageLine = _nextLine;
+        return results;
+        }
+     
+     
+    /** Returns where in the input the message last returned by next()
+     * starts, counting from the start of the stream or from the channel's
+     * position when the reader was created.
+     * 
+     * @return the byte offset of the message or -1 before the first message.
+     */
+    public long getMessagePosition()
+        {
+        return _messagePosition;
+        }
+     
+     
+    /** Returns the line of the input that the message last returned by
+     * next() starts on, for formats where the framer counts lines.
+     * 
+     * @return the line number, starting at 1, or -1 if lines are not counted.
+     */
+    public long getMessageLine()
+        {
+        return _countLines ? _messageLine : -1;
+        }
+     
+     
+    /** Limits how long a single message may be.  A longer message is
+     * skipped instead of being read into memory.
+     * 
+     * @param MaximumMessageLength the largest message in bytes.
+     */
+    public void setMaximumMessageLength(int MaximumMessageLength)
+        {
+        if (MaximumMessageLength <= 0)
+            throw new IllegalArgumentException("Maximum message length must be positive.");
+        _maximumMessageLength = MaximumMessageLength;
+        }
+     
+     
+    /** Restates the errors of the message last returned by next() so
+     * they point into the file.  "Line n:" errors, which count from the
+     * start of the message, are renumbered from the start of the file, and
+     * any other error is prefixed with where the message starts.
+     * 
+     * @param Results the results of the message last returned.
+     * @return the errors relative to the file.
+     */
+    public List<String> getFileErrors(MessageParseResults Results)
+        {
+        long line = getMessageLine();
+        List<String> errors = new ArrayList<String>(Results.errorCount());
+        if (Results.errorCount() == 0)
+            return errors;
+        List<String> messageErrors = Results.getErrors();
+        ErrorList entries = messageErrors instanceof ErrorList ? (ErrorList)messageErrors : null;
+        for (int index = 0; index < messageErrors.size(); index++)
+            {
+            // a recorded entry already knows its line and is formatted once, against the file
+            if (line > 0 && entries != null && entries.getCode(index).isNumbered())
+                {
+                errors.add(entries.getCode(index).format(entries.getLine(index) + line - 1,entries.getTag(index),entries.getNumber(index)));
+                continue;
+                }
+             
+            String error = messageErrors.get(index);
+            int colon = error.indexOf(':');
+            if (line > 0 && error.startsWith("Line ") && colon > 5)
+                {
+                try
+                    {
+                    long messageLine = Long.parseLong(error.substring(5,colon));
+                    errors.add("Line " + (messageLine + line - 1) + error.substring(colon));
+                    continue;
+                    }
+                catch (NumberFormatException ee)
+                    {
+                    }
+                }
+             
+            if (line > 0)
+                errors.add("Message at line " + line + ": " + error);
+            else
+                errors.add("Message at byte " + _messagePosition + ": " + error);
+            }
+        return errors;
+        }
+     
+     
+    /** Returns the remaining messages as a sequential stream.  Closing
+     * the stream closes the reader.
+     * 
+     * @return a stream of the results of each message.
+     */
+    public Stream<MessageParseResults> stream()
+        {
+        Spliterator<MessageParseResults> spliterator = Spliterators.spliteratorUnknownSize(this,Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator,false).onClose(new Runnable()
+            {
+            public void run()
+                {
+                try
+                    {
+                    close();
+                    }
+                catch (IOException ee)
+                    {
+                    throw new UncheckedIOException(ee);
+                    }
+                }
+            });
+        }
+     
+     
+    /** Returns a Flow.Publisher for the remaining messages that reads
+     * them on the common ForkJoinPool as the subscriber requests them.
+     * 
+     * @return a publisher for a single subscriber.
+     * @see MessagePublisher
+     */
+    public MessagePublisher publisher()
+        {
+        return publisher(ForkJoinPool.commonPool());
+        }
+     
+     
+    /** Returns a Flow.Publisher for the remaining messages that reads
+     * them on the given executor as the subscriber requests them.  The 
+     * reader must not be used other than through the publisher after this.
+     * 
+     * @param Executor where the messages are read and delivered.
+     * @return a publisher for a single subscriber.
+     * @see MessagePublisher
+     */
+    public MessagePublisher publisher(Executor Executor)
+        {
+        return new MessagePublisher(this,Executor);
+        }
+     
+     
+    /** Closes the file, channel or stream being read.  Messages read
+     * from a channel stay valid after the reader is closed.
+     * 
+     * @throws IOException if the source cannot be closed.
+     */
+    public void close() throws IOException
+        {
+        _finished = true;
+        _next = null;
+        _source.close();
+        }
+     
+     
+    /** Frames and parses the next message, reading more of the input
+     * whenever the framer needs it.
+     * 
+     * @return the parsed message or null at the end of the input.
+     * @throws IOException if the input cannot be read.
+     */
+    private MessageParseResults readMessage() throws IOException
+        {
+        while (true)
+            {
+            if (_position >= _limit)
+                {
+                if (_endOfInput)
+                    return null;
+                fill();
+                continue;
+                }
+             
+            if (_skipping)
+                {
+                // drop the rest of a message that is too long, keeping the
+                // last byte so the framer can tell where the next line starts
+                int next = _framer.resync(_window,_position,_limit);
+                if (next >= 0)
+                    {
+                    moveTo(next);
+                    _skipping = false;
+                    }
+                else if (_endOfInput)
+                    moveTo(_limit);
+                else
+                    {
+                    moveTo(Math.max(_position,_limit - 1));
+                    fill();
+                    }
+                continue;
+                }
+             
+            int next = _framer.frame(_window,_position,_limit,_endOfInput,_span);
+            if (next < 0)
+                {
+                if (_span[0] >= 0 && _limit - _span[0] >= _maximumMessageLength)
+                    return skipMessage();
+                fill();
+                continue;
+                }
+             
+            int start = _span[0];
+            int length = _span[1] - start;
+            if (start < 0)
+                moveTo(next);
+            else
+                {
+                moveTo(start);
+                _nextPosition = _windowBase + start;
+                _nextLine = _line;
+                moveTo(next);
+                if (_stream == null)
+                    return _framer.parseSafely(_window,start,length);
+                 
+                byte [] message = new byte[length];
+                System.arraycopy(_window.array(),start,message,0,length);
+                return _framer.parseSafely(ByteBuffer.wrap(message),0,length);
+                }
+            }
+        }
+     
+     
+    /** Starts skipping a message that is longer than the maximum, and
+     * returns the result that stands in for it.
+     * 
+     * @return a result with no message and an error saying it was skipped.
+     */
+    private MessageParseResults skipMessage()
+        {
+        moveTo(_span[0]);
+        _nextPosition = _windowBase + _position;
+        _nextLine = _line;
+        _skipping = true;
+         
+        List<String> errors = new ArrayList<String>(1);
+        errors.add("Message is longer than the maximum of " + _maximumMessageLength + " bytes and was skipped.");
+        return new MessageParseResults(null,new ArrayList<Field>(),errors,_framer.getFormat());
+        }
+     
+     
+    /** Moves the current position forward, counting the lines passed
+     * over when the format has lines.
+     * 
+     * @param Index the new position.
+     */
+    private void moveTo(int Index)
+        {
+        if (_countLines)
+            {
+            for (int index = _position; index < Index; index++)
+                {
+                byte value = _window.get(index);
+                if (value == '\n')
+                    ++_line;
+                else if (value == '\r' && (index + 1 < _limit ? _window.get(index + 1) != '\n' : _endOfInput))
+                    ++_line;
+                }
+            }
+        _position = Index;
+        }
+     
+     
+    /** Makes more of the input available, keeping the data from the
+     * current position on.  The window or chunk is doubled when the
+     * current position is already at its start.
+     * 
+     * @throws IOException if the input cannot be read or a message is too large.
+     */
+    private void fill() throws IOException
+        {
+        if (_position == 0 && _limit == (_channel != null ? _windowSize : _window.capacity()))
+            {
+            int capacity = _limit;
+            if (capacity >= Integer.MAX_VALUE / 2)
+                throw new IOException("Message at position " + _windowBase + " is larger than " + capacity + " bytes.");
+            capacity *= 2;
+            if (_channel != null)
+                _windowSize = capacity;
+            else
+                {
+                ByteBuffer larger = ByteBuffer.allocate(capacity);
+                System.arraycopy(_window.array(),0,larger.array(),0,_limit);
+                _window = larger;
+                }
+            }
+         
+        if (_channel != null)
+            {
+            _windowBase += _position;
+            mapWindow();
+            return;
+            }
+         
+        if (_position > 0)
+            {
+            System.arraycopy(_window.array(),_position,_window.array(),0,_limit - _position);
+            _windowBase += _position;
+            _limit -= _position;
+            _position = 0;
+            }
+        int read = _stream.read(_window.array(),_limit,_window.capacity() - _limit);
+        if (read < 0)
+            _endOfInput = true;
+        else
+            _limit += read;
+        }
+     
+     
+    /** Maps the window of the channel that starts at the window base.
+     * 
+     * @throws IOException if the channel cannot be mapped.
+     */
+    private void mapWindow() throws IOException
+        {
+        long length = Math.min(_windowSize,_size - _windowBase);
+        _window = _channel.map(FileChannel.MapMode.READ_ONLY,_windowBase,length);
+        _position = 0;
+        _limit = (int)length;
+        _endOfInput = _windowBase + length >= _size;
+        }
+    }
@@ -0,0 +1,97 @@
+/* MessageFormat.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+/** The wire formats the parsers understand, along with a check of the
+ * first few characters of a message that tells them apart.
+ */
+ 
+public enum MessageFormat
+    {
+    /** A SWIFT FIN message, starting with block 1: {1: */
+    SWIFT,
+    /** A FedWire message, starting with a four digit tag: {nnnn} */
+    FEDWIRE,
+    /** A CHIPS message, starting with a three digit tag: [nnn] */
+    CHIPS,
+    /** A message that is none of the above. */
+    UNKNOWN;
+     
+    /** The most leading white space skipped before giving up. */
+    static public final int MAXIMUM_LEADING_SPACE = 1024;
+     
+    /** Works out the format of a message from its first characters,
+     * after any leading white space.  Only a fixed number of characters
+     * are looked at, so the cost does not depend on the message length:
+     * a message with more than MAXIMUM_LEADING_SPACE white space characters
+     * in front of it is UNKNOWN.
+     * 
+     * @param Contents the message.
+     * @return the format or UNKNOWN if the start matches none of them.
+     */
+    static public MessageFormat sniff(CharSequence Contents)
+        {
+        int length = Contents.length();
+        int start = 0;
+        int skipLimit = Math.min(length,MAXIMUM_LEADING_SPACE);
+        while (start < skipLimit && Contents.charAt(start) <= ' ')
+            ++start;
+        if (start == MAXIMUM_LEADING_SPACE && start < length && Contents.charAt(start) <= ' ')
+            return UNKNOWN;
+        int available = length - start;
+        if (available < 3)
+            return UNKNOWN;
+         
+        char first = Contents.charAt(start);
+        if (first == '{')
+            {
+            if (Contents.charAt(start + 1) == '1' && Contents.charAt(start + 2) == ':')
+                return SWIFT;
+            if (available >= 6 && isTag(Contents,start + 1,4) && Contents.charAt(start + 5) == '}')
+                return FEDWIRE;
+            }
+        else if (first == '[' && available >= 5 && isTag(Contents,start + 1,3) && Contents.charAt(start + 4) == ']')
+            return CHIPS;
+        return UNKNOWN;
+        }
+     
+     
+    /** Checks for a run of digits.
+     * 
+     * @return true if all Length characters from Start are digits.
+     */
+    static private boolean isTag(CharSequence Contents,int Start,int Length)
+        {
+        for (int index = Start; index < Start + Length; index++)
+            {
+            char ch = Contents.charAt(index);
+            if (ch < '0' || ch > '9')
+                return false;
+            }
+        return true;
+        }
+    }
@@ -0,0 +1,257 @@
+/* MessageFramer.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+ 
+/** Finds the messages in a file that holds more than one of them,
+ * such as a SWIFT RJE file, and hands each one to the right parser.  A
+ * framer only looks at the bytes through absolute gets, so it works the
+ * same over a memory-mapped window of a file or a chunk read from a stream.
+ * 
+ * @see MessageFileReader
+ */
+ 
+public abstract class MessageFramer
+    {
+    /** Parses the messages of one MessagePipeline slot, one after
+     * another, keeping its working state and results from one message to
+     * the next.  The results are only valid until the next call.
+     */
+    public interface ReusableParser
+        {
+        /** Does what parseStructure() does for the framer that created
+         * the parser.
+         * 
+         * @param Buffer the buffer holding the message.
+         * @param Offset the absolute index of the first byte of the message.
+         * @param Length the number of bytes in the message.
+         * @return the results, which validate() may add to.
+         * @throws IOException if an error occurs while parsing.
+         */
+        MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length) throws IOException;
+        }
+    
+    
+    /** Looks for the next message in a buffer, starting at From.  The
+     * start and end of the message are stored in Span[0] and Span[1], or
+     * Span[0] is set to -1 if the data consumed only held padding or
+     * separators.
+     * 
+     * @param Buffer the buffer holding the data.
+     * @param From the absolute index to start looking from.
+     * @param Limit the absolute index after the last byte of data available.
+     * @param EndOfInput true if no data follows Limit, so a message that is
+     * not terminated ends at Limit.
+     * @param Span where the start and end (exclusive) of the message are stored.
+     * @return the index to look for the following message from, or -1 if
+     * the data up to Limit does not hold a whole message (only when 
+     * EndOfInput is false).  When -1 is returned Span[0] is set to where
+     * the unfinished message starts, or -1 if no message has started.
+     */
+    public abstract int frame(ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,int [] Span);
+     
+     
+    /** Finds the end of a message that is being skipped, such as one
+     * that is longer than the reader allows.  From is the start of the
+     * message the first time, and after that the last byte the reader kept
+     * of the part already skipped.
+     * 
+     * @param Buffer the buffer holding the data.
+     * @param From the absolute index to start looking from.
+     * @param Limit the absolute index after the last byte of data available.
+     * @return the index just after the end of the message, or -1 if the
+     * message does not end before Limit.
+     */
+    public abstract int resync(ByteBuffer Buffer,int From,int Limit);
+     
+     
+    /** Tells the reader whether lines are meaningful in this format, in
+     * which case it keeps count of the line each message starts on.
+     * 
+     * @return true if the reader should count lines.
+     */
+    public boolean countsLines()
+        {
+        return false;
+        }
+     
+     
+    /** Tells the reader the longest message it should read in this
+     * format before skipping it as bad input.  The formats in this
+     * library give a limit well beyond any real message; a framer that
+     * does not know one leaves messages unbounded.
+     * 
+     * @return the largest message in bytes.
+     */
+    public int getMaximumMessageLength()
+        {
+        return Integer.MAX_VALUE;
+        }
+     
+     
+    /** Parses one message found by frame().
+     * 
+     * @param Buffer the buffer holding the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results of parsing the message.
+     * @throws IOException if an error occurs while parsing.
+     */
+    public abstract MessageParseResults parse(ByteBuffer Buffer,int Offset,int Length) throws IOException;
+     
+     
+    /** Does the part of parsing a message that a MessagePipeline runs
+     * in its parse stage.  A framer whose parser can leave its checks for
+     * later returns results without them here and adds them in validate(),
+     * so that parsing and validation can run side by side.  Together the
+     * two give the same results as parse(), which is what this does unless
+     * it is overridden.
+     * 
+     * @param Buffer the buffer holding the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results of parsing the message, which validate() may add to.
+     * @throws IOException if an error occurs while parsing.
+     */
+    public MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        return parse(Buffer,Offset,Length);
+        }
+     
+     
+    /** Runs the checks that parseStructure() left out, adding any
+     * problems to the error list of the results.  This does nothing unless
+     * parseStructure() is overridden.
+     * 
+     * @param Results the results returned by parseStructure().
+     */
+    public void validate(MessageParseResults Results)
+        {
+        }
+     
+     
+    /** Parses one message, turning an exception thrown by the parser
+     * into an error so that one bad message does not stop the rest of a
+     * file from being read.
+     * 
+     * @param Buffer the buffer holding the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results of parsing the message, or a result with no
+     * message and a single error if the parser threw.
+     * @throws IOException if the parser reports an I/O problem.
+     */
+    public MessageParseResults parseSafely(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        try
+            {
+            return parse(Buffer,Offset,Length);
+            }
+        catch (RuntimeException ee)
+            {
+            return failed(ee);
+            }
+        }
+     
+     
+    /** Creates a parser that a MessagePipeline slot keeps for every
+     * message that passes through it.  This one just calls
+     * parseStructure(), which allocates new results for each message;
+     * framers whose format has a reusable parser return one instead.
+     * 
+     * @return a parser for one slot.
+     */
+    public ReusableParser newReusableParser()
+        {
+        return new ReusableParser()
+            {
+            public MessageParseResults parseStructure(ByteBuffer Buffer,int Offset,int Length) throws IOException
+                {
+                return MessageFramer.this.parseStructure(Buffer,Offset,Length);
+                }
+            };
+        }
+     
+     
+    /** Parses one message with a slot's parser, turning an exception
+     * thrown by the parser into an error.
+     * 
+     * @param Parser the parser from newReusableParser().
+     * @param Buffer the buffer holding the message.
+     * @param Offset the absolute index of the first byte of the message.
+     * @param Length the number of bytes in the message.
+     * @return the results of parsing the message.
+     * @throws IOException if the parser reports an I/O problem.
+     */
+    MessageParseResults parseSafely(ReusableParser Parser,ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        try
+            {
+            return Parser.parseStructure(Buffer,Offset,Length);
+            }
+        catch (RuntimeException ee)
+            {
+            return failed(ee);
+            }
+        }
+     
+     
+    /** Creates the results that stand in for a message whose parser
+     * threw.
+     * 
+     * @param Failure what the parser threw.
+     * @return a result with no message and a single error.
+     */
+    private MessageParseResults failed(RuntimeException Failure)
+        {
+        List<String> errors = new ArrayList<String>(1);
+        errors.add("Message could not be parsed: " + Failure + ".");
+        return new MessageParseResults(null,new ArrayList<Field>(),errors,getFormat());
+        }
+     
+     
+    /** Returns the format of the messages this framer finds.
+     * 
+     * @return the message format.
+     */
+    public abstract MessageFormat getFormat();
+     
+     
+    /** Determines if a byte is white space that may surround a message.
+     * 
+     * @param Value the byte to check.
+     * @return true for a space, tab, CR, LF or form feed.
+     */
+    static public boolean isSpace(byte Value)
+        {
+        return Value == ' ' || Value == '\r' || Value == '\n' || Value == '\t' || Value == '\f';
+        }
+    }
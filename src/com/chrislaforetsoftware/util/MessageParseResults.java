@@ -40,14 +40,55 @@ public class MessageParseResults
     private Object _message;
     private List<Field> _fields;
     private List<String> _errors;
+    private MessageFormat _format;
  
     public MessageParseResults(Object Message,List<Field> Fields,List<String> Errors)
+        {
+        this(Message,Fields,Errors,MessageFormat.UNKNOWN);
+        }
+     
+     
+    /** Creates the results of parsing a message of a known format.
+     * 
+     * @param Message the parsed message or null.
+     * @param Fields the fields parsed.
+     * @param Errors the errors found.
+     * @param Format the format of the parser that produced the results.
+     */
+    public MessageParseResults(Object Message,List<Field> Fields,List<String> Errors,MessageFormat Format)
+        {
+        _message = Message;
+        _fields = Fields;
+        _errors = Errors;
+        _format = Format;
+        }
+     
+     
+    /** Replaces what the results hold, for a parser that hands out the
+     * same results object for message after message.
+     * 
+     * @param Message the parsed message or null.
+     * @param Fields the fields parsed.
+     * @param Errors the errors found.
+     */
+    public void reset(Object Message,List<Field> Fields,List<String> Errors)
         {
         _message = Message;
         _fields = Fields;
         _errors = Errors;
         }
      
+     
+    /** Retrieves the format of the message, which tells the caller
+     * what class getMessage() returns.
+     * 
+     * @return the format, or UNKNOWN if it was not recorded.
+     */
+    public MessageFormat getFormat()
+        {
+        return _format;
+        }
+     
     /** Retrieves the message object if it exists or null
      * otherwise.
      * 
@@ -89,7 +130,8 @@ public class MessageParseResults
         }
      
     /** Retrieves the list of errors encountered during
-     * the parsing process.
+     * the parsing process.  A clean parse shares ErrorList.EMPTY, which
+     * cannot be changed; use getMutableErrors() to add to the errors.
      * 
      * @return a list of errors.
      */
@@ -97,5 +139,20 @@ public class MessageParseResults
         {
         return _errors;
         }
+     
+     
+    /** Retrieves the list of errors for a check that adds to them after
+     * the parse.  The shared ErrorList.EMPTY of a clean parse is swapped
+     * for a list of its own first, so only a caller that needs to write
+     * pays for one.
+     * 
+     * @return a list of errors that can be added to.
+     */
+    public List<String> getMutableErrors()
+        {
+        if (_errors == ErrorList.EMPTY)
+            _errors = new ErrorList();
+        return _errors;
+        }
     }
     
\ No newline at end of file
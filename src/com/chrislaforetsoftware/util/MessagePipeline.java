@@ -0,0 +1,530 @@
+/* MessagePipeline.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+ 
+/** Parses a buffer or file of messages as a pipeline of four stages,
+ * each on its own thread:
+ * <ol>
+ * <li>framing, on the calling thread, which finds where each message
+ * starts and ends with a MessageFramer;
+ * <li>parsing, which runs MessageFramer.parseStructure();
+ * <li>validation, which runs MessageFramer.validate();
+ * <li>dispatch, which hands the results to the Handler.
+ * </ol>
+ * The stages pass messages along a ring of slots that is allocated once
+ * with the pipeline and reused for every message and every run.  Each
+ * slot keeps the parser from MessageFramer.newReusableParser(), so with
+ * the FedWire, CHIPS and SWIFT framers the parse state and results are
+ * reset rather than allocated for each message.  Each
+ * stage is the only writer of its own cursor, the count of slots it has
+ * finished, and it takes every slot the stage before it has finished in
+ * one go, publishing its cursor once for the whole batch.  Nothing is
+ * allocated to hand a message from one stage to the next, and a stage
+ * that runs ahead waits by spinning, then yielding, then parking briefly.
+ * <p>
+ * How much the validation stage takes off the parsing stage depends on
+ * the framer: FedWireFramer leaves its field checks to validate(), while
+ * the other framers do all of their work in parseStructure().
+ * <p>
+ * A message that makes its parser throw is dispatched as a result with
+ * no message, as with MessageFileReader.  If the handler throws, the
+ * pipeline stops and run() throws the same exception.  A pipeline runs
+ * one buffer or file at a time.
+ */
+ 
+public class MessagePipeline
+    {
+    /** Receives the results of each message from the dispatch stage,
+     * in input order and always on the same thread.
+     */
+    public interface Handler
+        {
+        /** Handles one message.  The results are only valid until this
+         * returns, as the slot holding them is then reused; a handler that
+         * keeps the message must keep the objects rather than the slot.
+         * 
+         * @param Results the results of parsing and validating the message.
+         */
+        void handle(MessageParseResults Results);
+        }
+    
+    
+    static public final int DEFAULT_RING_SIZE = 1024;
+    
+    static private final int SPIN_TRIES = 100;
+    static private final int YIELD_TRIES = 100;
+    static private final long PARK_NANOS = 50000L;
+    
+    private MessageFramer _framer;
+    private Handler _handler;
+    private Slot [] _slots;
+    private int _mask;
+    
+    private Cursor _framed = new Cursor();
+    private Cursor _parsed = new Cursor();
+    private Cursor _validated = new Cursor();
+    private Cursor _dispatched = new Cursor();
+    private volatile long _end;
+    private volatile Throwable _failure;
+    private int _stop;              // where the framing stage stopped in the last window
+    
+    /** Creates a pipeline with the default ring size.
+     * 
+     * @param Framer the framer for the format of the input.
+     * @param Handler where the results of each message are sent.
+     */
+    public MessagePipeline(MessageFramer Framer,Handler Handler)
+        {
+        this(Framer,Handler,DEFAULT_RING_SIZE);
+        }
+    
+    
+    /** Creates a pipeline.
+     * 
+     * @param Framer the framer for the format of the input.
+     * @param Handler where the results of each message are sent.
+     * @param RingSize the number of slots, which must be a power of two.
+     */
+    public MessagePipeline(MessageFramer Framer,Handler Handler,int RingSize)
+        {
+        if (RingSize <= 0 || (RingSize & (RingSize - 1)) != 0)
+            throw new IllegalArgumentException("Ring size must be a power of two.");
+        
+        _framer = Framer;
+        _handler = Handler;
+        _mask = RingSize - 1;
+        _slots = new Slot[RingSize];
+        for (int index = 0; index < RingSize; index++)
+            _slots[index] = new Slot(Framer.newReusableParser());
+        }
+    
+    
+    /** Returns the number of slots in the ring, which is the most
+     * messages that can be between the framing and dispatch stages.
+     * 
+     * @return the ring size.
+     */
+    public int getRingSize()
+        {
+        return _slots.length;
+        }
+    
+    
+    /** Runs the messages of a region of a buffer through the pipeline.
+     * The buffer's position and limit are left alone.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @return the number of messages dispatched.
+     * @throws IOException if a parser reports an I/O problem.
+     */
+    public synchronized long run(ByteBuffer Buffer,int Offset,int Length) throws IOException
+        {
+        if (Offset < 0 || Length < 0 || Offset > Buffer.limit() - Length)
+            throw new IndexOutOfBoundsException("Region " + Offset + "+" + Length + " is outside the buffer limit of " + Buffer.limit() + ".");
+        
+        Thread [] stages = start();
+        try
+            {
+            long next = frame(Buffer,Offset,Offset + Length,true,0);
+            return finish(stages,next);
+            }
+        finally
+            {
+            stop(stages);
+            }
+        }
+    
+    
+    /** Runs the messages of a file through the pipeline, mapping the
+     * file in windows of the default size.
+     * 
+     * @param File the file to read.
+     * @return the number of messages dispatched.
+     * @throws IOException if the file cannot be read or a parser reports an I/O problem.
+     */
+    public long run(Path File) throws IOException
+        {
+        return run(File,MessageBatchParser.DEFAULT_WINDOW_SIZE);
+        }
+    
+    
+    /** Runs the messages of a file through the pipeline, mapping the
+     * file a window of the given size at a time.  A window is doubled when
+     * a single message does not fit in it.
+     * 
+     * @param File the file to read.
+     * @param WindowSize the number of bytes to map at a time.
+     * @return the number of messages dispatched.
+     * @throws IOException if the file cannot be read or a parser reports an I/O problem.
+     */
+    public synchronized long run(Path File,int WindowSize) throws IOException
+        {
+        if (WindowSize <= 0)
+            throw new IllegalArgumentException("Window size must be positive.");
+        
+        try (FileChannel channel = FileChannel.open(File,StandardOpenOption.READ))
+            {
+            Thread [] stages = start();
+            try
+                {
+                long size = channel.size();
+                long base = 0;
+                int windowSize = WindowSize;
+                long next = 0;
+                while (base < size && _failure == null)
+                    {
+                    int length = (int)Math.min(windowSize,size - base);
+                    boolean endOfInput = base + length >= size;
+                    ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,base,length);
+                    long framed = frame(window,0,length,endOfInput,next);
+                    if (endOfInput)
+                        {
+                        next = framed;
+                        break;
+                        }
+                    
+                    if (framed == next && _stop == 0)
+                        {
+                        if (windowSize >= Integer.MAX_VALUE / 2)
+                            throw new IOException("Message at position " + base + " is larger than " + windowSize + " bytes.");
+                        windowSize *= 2;
+                        }
+                    next = framed;
+                    base += _stop;
+                    }
+                return finish(stages,next);
+                }
+            finally
+                {
+                stop(stages);
+                }
+            }
+        }
+    
+    
+    /** Resets the cursors and starts the parsing, validation and
+     * dispatch stages.
+     * 
+     * @return the stage threads.
+     */
+    private Thread [] start()
+        {
+        _framed.set(0);
+        _parsed.set(0);
+        _validated.set(0);
+        _dispatched.set(0);
+        _end = Long.MAX_VALUE;
+        _failure = null;
+        
+        Thread [] stages =
+            {
+            new Thread(new Stage(_framed,_parsed,Stage.PARSE),"message-pipeline-parse"),
+            new Thread(new Stage(_parsed,_validated,Stage.VALIDATE),"message-pipeline-validate"),
+            new Thread(new Stage(_validated,_dispatched,Stage.DISPATCH),"message-pipeline-dispatch"),
+            };
+        for (Thread stage : stages)
+            {
+            stage.setDaemon(true);
+            stage.start();
+            }
+        return stages;
+        }
+    
+    
+    /** Marks the end of the input and waits for the stages to finish.
+     * 
+     * @param Stages the stage threads.
+     * @param Count the number of messages framed.
+     * @return the number of messages dispatched.
+     * @throws IOException if a stage failed with an I/O problem.
+     */
+    private long finish(Thread [] Stages,long Count) throws IOException
+        {
+        _end = Count;
+        for (Thread stage : Stages)
+            {
+            try
+                {
+                stage.join();
+                }
+            catch (InterruptedException ee)
+                {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the pipeline to finish.");
+                }
+            }
+        
+        Throwable failure = _failure;
+        if (failure instanceof UncheckedIOException)
+            throw ((UncheckedIOException)failure).getCause();
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException)failure;
+        if (failure instanceof Error)
+            throw (Error)failure;
+        return _dispatched.get();
+        }
+    
+    
+    /** Stops the stages if the run ended early, and lets go of the
+     * buffers and results the slots still refer to.
+     * 
+     * @param Stages the stage threads.
+     */
+    private void stop(Thread [] Stages)
+        {
+        if (_end == Long.MAX_VALUE && _failure == null)
+            _failure = new IllegalStateException("The pipeline was stopped.");
+        for (Thread stage : Stages)
+            {
+            while (stage.isAlive())
+                {
+                try
+                    {
+                    stage.join();
+                    }
+                catch (InterruptedException ee)
+                    {
+                    Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        for (Slot slot : _slots)
+            {
+            slot._buffer = null;
+            slot._results = null;
+            }
+        }
+    
+    
+    /** The framing stage: frames the messages between From and Limit
+     * into the ring, waiting for free slots when the ring is full.  Where
+     * framing stopped is left in _stop: the start of a message that does
+     * not end before Limit, or Limit.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param From the absolute index to start framing from.
+     * @param Limit the absolute index after the last byte available.
+     * @param EndOfInput true if no data follows Limit.
+     * @param Next the sequence number of the next slot to fill.
+     * @return the sequence number after the last slot filled.
+     */
+    private long frame(ByteBuffer Buffer,int From,int Limit,boolean EndOfInput,long Next)
+        {
+        int [] span = new int[2];
+        long next = Next;
+        long free = _dispatched.get() + _slots.length;
+        int position = From;
+        int stop = Limit;
+        while (position < Limit && _failure == null)
+            {
+            if (next == free)
+                {
+                // the ring is full: hand the batch on and wait for the dispatch stage
+                _framed.lazySet(next);
+                free = waitFor(_dispatched,next - _slots.length) + _slots.length;
+                if (free < 0)
+                    break;
+                }
+            
+            int following = _framer.frame(Buffer,position,Limit,EndOfInput,span);
+            if (following < 0)
+                {
+                stop = span[0] >= 0 ? span[0] : position;
+                break;
+                }
+            if (span[0] >= 0)
+                {
+                Slot slot = _slots[(int)next & _mask];
+                slot._buffer = Buffer;
+                slot._offset = span[0];
+                slot._length = span[1] - span[0];
+                ++next;
+                }
+            position = following;
+            }
+        _framed.lazySet(next);
+        _stop = stop;
+        return next;
+        }
+    
+    
+    /** Waits until a cursor has moved past Sequence.
+     * 
+     * @return the cursor's value, or a value below Sequence if the 
+     * pipeline has failed or the cursor will not move past Sequence.
+     */
+    private long waitFor(Cursor Upstream,long Sequence)
+        {
+        int tries = 0;
+        while (true)
+            {
+            long available = Upstream.get();
+            if (available > Sequence)
+                return available;
+            if (_failure != null || _end <= Sequence)
+                return Long.MIN_VALUE / 2;
+            
+            if (tries < SPIN_TRIES)
+                Thread.onSpinWait();
+            else if (tries < SPIN_TRIES + YIELD_TRIES)
+                Thread.yield();
+            else
+                LockSupport.parkNanos(PARK_NANOS);
+            ++tries;
+            }
+        }
+    
+    
+    /** One message on its way through the pipeline.  The framing stage
+     * fills in where the message is, the parsing stage its results, and
+     * the dispatch stage clears the results once they are handled.  Each
+     * slot has a parser of its own, so the parsing stage reuses the slot's
+     * working state and results rather than allocating them per message.
+     */
+    static private class Slot
+        {
+        private MessageFramer.ReusableParser _parser;
+        private ByteBuffer _buffer;
+        private int _offset;
+        private int _length;
+        private MessageParseResults _results;
+        
+        private Slot(MessageFramer.ReusableParser Parser)
+            {
+            _parser = Parser;
+            }
+        }
+    
+    
+    /** A stage's count of finished slots, padded so that the cursors of
+     * different stages do not share a cache line.
+     */
+    @SuppressWarnings("unused")
+    static private class Cursor extends AtomicLong
+        {
+        static private final long serialVersionUID = 1L;
+        
+        private long _p1, _p2, _p3, _p4, _p5, _p6, _p7;
+        }
+    
+    
+    /** The parsing, validation or dispatch stage.  Each takes the slots
+     * its upstream stage has finished as one batch, works through them
+     * and publishes its own cursor once.
+     */
+    private class Stage implements Runnable
+        {
+        static private final int PARSE = 0;
+        static private final int VALIDATE = 1;
+        static private final int DISPATCH = 2;
+        
+        private Cursor _upstream;
+        private Cursor _cursor;
+        private int _kind;
+        
+        private Stage(Cursor Upstream,Cursor Cursor,int Kind)
+            {
+            _upstream = Upstream;
+            _cursor = Cursor;
+            _kind = Kind;
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        public void run()
+            {
+            try
+                {
+                long next = 0;
+                while (true)
+                    {
+                    long available = waitFor(_upstream,next);
+                    if (available < next)
+                        break;
+                    for (long sequence = next; sequence < available; sequence++)
+                        process(_slots[(int)sequence & _mask]);
+                    _cursor.lazySet(available);
+                    next = available;
+                    }
+                }
+            catch (IOException ee)
+                {
+                _failure = new UncheckedIOException(ee);
+                }
+            catch (RuntimeException | Error ee)
+                {
+                _failure = ee;
+                }
+            }
+        
+        
+        /** Does this stage's work on one slot. */
+        private void process(Slot Slot) throws IOException
+            {
+            switch (_kind)
+                {
+                case PARSE:
+                    Slot._results = _framer.parseSafely(Slot._parser,Slot._buffer,Slot._offset,Slot._length);
+                    break;
+                
+                case VALIDATE:
+                    if (Slot._results.getMessage() != null)
+                        {
+                        try
+                            {
+                            _framer.validate(Slot._results);
+                            }
+                        catch (RuntimeException ee)
+                            {
+                            Slot._results.getMutableErrors().add(ParseSupport.sentence("Message could not be validated: " + ee));
+                            }
+                        }
+                    break;
+                
+                default:
+                    MessageParseResults results = Slot._results;
+                    Slot._results = null;
+                    Slot._buffer = null;
+                    _handler.handle(results);
+                    break;
+                }
+            }
+        }
+    }
@@ -0,0 +1,272 @@
+/* MessagePublisher.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+ 
+/** Publishes the messages of a MessageFileReader to a single
+ * Flow.Subscriber, reading and parsing a message only when the subscriber
+ * has asked for one.  A subscriber that stops requesting therefore stops
+ * the reading as well.  Once the demand is met the reader looks one message
+ * ahead, so that the end of the messages is signalled with onComplete()
+ * without waiting for a request that may never come; beyond that one
+ * message nothing is buffered ahead of demand.
+ * <p>
+ * The messages are read and delivered on the executor, one at a time,
+ * so a subscriber is never called from two threads at once.  Reading is
+ * blocking I/O, so an executor with threads to spare for it should be given
+ * for slow sources; the default is the common ForkJoinPool, as for
+ * SubmissionPublisher.  The reader is closed when the messages run out,
+ * when the subscription is cancelled or when reading fails, which is
+ * reported through onError().  A reader can only be read once, so a 
+ * second subscriber is refused with onError().
+ * <pre>
+ * new FedWireBatchReader(path).publisher(screeningPool).subscribe(screener);
+ * </pre>
+ */
+ 
+public class MessagePublisher implements Flow.Publisher<MessageParseResults>
+    {
+    private MessageFileReader _reader;
+    private Executor _executor;
+    private AtomicBoolean _subscribed = new AtomicBoolean();
+    
+    /** Creates a publisher for the messages of a reader.
+     * 
+     * @param Reader the reader to publish.
+     * @param Executor where the messages are read and delivered.
+     */
+    public MessagePublisher(MessageFileReader Reader,Executor Executor)
+        {
+        _reader = Reader;
+        _executor = Executor;
+        }
+    
+    
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Flow.Publisher#subscribe(java.util.concurrent.Flow.Subscriber)
+     */
+    public void subscribe(Flow.Subscriber<? super MessageParseResults> Subscriber)
+        {
+        if (Subscriber == null)
+            throw new NullPointerException("Subscriber must not be null.");
+        
+        if (!_subscribed.compareAndSet(false,true))
+            {
+            Subscriber.onSubscribe(new Flow.Subscription()
+                {
+                public void request(long Count)
+                    {
+                    }
+                
+                public void cancel()
+                    {
+                    }
+                });
+            Subscriber.onError(new IllegalStateException("The messages of a reader can only be published to one subscriber."));
+            return;
+            }
+        
+        ReaderSubscription subscription = new ReaderSubscription(Subscriber);
+        Subscriber.onSubscribe(subscription);
+        }
+    
+    
+    /** Delivers the messages of the reader as they are requested.  The
+     * demand and the count of pending drains are the only state shared
+     * between threads; whichever thread takes the count from zero schedules
+     * the drain, which runs until the demand it saw is met, or the messages
+     * run out, and no more requests came in meanwhile.
+     */
+    private class ReaderSubscription implements Flow.Subscription,Runnable
+        {
+        private Flow.Subscriber<? super MessageParseResults> _subscriber;
+        private AtomicLong _demand = new AtomicLong();
+        private AtomicInteger _pending = new AtomicInteger();
+        private volatile boolean _done;
+        private volatile Throwable _badRequest;
+        
+        private ReaderSubscription(Flow.Subscriber<? super MessageParseResults> Subscriber)
+            {
+            _subscriber = Subscriber;
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Flow.Subscription#request(long)
+         */
+        public void request(long Count)
+            {
+            if (Count <= 0)
+                _badRequest = new IllegalArgumentException("Requested " + Count + " messages; the count must be positive.");
+            else
+                {
+                long current;
+                do
+                    {
+                    current = _demand.get();
+                    }
+                while (current != Long.MAX_VALUE && !_demand.compareAndSet(current,current + Count < 0 ? Long.MAX_VALUE : current + Count));
+                }
+            schedule();
+            }
+        
+        
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Flow.Subscription#cancel()
+         */
+        public void cancel()
+            {
+            _done = true;
+            schedule();
+            }
+        
+        
+        /** Sends the messages that have been asked for.
+         * 
+         * @see java.lang.Runnable#run()
+         */
+        public void run()
+            {
+            int missed = 1;
+            while (true)
+                {
+                long requested = _demand.get();
+                long emitted = 0;
+                while (!_done)
+                    {
+                    if (_badRequest != null)
+                        {
+                        finish(_badRequest);
+                        return;
+                        }
+                    if (emitted == requested)
+                        {
+                        // the end needs no demand, so look for it before waiting for more
+                        try
+                            {
+                            if (!_reader.hasNext())
+                                {
+                                finish(null);
+                                return;
+                                }
+                            }
+                        catch (RuntimeException ee)
+                            {
+                            finish(ee);
+                            return;
+                            }
+                        break;
+                        }
+                    
+                    MessageParseResults results;
+                    try
+                        {
+                        if (!_reader.hasNext())
+                            {
+                            finish(null);
+                            return;
+                            }
+                        results = _reader.next();
+                        }
+                    catch (RuntimeException ee)
+                        {
+                        finish(ee);
+                        return;
+                        }
+                    try
+                        {
+                        _subscriber.onNext(results);
+                        }
+                    catch (RuntimeException ee)
+                        {
+                        // a subscriber that throws is treated as having cancelled
+                        _done = true;
+                        close();
+                        throw ee;
+                        }
+                    ++emitted;
+                    }
+                if (_done)
+                    {
+                    close();
+                    return;
+                    }
+                
+                if (requested != Long.MAX_VALUE)
+                    _demand.addAndGet(-emitted);
+                missed = _pending.addAndGet(-missed);
+                if (missed == 0)
+                    return;
+                }
+            }
+        
+        
+        /** Queues a drain on the executor unless one is already pending. */
+        private void schedule()
+            {
+            if (_pending.getAndIncrement() == 0)
+                _executor.execute(this);
+            }
+        
+        
+        /** Closes the reader and tells the subscriber that the messages
+         * have ended, or why they could not be read.
+         * 
+         * @param Failure the reason, or null if the messages ran out.
+         */
+        private void finish(Throwable Failure)
+            {
+            _done = true;
+            close();
+            if (Failure == null)
+                _subscriber.onComplete();
+            else
+                _subscriber.onError(Failure);
+            }
+        
+        
+        /** Closes the reader, ignoring any failure as there is no longer
+         * anyone to report it to.
+         */
+        private void close()
+            {
+            try
+                {
+                _reader.close();
+                }
+            catch (IOException ee)
+                {
+                }
+            }
+        }
+    }
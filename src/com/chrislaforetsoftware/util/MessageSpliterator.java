@@ -0,0 +1,294 @@
+/* MessageSpliterator.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+ 
+/** A Spliterator over the messages of a buffer or file, for use with
+ * parallel streams.  It splits only at message boundaries and parses a
+ * message when the stream reaches it, on whichever thread the stream runs
+ * that part of the work.
+ * <p>
+ * There are two ways of splitting:
+ * <ul>
+ * <li>by bytes, which is the default.  The region is cut near its middle,
+ * at the end of whichever message the middle falls in, found with
+ * MessageFramer.resync().  Nothing is scanned up front, but the number
+ * of messages is only estimated from the length of the first one.
+ * <li>by message, from indexed().  Every message is framed first, which
+ * is a quick sequential scan for the separators, and the spliterator then
+ * splits the list of messages exactly in half.  It reports SIZED and
+ * SUBSIZED, so count() needs no parsing and toArray() sizes its result
+ * once.
+ * </ul>
+ * Both report ORDERED, NONNULL and IMMUTABLE.  The messages are parsed
+ * straight from the buffer, so the region must not be overwritten while
+ * they are in use.  A message that makes its parser throw is returned as a
+ * result with no message, as with MessageFileReader.
+ * <pre>
+ * try (Stream&lt;MessageParseResults&gt; messages = MessageSpliterator.stream(path,new FedWireFramer(),true))
+ *     {
+ *     long late = messages.filter(isLate).count();
+ *     }
+ * </pre>
+ */
+ 
+public class MessageSpliterator implements Spliterator<MessageParseResults>
+    {
+    static private final int MINIMUM_SPLIT = 16 * 1024;        // bytes in a region that is no longer split by bytes
+    static private final int LARGEST_MAPPING = Integer.MAX_VALUE - 8;
+    
+    private MessageFramer _framer;
+    private ByteBuffer _buffer;
+    private int [] _span = new int[2];
+    
+    // splitting by bytes
+    private int _position;
+    private int _limit;
+    private int _averageLength;
+    
+    // splitting by message
+    private int [] _spans;
+    private int _index;
+    private int _end;
+    
+    /** Creates a spliterator that splits a region of a buffer by bytes.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Framer the framer for the messages' format.
+     */
+    public MessageSpliterator(ByteBuffer Buffer,int Offset,int Length,MessageFramer Framer)
+        {
+        if (Offset < 0 || Length < 0 || Offset > Buffer.limit() - Length)
+            throw new IndexOutOfBoundsException("Region " + Offset + "+" + Length + " is outside the buffer limit of " + Buffer.limit() + ".");
+        
+        _framer = Framer;
+        _buffer = Buffer;
+        _position = Offset;
+        _limit = Offset + Length;
+        
+        // the first message stands in for the rest when estimating the count
+        int next = Framer.frame(Buffer,Offset,_limit,true,_span);
+        _averageLength = Math.max(1,_span[0] >= 0 ? next - Offset : Length);
+        }
+    
+    
+    /** Creates a spliterator over a range of messages that have already
+     * been framed.
+     */
+    private MessageSpliterator(MessageFramer Framer,ByteBuffer Buffer,int [] Spans,int Index,int End)
+        {
+        _framer = Framer;
+        _buffer = Buffer;
+        _spans = Spans;
+        _index = Index;
+        _end = End;
+        }
+    
+    
+    /** Creates a spliterator over the bytes between Position and Limit,
+     * for the prefix of a split by bytes.
+     */
+    private MessageSpliterator(MessageFramer Framer,ByteBuffer Buffer,int Position,int Limit,int AverageLength)
+        {
+        _framer = Framer;
+        _buffer = Buffer;
+        _position = Position;
+        _limit = Limit;
+        _averageLength = AverageLength;
+        }
+    
+    
+    /** Frames every message of a region of a buffer and returns a 
+     * spliterator that splits them by message and knows their number.
+     * 
+     * @param Buffer the buffer holding the messages.
+     * @param Offset the absolute index of the first byte of the region.
+     * @param Length the number of bytes in the region.
+     * @param Framer the framer for the messages' format.
+     * @return a SIZED spliterator over the messages.
+     */
+    static public MessageSpliterator indexed(ByteBuffer Buffer,int Offset,int Length,MessageFramer Framer)
+        {
+        if (Offset < 0 || Length < 0 || Offset > Buffer.limit() - Length)
+            throw new IndexOutOfBoundsException("Region " + Offset + "+" + Length + " is outside the buffer limit of " + Buffer.limit() + ".");
+        
+        MessageBatchParser.Spans spans = new MessageBatchParser.Spans();
+        MessageBatchParser.frameAll(Framer,Buffer,Offset,Offset + Length,true,spans);
+        return new MessageSpliterator(Framer,Buffer,spans._spans,0,spans._count);
+        }
+    
+    
+    /** Returns a stream over the messages of a file.  The file is
+     * memory-mapped, in pieces of up to 2 GB cut at message boundaries, and
+     * each piece is split by bytes.  The file itself is closed as soon as
+     * it has been mapped, as a mapping stays readable without it.
+     * 
+     * @param File the file to read.
+     * @param Framer the framer for the file's format.
+     * @param Parallel true for a parallel stream.
+     * @return the results of each message in file order.
+     * @throws IOException if the file cannot be mapped.
+     */
+    static public Stream<MessageParseResults> stream(Path File,MessageFramer Framer,boolean Parallel) throws IOException
+        {
+        try (FileChannel channel = FileChannel.open(File,StandardOpenOption.READ))
+            {
+            long size = channel.size();
+            long base = 0;
+            Stream<MessageParseResults> stream = null;
+            do
+                {
+                int length = (int)Math.min(LARGEST_MAPPING,size - base);
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,base,length);
+                if (base + length < size)
+                    {
+                    // cut the piece at the end of the message its middle falls in
+                    int cut = Framer.resync(window,length / 2,length);
+                    if (cut < 0)
+                        throw new IOException("Message at position " + (base + length / 2) + " is larger than " + (length / 2) + " bytes.");
+                    length = cut;
+                    }
+                Stream<MessageParseResults> piece = StreamSupport.stream(new MessageSpliterator(window,0,length,Framer),Parallel);
+                stream = stream == null ? piece : Stream.concat(stream,piece);
+                base += length;
+                }
+            while (base < size);
+            return stream;
+            }
+        }
+    
+    
+    /* (non-Javadoc)
+     * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+     */
+    public boolean tryAdvance(Consumer<? super MessageParseResults> Action)
+        {
+        if (_spans != null)
+            {
+            if (_index >= _end)
+                return false;
+            int start = _spans[_index * 2];
+            int end = _spans[_index * 2 + 1];
+            ++_index;
+            Action.accept(parse(start,end - start));
+            return true;
+            }
+        
+        while (_position < _limit)
+            {
+            int next = _framer.frame(_buffer,_position,_limit,true,_span);
+            _position = next < 0 ? _limit : next;
+            if (_span[0] >= 0)
+                {
+                Action.accept(parse(_span[0],_span[1] - _span[0]));
+                return true;
+                }
+            }
+        return false;
+        }
+    
+    
+    /* (non-Javadoc)
+     * @see java.util.Spliterator#trySplit()
+     */
+    public Spliterator<MessageParseResults> trySplit()
+        {
+        if (_spans != null)
+            {
+            int middle = (_index + _end) >>> 1;
+            if (middle <= _index)
+                return null;
+            MessageSpliterator prefix = new MessageSpliterator(_framer,_buffer,_spans,_index,middle);
+            _index = middle;
+            return prefix;
+            }
+        
+        if (_limit - _position < MINIMUM_SPLIT)
+            return null;
+        int cut = _framer.resync(_buffer,_position + (_limit - _position) / 2,_limit);
+        if (cut <= _position || cut >= _limit)
+            return null;
+        MessageSpliterator prefix = new MessageSpliterator(_framer,_buffer,_position,cut,_averageLength);
+        _position = cut;
+        return prefix;
+        }
+    
+    
+    /** Returns the exact number of messages left when split by message,
+     * or an estimate from the bytes left and the length of the first
+     * message when split by bytes.
+     * 
+     * @see java.util.Spliterator#estimateSize()
+     */
+    public long estimateSize()
+        {
+        if (_spans != null)
+            return _end - _index;
+        return (_limit - _position + _averageLength - 1) / _averageLength;
+        }
+    
+    
+    /* (non-Javadoc)
+     * @see java.util.Spliterator#characteristics()
+     */
+    public int characteristics()
+        {
+        int characteristics = ORDERED | NONNULL | IMMUTABLE;
+        if (_spans != null)
+            characteristics |= SIZED | SUBSIZED;
+        return characteristics;
+        }
+    
+    
+    /** Parses one message.
+     * 
+     * @return the results of the parse.
+     */
+    private MessageParseResults parse(int Offset,int Length)
+        {
+        try
+            {
+            return _framer.parseSafely(_buffer,Offset,Length);
+            }
+        catch (IOException ee)
+            {
+            throw new UncheckedIOException(ee);
+            }
+        }
+    }
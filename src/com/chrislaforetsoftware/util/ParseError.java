@@ -0,0 +1,114 @@
+/* ParseError.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+/** The errors the FedWire and CHIPS parsers report, each with the text
+ * it is shown as.  An ErrorList records an error as one of these codes
+ * plus its line, tag and number, and only puts the text together when it
+ * is asked for.  In the text, &lt;tag&gt; stands for the field tag and
+ * &lt;number&gt; for the number recorded with the error.
+ */
+ 
+public enum ParseError
+    {
+    /** A line that could not be read as a field. */
+    INVALID_FIELD(true,"Invalid field or malformed field tag"),
+    /** A FedWire line with no open curly. */
+    FEDWIRE_MISSING_OPEN(true,"Missing open curly ({) on tag number."),
+    /** A FedWire open curly that does not start the line. */
+    FEDWIRE_MISPLACED_OPEN(true,"Incorrectly placed open curly ({) on tag number...not first character on line."),
+    /** A FedWire tag with no close curly. */
+    FEDWIRE_MISSING_CLOSE(true,"Missing close curly (}) on tag number."),
+    /** A CHIPS line with no open bracket. */
+    CHIPS_MISSING_OPEN(true,"Missing open curly ([) on tag number."),
+    /** A CHIPS open bracket that does not start the line. */
+    CHIPS_MISPLACED_OPEN(true,"Incorrectly placed open curly (]) on tag number...not first character on line."),
+    /** A CHIPS tag with no close bracket. */
+    CHIPS_MISSING_CLOSE(true,"Missing close curly (]) on tag number."),
+    /** A tag of the wrong length; the number is the length found. */
+    TAG_LENGTH(true,"Tag is invalid length of <number> characters instead of 4."),
+    /** A tag with something other than digits in it. */
+    NON_NUMERIC_TAG(true,"Tag contains one or more invalid non-numeric characters."),
+    /** A tag with nothing after it. */
+    EMPTY_VALUE(true,"No data follows the tag...empty value field."),
+    /** A field whose value is the wrong length. */
+    FIELD_LENGTH(false,"Malformed field: <tag> incorrect length."),
+    /** A FedWire {1520} IMAD of the wrong length. */
+    IMAD_LENGTH(false,"Malformed field: <tag> (IMAD) incorrect length."),
+    /** A FedWire {2000} amount of the wrong length. */
+    AMOUNT_LENGTH(false,"Malformed field: <tag> (Amount) incorrect length."),
+    /** A FedWire {3500} previous IMAD of the wrong length. */
+    PREVIOUS_IMAD_LENGTH(false,"Malformed field: <tag> (Prev IMAD) incorrect length."),
+    /** A field that must have a value but is empty. */
+    EMPTY_FIELD(false,"Malformed field: <tag> is empty."),
+    /** A tag the format does not define. */
+    INVALID_FIELD_TYPE(false,"Invalid field type: <tag> found in list."),
+    /** A tag that appears more than once; recorded for each repeat. */
+    DUPLICATE_FIELD(false,"Duplicate field: <tag> exists more than once."),
+    /** A mandatory field that is not in the message. */
+    MISSING_FIELD(false,"Missing mandatory field: Field <tag>."),
+    /** A FedWire {1510} that is not a four character type and subtype. */
+    MISSING_TYPE_SUBTYPE(false,"Missing Type/Subtype Code: Field 1510"),
+    /** Any other error, recorded as its text. */
+    TEXT(false,"");
+    
+    private boolean _numbered;
+    private String _template;
+    
+    private ParseError(boolean Numbered,String Template)
+        {
+        _numbered = Numbered;
+        _template = Template;
+        }
+    
+    
+    /** Determines if the text of the error starts with the line it was
+     * found on, as in "Line 3: ...".
+     * 
+     * @return true if the error is reported against a line.
+     */
+    public boolean isNumbered()
+        {
+        return _numbered;
+        }
+    
+    
+    /** Puts together the text of the error.
+     * 
+     * @param Line the line number, used if the error is numbered.
+     * @param Tag the field tag, if the text has one.
+     * @param Number the number recorded with the error, if the text has one.
+     * @return the text.
+     */
+    public String format(long Line,String Tag,int Number)
+        {
+        String text = _template;
+        if (text.indexOf('<') >= 0)
+            text = text.replace("<tag>",String.valueOf(Tag)).replace("<number>",Integer.toString(Number));
+        return _numbered ? "Line " + Line + ": " + text : text;
+        }
+    }
@@ -27,8 +27,6 @@
 package com.chrislaforetsoftware.util;
  
 import java.io.BufferedReader;
-import java.util.ArrayList;
-import java.util.List;
  
 /** Container for data used to parse messages.
  * 
@@ -39,11 +37,208 @@ public class ParseSupport
     {
     public BufferedReader reader;
     public int lineNumber = 0;
-    public List<String> errorList = new ArrayList<String>();
+    public ErrorList errorList;
      
     public ParseSupport(BufferedReader Reader)
         {
         reader = Reader;
+        errorList = new ErrorList();
+        }
+     
+     
+    /** Creates parse state for a parser that walks the message itself
+     * rather than reading it through a BufferedReader.
+     */
+    public ParseSupport()
+        {
+        errorList = new ErrorList();
+        }
+     
+     
+    /** Creates parse state that records its errors in a list supplied
+     * by the caller, such as the thread's list from ErrorList.scratch().
+     * 
+     * @param Errors the empty list to add errors to.
+     */
+    public ParseSupport(ErrorList Errors)
+        {
+        errorList = Errors;
+        }
+     
+     
+    /** Clears the line number and errors so the same parse state can
+     * be used for another message.  The error list is cleared rather
+     * than replaced, so it keeps its capacity.
+     */
+    public void reset()
+        {
+        reader = null;
+        lineNumber = 0;
+        errorList.clear();
+        }
+     
+     
+    /** Finds the first occurrence of Needle in Haystack at or after
+     * From.  This is String.indexOf() for any CharSequence, so that
+     * parsers can work over buffers without first copying them into
+     * a String.
+     * 
+     * @param Haystack the characters to search.
+     * @param Needle the pattern to find.
+     * @param From the index to start searching from.
+     * @return the index of the match or -1 if not found.
+     */
+    static public int indexOf(CharSequence Haystack,String Needle,int From)
+        {
+        if (Haystack instanceof String)
+            return ((String)Haystack).indexOf(Needle,From);
+         
+        int last = Haystack.length() - Needle.length();
+        char first = Needle.charAt(0);
+        for (int offset = Math.max(From,0); offset <= last; offset++)
+            {
+            if (Haystack.charAt(offset) != first)
+                continue;
+             
+            int match = 1;
+            while (match < Needle.length() && Haystack.charAt(offset + match) == Needle.charAt(match))
+                ++match;
+            if (match == Needle.length())
+                return offset;
+            }
+        return -1;
+        }
+     
+     
+    /** Determines if Haystack holds Needle starting at Offset.
+     * 
+     * @param Haystack the characters to check.
+     * @param Offset the index at which the pattern must start.
+     * @param Needle the pattern to compare.
+     * @return true if the pattern is found at the offset.
+     */
+    static public boolean regionMatches(CharSequence Haystack,int Offset,String Needle)
+        {
+        if (Offset < 0 || Offset > Haystack.length() - Needle.length())
+            return false;
+        for (int index = 0; index < Needle.length(); index++)
+            {
+            if (Haystack.charAt(Offset + index) != Needle.charAt(index))
+                return false;
+            }
+        return true;
+        }
+     
+     
+    /** Copies a range of characters into a String, decoding straight
+     * from the source when it is a buffer view.
+     * 
+     * @param Source the characters to copy from.
+     * @param Start the first character to copy.
+     * @param End the index after the last character to copy.
+     * @return the range as a String.
+     */
+    static public String substring(CharSequence Source,int Start,int End)
+        {
+        if (Source instanceof String)
+            return ((String)Source).substring(Start,End);
+        if (Source instanceof ByteCharSequence)
+            return ((ByteCharSequence)Source).toString(Start,End);
+        return Source.subSequence(Start,End).toString();
+        }
+     
+     
+    /** Ends an error built around an exception's message with a
+     * period, unless the message already ends with one.
+     * 
+     * @param Text the error text.
+     * @return the text ending in exactly one period.
+     */
+    static public String sentence(String Text)
+        {
+        return Text.endsWith(".") ? Text : Text + ".";
+        }
+     
+     
+    /** Skips leading whitespace in the same way as String.trim().
+     * 
+     * @param Source the characters to examine.
+     * @param Start the first character of the range.
+     * @param End the index after the last character of the range.
+     * @return the index of the first non-whitespace character or End.
+     */
+    static public int trimStart(CharSequence Source,int Start,int End)
+        {
+        while (Start < End && Source.charAt(Start) <= ' ')
+            ++Start;
+        return Start;
+        }
+     
+     
+    /** Skips trailing whitespace in the same way as String.trim().
+     * 
+     * @param Source the characters to examine.
+     * @param Start the first character of the range.
+     * @param End the index after the last character of the range.
+     * @return the index after the last non-whitespace character or Start.
+     */
+    static public int trimEnd(CharSequence Source,int Start,int End)
+        {
+        while (End > Start && Source.charAt(End - 1) <= ' ')
+            --End;
+        return End;
+        }
+         
+     
+    /** Finds the CR or LF that ends the line starting at LineStart, as
+     * BufferedReader.readLine() would.
+     * 
+     * @param Contents the characters to search.
+     * @param LineStart the offset of the first character of the line.
+     * @return the offset of the terminator or the length of the contents.
+     */
+    static public int findLineEnd(CharSequence Contents,int LineStart)
+        {
+        int length = Contents.length();
+        int offset = LineStart;
+        while (offset < length)
+            {
+            char ch = Contents.charAt(offset);
+            if (ch == '\r' || ch == '\n')
+                break;
+            ++offset;
+            }
+        return offset;
+        }
+     
+     
+    /** Steps over the CR, LF or CRLF that ends a line.
+     * 
+     * @param Contents the characters being read.
+     * @param LineEnd the offset of the terminator, as returned by findLineEnd().
+     * @return the offset of the start of the next line.
+     */
+    static public int skipLineEnd(CharSequence Contents,int LineEnd)
+        {
+        int length = Contents.length();
+        if (LineEnd >= length)
+            return LineEnd;
+        if (Contents.charAt(LineEnd) == '\r' && LineEnd + 1 < length && Contents.charAt(LineEnd + 1) == '\n')
+            return LineEnd + 2;
+        return LineEnd + 1;
+        }
+     
+     
+    /** Determines if the line break between two lines is exactly CRLF,
+     * which is what lets a multi-line value stay a single span.
+     * 
+     * @param Contents the characters being read.
+     * @param LineEnd the offset of the first line's terminator.
+     * @param NextLineStart the offset of the start of the following line.
+     * @return true if the two lines are separated by CRLF.
+     */
+    static public boolean isCRLF(CharSequence Contents,int LineEnd,int NextLineStart)
+        {
+        return NextLineStart - LineEnd == 2 && Contents.charAt(LineEnd) == '\r' && Contents.charAt(LineEnd + 1) == '\n';
         }
     }
-    
\ No newline at end of file
@@ -0,0 +1,112 @@
+/* TagTable.java
+ *
+ * Copyright (c) 2010, Chris Laforet Software/Christopher Laforet
+ * All Rights Reserved
+ *
+ * Started: Oct 18, 2026
+ * Revision Information: $Date$
+ *                       $Revision$
+ * 
+ * 
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http: * www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Initial Developer of the Original Code is Chris Laforet from Chris Laforet Software.
+ * Portions created by Chris Laforet Software are Copyright (C) 2010.  All Rights Reserved.
+ *
+ * Contributor(s): Chris Laforet Software.
+ */
+ 
+package com.chrislaforetsoftware.util;
+ 
+/** Numeric field tags, such as the four digit FedWire tags and the
+ * three digit CHIPS tags, as int codes.  A tag made only of the digits 0
+ * to 9 has the code of its numeric value, so {1520} is 1520 and [031] is
+ * 31; since the leading zeros are lost, two tags are the same when both
+ * their codes and their lengths are.
+ * <p>
+ * The table also holds one shared String for each tag of up to four
+ * digits, made the first time that tag is asked for, so fields can hand
+ * out their tags without copying them out of every message.
+ */
+ 
+public class TagTable
+    {
+    /** The code of a tag that is not made only of digits. */
+    static public final int NO_TAG_CODE = -1;
+    
+    /** The most digits a tag in the shared table can have. */
+    static public final int MAXIMUM_WIDTH = 4;
+    
+    // shared tags by width and code; filled in as they are first used
+    static private final String [][] _tags = { null, new String[10], new String[100], new String[1000], new String[10000] };
+    
+    /** Decodes a range of characters as a tag code.
+     * 
+     * @param Source the characters holding the tag.
+     * @param Start the offset of the first character of the tag.
+     * @param End the offset after the last character of the tag.
+     * @return the code or NO_TAG_CODE if the tag is empty, too long or not all digits.
+     */
+    static public int code(CharSequence Source,int Start,int End)
+        {
+        if (End <= Start || End - Start > 9)
+            return NO_TAG_CODE;
+        
+        int code = 0;
+        for (int index = Start; index < End; index++)
+            {
+            char ch = Source.charAt(index);
+            if (ch < '0' || ch > '9')
+                return NO_TAG_CODE;
+            code = code * 10 + (ch - '0');
+            }
+        return code;
+        }
+    
+    
+    /** Decodes a whole tag as a tag code.
+     * 
+     * @param Tag the tag.
+     * @return the code or NO_TAG_CODE if the tag is empty, too long or not all digits.
+     */
+    static public int code(CharSequence Tag)
+        {
+        return code(Tag,0,Tag.length());
+        }
+    
+    
+    /** Retrieves the shared String for a tag.  Threads racing to make
+     * the same tag may each make a copy, but the copies are equal.
+     * 
+     * @param Code the tag code.
+     * @param Width the number of digits in the tag, counting leading zeros.
+     * @return the tag or null if it is wider than MAXIMUM_WIDTH or the code does not fit the width.
+     */
+    static public String tag(int Code,int Width)
+        {
+        if (Width < 1 || Width > MAXIMUM_WIDTH || Code < 0)
+            return null;
+        String [] tags = _tags[Width];
+        if (Code >= tags.length)
+            return null;
+        
+        String tag = tags[Code];
+        if (tag == null)
+            {
+            char [] digits = new char[Width];
+            for (int index = Width - 1, code = Code; index >= 0; index--, code /= 10)
+                digits[index] = (char)('0' + code % 10);
+            tag = new String(digits);
+            tags[Code] = tag;
+            }
+        return tag;
+        }
+    }